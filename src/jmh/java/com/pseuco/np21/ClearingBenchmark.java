@@ -0,0 +1,107 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stress test of a hub clearing: all threads of the benchmark enter and leave the same clearing, like ants passing
+ * through the anthill or the center of {@code star.map}.
+ * <p>
+ * {@link #lockFree} uses {@link Clearing}, {@link #locked} the former implementation guarding every access with one
+ * lock. The capacity is large enough that the clearing is never full, so only the cost of admission is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ClearingBenchmark {
+    /**
+     * Clearing taking one lock for every access.
+     */
+    private static final class LockedClearing {
+        private final Lock lock = new ReentrantLock();
+        private final Condition spaceLeft = lock.newCondition();
+        private final Capacity capacity;
+        private int ants;
+
+        private LockedClearing(final Capacity capacity) {
+            this.capacity = capacity;
+        }
+
+        private boolean tryEnter() {
+            lock.lock();
+            try {
+                if (capacity.isInfinite() || ants < capacity.value()) {
+                    ants++;
+                    return true;
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void leave() {
+            lock.lock();
+            try {
+                ants--;
+                spaceLeft.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Capacity of the hub, {@code -1} for infinite.
+     */
+    @Param({"1024", "-1"})
+    public int capacity;
+
+    private Clearing clearing;
+    private LockedClearing lockedClearing;
+
+    @Setup
+    public void setUp() {
+        final var capacity = this.capacity < 0 ? Capacity.INFINITE : Capacity.get(this.capacity);
+        clearing = new Clearing("Hub", 0, capacity);
+        lockedClearing = new LockedClearing(capacity);
+    }
+
+    @Benchmark
+    public boolean lockFree() {
+        final boolean entered = clearing.tryEnter();
+        if (entered) {
+            clearing.leave();
+        }
+        return entered;
+    }
+
+    @Benchmark
+    public boolean locked() {
+        final boolean entered = lockedClearing.tryEnter();
+        if (entered) {
+            lockedClearing.leave();
+        }
+        return entered;
+    }
+}
@@ -0,0 +1,92 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.Recorder;
+
+import java.util.List;
+
+/**
+ * Recorder dropping all calls, so benchmarks measure the simulation only.
+ * <p>
+ * The candidates of the last selection are kept like a real recorder might, so their allocation cannot be optimized
+ * away. Subclasses override the calls they want to measure.
+ */
+class DiscardRecorder implements Recorder {
+    /**
+     * Candidates of the last selection.
+     */
+    List<?> candidates;
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void stop() {
+    }
+
+    @Override
+    public void spawn(final Ant ant) {
+    }
+
+    @Override
+    public void despawn(final Ant ant, final DespawnReason reason) {
+    }
+
+    @Override
+    public void enter(final Ant ant, final com.pseuco.np21.shared.Clearing<?, ?> clearing) {
+    }
+
+    @Override
+    public void leave(final Ant ant, final com.pseuco.np21.shared.Clearing<?, ?> clearing) {
+    }
+
+    @Override
+    public void enter(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail) {
+    }
+
+    @Override
+    public void leave(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail) {
+    }
+
+    @Override
+    public <T extends com.pseuco.np21.shared.Trail<?, ?>> void select(final Ant ant, final T trail,
+                                                                     final List<T> candidates,
+                                                                     final SelectionReason reason) {
+        this.candidates = candidates;
+    }
+
+    @Override
+    public void startFoodSearch(final Ant ant) {
+    }
+
+    @Override
+    public void startExploration(final Ant ant) {
+    }
+
+    @Override
+    public void startFoodReturn(final Ant ant) {
+    }
+
+    @Override
+    public void returnedFood(final Ant ant) {
+    }
+
+    @Override
+    public void pickupFood(final Ant ant, final com.pseuco.np21.shared.Clearing<?, ?> clearing) {
+    }
+
+    @Override
+    public void updateFood(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail,
+                           final com.pseuco.np21.shared.Trail.Pheromone value) {
+    }
+
+    @Override
+    public void updateAnthill(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail,
+                              final com.pseuco.np21.shared.Trail.Pheromone value) {
+    }
+
+    @Override
+    public void attractAttention(final Ant ant) {
+    }
+}
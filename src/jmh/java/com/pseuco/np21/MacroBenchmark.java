@@ -0,0 +1,387 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.World;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+/**
+ * End-to-end benchmark of whole simulations.
+ * <p>
+ * Every map is simulated with every ant population and every engine, each run on a freshly parsed world. The maps are
+ * the files given by {@code maps} and worlds of the topologies and sizes given by {@code generated}, see
+ * {@link WorldGenerator}; the ants are generated with random impatience and disguise. Each run reports
+ * <ul>
+ *     <li>food and moves, i.e. entered trails, per second of wall-clock time</li>
+ *     <li>the time until the ants returned all food, if they did</li>
+ *     <li>the median and 99th percentile of the waits at clearings, see {@link MeasuringRecorder}</li>
+ *     <li>the time spent in garbage collection</li>
+ *     <li>the peak resident set size of the process, which is reset before every run on Linux, and the peak heap</li>
+ * </ul>
+ * One CSV line is written per run, and a summary table printed at the end shows for every map and engine the
+ * population with the most moves per second and the first larger population reaching less than half of it.
+ * <p>
+ * Run with {@code gradle macro -Pmacro="<options>"}, see {@link #USAGE}.
+ */
+public final class MacroBenchmark {
+    private static final String USAGE = "Usage: <command> [maps=<directory or map files, comma separated>] "
+            + "[generated=<topology>:<clearings>,...] [ants=<populations>] [engines=threads|des|pool,...] "
+            + "[threads=platform|virtual,...] "
+            + "[workers=<workers>] [timeout=<timeout>] [seed=<seed>] [repeat=<runs>] [csv=<csv file>]";
+
+    private static final String HEADER = "map,clearings,engine,threads,workers,ants,run,status,wall_ms,food,"
+            + "food_per_s,moves,moves_per_s,time_to_threshold_ms,wait_p50_us,wait_p99_us,gc_ms,peak_rss_mb,"
+            + "peak_heap_mb";
+
+    /**
+     * Text of a map and its name.
+     */
+    private record MapText(String name, String text) {
+    }
+
+    /**
+     * Setting of the simulator.
+     */
+    private record Setting(Engine engine, ExecutionMode threads, int workers) {
+        @Override
+        public String toString() {
+            return engine == Engine.THREADS ? "threads/" + threads.name().toLowerCase(Locale.ROOT)
+                    : engine == Engine.WORKER_POOL ? "pool/" + workers : "des";
+        }
+    }
+
+    /**
+     * Outcome of one run.
+     */
+    private record Result(String map, int clearings, Setting setting, int ants, int run, String status, double wallMs,
+                          long food, long moves, double timeToThresholdMs, double waitP50Us, double waitP99Us,
+                          long gcMs, double peakRssMb, double peakHeapMb) {
+        double movesPerSecond() {
+            return wallMs > 0 ? moves / (wallMs / 1e3) : 0;
+        }
+
+        double foodPerSecond() {
+            return wallMs > 0 ? food / (wallMs / 1e3) : 0;
+        }
+
+        String csv() {
+            return String.join(",", map, Integer.toString(clearings), setting.engine().name().toLowerCase(Locale.ROOT),
+                    setting.threads().name().toLowerCase(Locale.ROOT), Integer.toString(setting.workers()),
+                    Integer.toString(ants), Integer.toString(run), status, format(wallMs), Long.toString(food),
+                    format(foodPerSecond()), Long.toString(moves), format(movesPerSecond()), format(timeToThresholdMs),
+                    format(waitP50Us), format(waitP99Us), Long.toString(gcMs), format(peakRssMb),
+                    format(peakHeapMb));
+        }
+    }
+
+    /**
+     * Default constructor is not needed and thus inaccessible.
+     */
+    private MacroBenchmark() {
+    }
+
+    private static String format(final double value) {
+        return value < 0 || Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    /**
+     * Generate a world with a {@link WorldGenerator}.
+     *
+     * @param value {@code <topology>:<clearings>}, e.g. {@code tree:100000}
+     * @param seed  of the generator
+     * @return the map
+     */
+    static MapText generate(final String value, final long seed) {
+        final var parts = value.split(":", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException(
+                    String.format("Expected <topology>:<clearings> but got \"%s\"!", value));
+        }
+        final var out = new StringWriter();
+        try {
+            WorldGenerator.of(WorldGenerator.Topology.parse(parts[0]), Integer.parseInt(parts[1])).withSeed(seed)
+                    .writeMap(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new MapText(parts[0] + parts[1], out.toString());
+    }
+
+    /**
+     * Generate a population of ants.
+     *
+     * @param count  number of ants
+     * @param random to choose impatience and disguise with
+     * @return the ants file
+     */
+    static String ants(final int count, final SplittableRandom random) {
+        final var text = new StringBuilder(24 * count);
+        for (int i = 0; i < count; i++) {
+            text.append("Ant").append(i).append(';').append(random.nextInt(1, 100)).append(';')
+                    .append(random.nextInt(50, 2000)).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(bean -> Math.max(bean.getCollectionTime(), 0))
+                .sum();
+    }
+
+    /**
+     * Reset the peak resident set size, only possible on Linux.
+     */
+    private static void resetPeakRss() {
+        try {
+            Files.writeString(Path.of("/proc/self/clear_refs"), "5");
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            // the peak then covers all runs so far
+        }
+    }
+
+    /**
+     * Get the peak resident set size, only available on Linux.
+     *
+     * @return peak in MB or {@code -1} if unknown
+     */
+    private static double peakRssMb() {
+        try {
+            for (final var line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.replaceAll("\\D", "")) / 1024.0;
+                }
+            }
+        } catch (IOException | NumberFormatException | SecurityException e) {
+            // not on Linux
+        }
+        return -1;
+    }
+
+    private static double peakHeapMb() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum() / 1e6;
+    }
+
+    /**
+     * Simulate a map with a population and setting once.
+     */
+    private static Result run(final MapText map, final Setting setting, final int ants, final int run,
+                              final long timeout, final long seed) throws IOException {
+        final var factory = new Factory();
+        final var name = new StreamingParser().parse(
+                Channels.newChannel(new ByteArrayInputStream(map.text().getBytes(StandardCharsets.UTF_8))),
+                Channels.newChannel(new ByteArrayInputStream(ants(ants, new SplittableRandom(seed + ants))
+                        .getBytes(StandardCharsets.UTF_8))),
+                factory);
+        final World<Clearing, Trail> world = factory.finishWorld(name, -1);
+        final int clearings = world.clearings().size();
+
+        final var recorder = new MeasuringRecorder(ants, world.totalFood());
+        final boolean virtualTime = setting.engine() == Engine.DISCRETE_EVENT;
+        final var options = Options.DEFAULT
+                .withEngine(setting.engine())
+                .withThreads(setting.threads())
+                .withWorkers(setting.workers())
+                .withTimeLimit(virtualTime ? timeout : -1)
+                .withDeadline(virtualTime ? -1 : timeout)
+                .withSeed(seed + run);
+
+        System.gc();
+        resetPeakRss();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(java.lang.management.MemoryPoolMXBean::resetPeakUsage);
+        final long gcBefore = gcMillis();
+
+        final var handle = new Simulator(world, recorder, options).start();
+        String status;
+        double wallMs;
+        try {
+            wallMs = handle.await().elapsed().toNanos() / 1e6;
+            status = recorder.food() >= world.totalFood() ? "done" : "timeout";
+        } catch (IllegalStateException e) {
+            status = e.getCause().getClass().getSimpleName();
+            wallMs = -1;
+        } catch (InterruptedException e) {
+            handle.cancel();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while simulating!", e);
+        }
+        final long timeToThreshold = recorder.timeToThreshold();
+        return new Result(map.name(), clearings, setting, ants, run, status, wallMs, recorder.food(),
+                recorder.moves(), timeToThreshold < 0 ? -1 : timeToThreshold / 1e6,
+                recorder.waitPercentile(50) / 1e3, recorder.waitPercentile(99) / 1e3, gcMillis() - gcBefore,
+                peakRssMb(), peakHeapMb());
+    }
+
+    /**
+     * Print for every map and setting the population with the most moves per second and where throughput collapses.
+     */
+    private static void summarize(final List<Result> results) {
+        final var groups = new LinkedHashMap<String, List<Result>>();
+        for (final var result : results) {
+            groups.computeIfAbsent(result.map() + " " + result.setting(), key -> new ArrayList<>()).add(result);
+        }
+
+        System.out.printf("%n%-24s %-16s %10s %14s %12s %14s%n", "map", "setting", "best ants", "moves/s",
+                "food/s", "collapse at");
+        for (final var group : groups.values()) {
+            // average the repetitions of each population
+            final var byAnts = group.stream().collect(Collectors.groupingBy(Result::ants, java.util.TreeMap::new,
+                    Collectors.toList()));
+            int bestAnts = -1, collapse = -1;
+            double bestMoves = -1, bestFood = 0;
+            for (final var entry : byAnts.entrySet()) {
+                final double moves = entry.getValue().stream().mapToDouble(Result::movesPerSecond).average()
+                        .orElse(0);
+                if (moves > bestMoves) {
+                    bestMoves = moves;
+                    bestAnts = entry.getKey();
+                    bestFood = entry.getValue().stream().mapToDouble(Result::foodPerSecond).average().orElse(0);
+                    collapse = -1;
+                } else if (collapse < 0 && moves < bestMoves / 2) {
+                    collapse = entry.getKey();
+                }
+            }
+            final var first = group.get(0);
+            System.out.printf(Locale.ROOT, "%-24s %-16s %10d %14.0f %12.1f %14s%n", first.map(), first.setting(),
+                    bestAnts, bestMoves, bestFood, collapse < 0 ? "-" : Integer.toString(collapse));
+        }
+    }
+
+    private static int[] integers(final String value) {
+        return value.isBlank() ? new int[0] : Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Entrypoint of the benchmark.
+     *
+     * @param args command line arguments
+     * @throws IOException if a map cannot be read or the CSV file cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        final var arguments = parseArguments(args);
+        if (arguments == null) {
+            System.out.println(USAGE);
+            System.exit(1);
+        }
+
+        final long seed = Long.parseLong(arguments.getOrDefault("seed", "1"));
+        final long timeout = Long.parseLong(arguments.getOrDefault("timeout", "10000"));
+        final int repeat = Integer.parseInt(arguments.getOrDefault("repeat", "1"));
+        final int workers = Integer.parseInt(arguments.getOrDefault("workers",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        final var populations = integers(arguments.getOrDefault("ants", "10,100,1000,10000,100000"));
+
+        final var maps = new ArrayList<MapText>();
+        for (final var entry : arguments.getOrDefault("maps", "src/test/resources/maps").split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            final var path = Path.of(entry);
+            final List<Path> files;
+            if (Files.isDirectory(path)) {
+                try (final var listing = Files.list(path)) {
+                    files = listing.filter(file -> file.toString().endsWith(".map")).sorted().toList();
+                }
+            } else {
+                files = List.of(path);
+            }
+            for (final var file : files) {
+                maps.add(new MapText(file.getFileName().toString().replaceFirst("\\.map$", ""),
+                        Files.readString(file)));
+            }
+        }
+        for (final var world : arguments.getOrDefault("generated", "grid:1024,tree:16384").split(",")) {
+            if (!world.isBlank()) {
+                maps.add(generate(world, seed));
+            }
+        }
+
+        final var settings = new ArrayList<Setting>();
+        for (final var engine : arguments.getOrDefault("engines", "threads,des,pool").split(",")) {
+            switch (Engine.parse(engine)) {
+                case THREADS -> {
+                    for (final var threads : arguments.getOrDefault("threads", "platform").split(",")) {
+                        final var mode = ExecutionMode.parse(threads);
+                        if (mode.isSupported()) {
+                            settings.add(new Setting(Engine.THREADS, mode, workers));
+                        } else {
+                            System.err.printf("Skipping %s threads, the JVM does not support them.%n", threads);
+                        }
+                    }
+                }
+                case DISCRETE_EVENT -> settings.add(new Setting(Engine.DISCRETE_EVENT, ExecutionMode.PLATFORM,
+                        workers));
+                case WORKER_POOL -> settings.add(new Setting(Engine.WORKER_POOL, ExecutionMode.PLATFORM, workers));
+            }
+        }
+
+        final var csv = Path.of(arguments.getOrDefault("csv", "build/reports/macro/"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".csv"));
+        if (csv.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(csv.toAbsolutePath().getParent());
+        }
+
+        final var results = new ArrayList<Result>();
+        try (final var out = new PrintWriter(Files.newBufferedWriter(csv))) {
+            out.println(HEADER);
+            for (final var map : maps) {
+                for (final var setting : settings) {
+                    for (final int ants : populations) {
+                        for (int run = 0; run < repeat; run++) {
+                            final var result = run(map, setting, ants, run, timeout, seed);
+                            results.add(result);
+                            out.println(result.csv());
+                            out.flush();
+                            System.err.printf(Locale.ROOT, "%s %s %d ants: %s after %.0f ms, %.0f moves/s%n",
+                                    map.name(), setting, ants, result.status(), result.wallMs(),
+                                    result.movesPerSecond());
+                        }
+                    }
+                }
+            }
+        }
+
+        summarize(results);
+        System.out.printf("%nWrote %d runs to \"%s\".%n", results.size(), csv);
+    }
+
+    private static Map<String, String> parseArguments(final String[] args) {
+        final var options = Set.of("maps", "generated", "ants", "engines", "threads", "workers", "timeout", "seed",
+                "repeat", "csv");
+        final var result = new HashMap<String, String>();
+
+        for (final var arg : args) {
+            final var parts = arg.split("=", 2);
+            if (parts.length != 2 || !options.contains(parts[0])) {
+                return null;
+            }
+            result.put(parts[0], parts[1]);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,145 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recorder counting the moves and the returned food of a simulation, see {@link MacroBenchmark}.
+ * <p>
+ * The time an ant spends between entering a trail and entering its destination is its wait at the clearing, since
+ * traversing a trail itself takes no time. Waits are measured in wall-clock time and collected in a log-linear
+ * histogram of four buckets per power of two, so percentiles are accurate to about 20 %. All counters are lock-free and
+ * the timestamps are kept per ant, so measuring does not serialize the ants.
+ */
+final class MeasuringRecorder extends DiscardRecorder {
+    private static final int BUCKETS = 4 * 64;
+
+    private final int threshold;
+    private final long[] entered;
+    private final AtomicLongArray waits = new AtomicLongArray(BUCKETS);
+    private final LongAdder moves = new LongAdder();
+    private final AtomicLong food = new AtomicLong();
+
+    private volatile long start;
+    private volatile long thresholdReached = -1;
+
+    /**
+     * Constructs a recorder for a simulation.
+     *
+     * @param ants      number of ants of the world
+     * @param threshold amount of food the ants have to return
+     */
+    MeasuringRecorder(final int ants, final int threshold) {
+        this.threshold = threshold;
+        this.entered = new long[ants];
+    }
+
+    private static int bucket(final long nanos) {
+        if (nanos < 4) {
+            return (int) Math.max(nanos, 0);
+        }
+        final int log = 63 - Long.numberOfLeadingZeros(nanos);
+        return 4 * log + (int) ((nanos >>> (log - 2)) & 3);
+    }
+
+    /**
+     * Get the lower bound of the values in a bucket.
+     */
+    private static long lowerBound(final int bucket) {
+        if (bucket < 4) {
+            return bucket;
+        }
+        final int log = bucket / 4;
+        return (4L + bucket % 4) << (log - 2);
+    }
+
+    @Override
+    public void start() {
+        start = System.nanoTime();
+    }
+
+    @Override
+    public void enter(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail) {
+        moves.increment();
+        entered[((com.pseuco.np21.Ant) ant).index()] = System.nanoTime();
+    }
+
+    @Override
+    public void enter(final Ant ant, final com.pseuco.np21.shared.Clearing<?, ?> clearing) {
+        final long since = entered[((com.pseuco.np21.Ant) ant).index()];
+        if (since != 0) {
+            waits.incrementAndGet(bucket(System.nanoTime() - since));
+        }
+    }
+
+    @Override
+    public <T extends com.pseuco.np21.shared.Trail<?, ?>> void select(final Ant ant, final T trail,
+                                                                     final List<T> candidates,
+                                                                     final SelectionReason reason) {
+        // unlike the discarding recorder, do not keep the candidates: all ants would write the same field
+    }
+
+    @Override
+    public void returnedFood(final Ant ant) {
+        if (food.incrementAndGet() == threshold) {
+            thresholdReached = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Get the number of trails the ants entered.
+     *
+     * @return number of moves
+     */
+    long moves() {
+        return moves.sum();
+    }
+
+    /**
+     * Get the amount of food the ants returned to the anthill.
+     *
+     * @return amount of returned food
+     */
+    long food() {
+        return food.get();
+    }
+
+    /**
+     * Get the time from the start until the ants returned enough food.
+     *
+     * @return nanoseconds or {@code -1} if the threshold was not reached
+     */
+    long timeToThreshold() {
+        return thresholdReached;
+    }
+
+    /**
+     * Get a percentile of the waits at clearings.
+     *
+     * @param percentile in {@code (0, 100]}
+     * @return lower bound of the bucket holding the percentile in nanoseconds, {@code -1} if no ant moved
+     */
+    long waitPercentile(final double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += waits.get(i);
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        final long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += waits.get(i);
+            if (seen >= rank) {
+                return lowerBound(i);
+            }
+        }
+        return lowerBound(BUCKETS - 1);
+    }
+}
@@ -0,0 +1,66 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the bundled maps with the ants of the Simpsons, by {@link Parser} and by {@link StreamingParser}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"antagonists", "branches", "circly1", "deadend", "line", "linedup", "nice", "rand1", "star", "very_large"})
+    public String map;
+
+    private String mapText, antsText;
+    private byte[] mapBytes, antsBytes;
+
+    private static byte[] resource(final String name) throws IOException {
+        try (InputStream in = ParserBenchmark.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException(String.format("Missing resource \"%s\"!", name));
+            }
+            return in.readAllBytes();
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        mapBytes = resource("maps/" + map + ".map");
+        antsBytes = resource("ants/simpsons.ants");
+        mapText = new String(mapBytes, StandardCharsets.UTF_8);
+        antsText = new String(antsBytes, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String parser() {
+        return Parser.parse(mapText, antsText, new Factory());
+    }
+
+    @Benchmark
+    public String streamingParser() throws IOException {
+        return new StreamingParser().parse(Channels.newChannel(new ByteArrayInputStream(mapBytes)),
+                Channels.newChannel(new ByteArrayInputStream(antsBytes)), new Factory());
+    }
+}
@@ -0,0 +1,92 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import com.pseuco.np21.shared.PrintRecorder;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.Trail.Pheromone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording the calls of one ant moving from one clearing to the next, for every {@link Recorder} of the simulator.
+ * <p>
+ * All output goes to a sink discarding it, so only the cost of formatting or encoding is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecorderBenchmark {
+    @Param({"discard", "print", "async", "binary"})
+    public String recorder;
+
+    private Recorder target;
+    private PrintStream out;
+
+    private com.pseuco.np21.shared.Ant ant;
+    private Clearing from, to;
+    private Trail trail;
+    private List<Trail> candidates;
+    private Pheromone pheromone;
+
+    @Setup
+    public void setUp() {
+        final var factory = new Factory();
+        from = factory.createClearing("Hill", 0, Capacity.INFINITE);
+        to = factory.createClearing("Food", 10, Capacity.get(5));
+        factory.setAnthill(from);
+        trail = factory.createTrail(from, to);
+        final var other = factory.createTrail(from, factory.createClearing("Other", 0, Capacity.INFINITE));
+        ant = factory.createAnt("Homer", 100, 500);
+        final var world = factory.finishWorld("RecorderBenchmark", -1);
+        candidates = List.of(trail, other);
+        pheromone = Pheromone.get(7);
+
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        final var sink = Channels.newChannel(OutputStream.nullOutputStream());
+        target = switch (recorder) {
+            case "discard" -> new DiscardRecorder();
+            case "print" -> new PrintRecorder();
+            case "async" -> new AsyncRecorder(sink, AsyncRecorder.DEFAULT_CAPACITY, AsyncRecorder.Backpressure.BLOCK);
+            case "binary" -> new TraceWriter(sink, world);
+            default -> throw new IllegalArgumentException(recorder);
+        };
+        target.start();
+        target.spawn(ant);
+    }
+
+    @TearDown
+    public void tearDown() {
+        target.stop();
+        System.setOut(out);
+    }
+
+    @Benchmark
+    public void step() {
+        target.select(ant, trail, candidates, Recorder.SelectionReason.FOOD_SEARCH);
+        target.enter(ant, trail);
+        target.leave(ant, from);
+        target.enter(ant, to);
+        target.leave(ant, trail);
+        target.updateAnthill(ant, trail.reverse(), pheromone);
+    }
+}
@@ -0,0 +1,80 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trail selection of an ant searching food in the anthill, which connects to {@link #degree} clearings.
+ * <p>
+ * Run with {@code gradle jmh -Pjmh="SelectWay -prof gc"} to see the allocation per selection: apart from the
+ * candidates handed to the recorder, which recorders may keep, selecting a trail allocates nothing. A single candidate
+ * is shared, so {@code unique} allocates 0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectWayBenchmark {
+    /**
+     * Number of trails leaving the anthill.
+     */
+    @Param({"4", "64"})
+    public int degree;
+
+    /**
+     * Food pheromones of the trails: one trail lower than the others, all equal, or none at all.
+     */
+    @Param({"unique", "tied", "unexplored"})
+    public String pheromones;
+
+    private Ant ant;
+
+    @Setup
+    public void setUp() {
+        final var factory = new Factory();
+        final var anthill = factory.createClearing("Hill", 0, Capacity.INFINITE);
+        factory.setAnthill(anthill);
+        final var trails = new ArrayList<Trail>();
+        for (int i = 0; i < degree; i++) {
+            trails.add(factory.createTrail(anthill, factory.createClearing("C" + i, 1, Capacity.INFINITE)));
+        }
+        final var template = factory.createAnt("Ant", 1000, 1_000_000);
+        final var world = factory.finishWorld("SelectWayBenchmark", -1);
+
+        switch (pheromones) {
+            case "unique" -> {
+                trails.forEach(trail -> trail.updateFood(5, false));
+                trails.get(degree / 2).updateFood(1, false);
+            }
+            case "tied" -> trails.forEach(trail -> trail.updateFood(5, false));
+            case "unexplored" -> {
+            }
+            default -> throw new IllegalArgumentException(pheromones);
+        }
+
+        ant = new Ant(template, 0, world, new DiscardRecorder(), LockScheduler.INSTANCE, new SplittableRandom(1));
+        // spawn the ant in the anthill
+        ant.step();
+    }
+
+    @Benchmark
+    public int selectWay() {
+        return ant.selectWay();
+    }
+}
@@ -0,0 +1,53 @@
+package com.pseuco.np21;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brain of an ant walking a route of {@link #depth} clearings and back, as on a tree-shaped map: every clearing is
+ * checked with {@link Sequence#alreadySeen}, pushed with its trail, one of its trails is blocked, and finally all of
+ * them are popped again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SequenceBenchmark {
+    /**
+     * Number of clearings on the route.
+     */
+    @Param({"16", "1024", "10000"})
+    public int depth;
+
+    private final Sequence brain = new Sequence();
+
+    @Benchmark
+    public int route() {
+        brain.addClearing(0, 3);
+        for (int id = 1; id < depth; id++) {
+            if (!brain.alreadySeen(id)) {
+                brain.addClearing(id, 3);
+                brain.addTrail(null);
+                brain.addBlock(id - 1, 1);
+            }
+        }
+        final int length = brain.length();
+        while (brain.length() > 1) {
+            brain.removeLast();
+        }
+        brain.clear();
+        return length;
+    }
+}
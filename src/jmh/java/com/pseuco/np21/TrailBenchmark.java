@@ -0,0 +1,71 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stress test of the pheromones of one trail: all threads of the benchmark update the same trail, like ants returning
+ * over the last trail before the anthill.
+ * <p>
+ * The levels cycle through {@code 0..62} and MaP, so explorers keeping the minimum keep on competing instead of
+ * settling on the lowest level.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class TrailBenchmark {
+    /**
+     * Levels of one benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Levels {
+        private int next;
+
+        /**
+         * Get the next level, {@code -1} for MaP.
+         *
+         * @return the next level
+         */
+        int next() {
+            return (next++ & 63) - 1;
+        }
+    }
+
+    private Trail trail;
+
+    @Setup
+    public void setUp() {
+        trail = new Trail(new Clearing("A", 0, Capacity.INFINITE), new Clearing("B", 0, Capacity.INFINITE));
+    }
+
+    @Benchmark
+    public void updateFood(final Levels levels) {
+        trail.updateFood(levels.next(), false);
+    }
+
+    @Benchmark
+    public void updateFoodExplorer(final Levels levels) {
+        trail.updateFood(levels.next(), true);
+    }
+
+    @Benchmark
+    public void updateAnthill(final Levels levels) {
+        trail.updateAnthill(levels.next());
+    }
+}
@@ -0,0 +1,193 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.World;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Frozen adjacency of a finished world in compressed sparse row form.
+ * <p>
+ * The trails leaving clearing {@code i} are stored in the slots {@code offsets[i]} up to {@code offsets[i + 1]} of
+ * {@link #trails}, in the order the clearing listed them, and {@link #targets} holds the index of the clearing each of
+ * them leads to, see {@link Clearing#index()}. The adjacency is built once by {@link Factory#finishWorld} and never
+ * changes afterwards, so it is read without any synchronization.
+ */
+final class Adjacency {
+    private final int[] offsets;
+    private final int[] targets;
+    private final Trail[] trails;
+
+    private Adjacency(final int[] offsets, final int[] targets, final Trail[] trails) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.trails = trails;
+    }
+
+    /**
+     * Build the adjacency of the given clearings and hand it to them.
+     * <p>
+     * Runtime:
+     * Linear in the number of clearings and trails
+     *
+     * @param clearings of the world in the order of their index
+     * @return the adjacency
+     * @throws IllegalArgumentException if a clearing is not at its index or a trail leads to a clearing not in the list
+     */
+    static Adjacency freeze(final List<Clearing> clearings) {
+        final var offsets = new int[clearings.size() + 1];
+        for (int i = 0; i < clearings.size(); i++) {
+            offsets[i + 1] = offsets[i] + clearings.get(i).connectsTo().size();
+        }
+
+        final var adjacency = new Adjacency(offsets, new int[offsets[clearings.size()]],
+                new Trail[offsets[clearings.size()]]);
+        for (int i = 0; i < clearings.size(); i++) {
+            if (clearings.get(i).index() != i) {
+                throw new IllegalArgumentException(String.format("Clearing %s is not at its index!", clearings.get(i)));
+            }
+        }
+        for (int i = 0; i < clearings.size(); i++) {
+            int slot = offsets[i];
+            for (final var trail : clearings.get(i).connectsTo()) {
+                final int target = trail.to().index();
+                if (target < 0 || target >= clearings.size() || clearings.get(target) != trail.to()) {
+                    throw new IllegalArgumentException(String.format("Trail to unknown clearing %s!", trail.to()));
+                }
+                adjacency.targets[slot] = target;
+                adjacency.trails[slot] = trail;
+                slot++;
+            }
+        }
+        for (final var clearing : clearings) {
+            clearing.freeze(adjacency);
+        }
+        return adjacency;
+    }
+
+    /**
+     * Build an adjacency of the same shape for the trails of another world and hand it to its clearings.
+     * <p>
+     * The offsets and targets never change, so both adjacencies share them and only the trails are new, see
+     * {@link Topology#spawn}.
+     * <p>
+     * Runtime:
+     * Linear in the number of clearings
+     *
+     * @param clearings of the other world in the order of their index
+     * @param trails    of the other world in the slots of the corresponding trails of this adjacency
+     * @return the adjacency
+     */
+    Adjacency share(final Clearing[] clearings, final Trail[] trails) {
+        final var adjacency = new Adjacency(offsets, targets, trails);
+        for (final var clearing : clearings) {
+            clearing.freeze(adjacency);
+        }
+        return adjacency;
+    }
+
+    /**
+     * Get the adjacency of a finished world.
+     *
+     * @param world finished by a {@link Factory}
+     * @return the adjacency of the world
+     */
+    static Adjacency of(final World<Clearing, Trail> world) {
+        return world.anthill().adjacency();
+    }
+
+    /**
+     * Get the number of clearings, their indices are {@code 0..clearings()-1}.
+     *
+     * @return number of clearings
+     */
+    int clearings() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Get the number of trails counting both directions, their indices are {@code 0..trails()-1}, see
+     * {@link Trail#index()}.
+     *
+     * @return number of trails
+     */
+    int trails() {
+        return trails.length;
+    }
+
+    /**
+     * Get the first slot of a clearing.
+     *
+     * @param clearing index of the clearing
+     * @return slot of the first trail leaving the clearing
+     */
+    int offset(final int clearing) {
+        return offsets[clearing];
+    }
+
+    /**
+     * Get the number of trails leaving a clearing.
+     *
+     * @param clearing index of the clearing
+     * @return number of trails leaving the clearing
+     */
+    int degree(final int clearing) {
+        return offsets[clearing + 1] - offsets[clearing];
+    }
+
+    /**
+     * Get the trail in a slot.
+     *
+     * @param slot of the trail
+     * @return the trail
+     */
+    Trail trail(final int slot) {
+        return trails[slot];
+    }
+
+    /**
+     * Get the index of the clearing the trail in a slot leads to.
+     *
+     * @param slot of the trail
+     * @return index of the target clearing
+     */
+    int target(final int slot) {
+        return targets[slot];
+    }
+
+    /**
+     * Get an unmodifiable view of the trails leaving a clearing.
+     *
+     * @param clearing index of the clearing
+     * @return the trails leaving the clearing
+     */
+    List<Trail> connectsTo(final int clearing) {
+        return new Slice(offsets[clearing], offsets[clearing + 1]);
+    }
+
+    /**
+     * View of the slots of one clearing.
+     */
+    private final class Slice extends AbstractList<Trail> implements RandomAccess {
+        private final int from, to;
+
+        private Slice(final int from, final int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Trail get(final int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return trails[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
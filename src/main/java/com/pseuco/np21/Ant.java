@@ -6,11 +6,9 @@ import com.pseuco.np21.shared.Recorder;
 import com.pseuco.np21.shared.Trail.Pheromone;
 import com.pseuco.np21.shared.World;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
 
 /**
  * Representation of an ant with behavior.
@@ -19,19 +17,6 @@ import java.util.stream.Collectors;
  */
 public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
 
-    /**
-     * Helper class for trail selected to store the indices of the trails and the trails in a pair of two lists
-     */
-    private static class Pair {
-        List<Integer> first;
-        List<Trail> second;
-
-        public Pair(List<Integer> first, List<Trail> second) {
-            this.first = first;
-            this.second = second;
-        }
-    }
-
     private static class AntDiedException extends Throwable {
         private final boolean eaten;
         private final Position where;
@@ -52,6 +37,17 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
 
     private final World<Clearing, Trail> world;
     public final Recorder recorder;
+    private final Scheduler scheduler;
+
+    /**
+     * Dense index of the ant in {@code 0..n-1}, its position in {@link World#ants()}.
+     */
+    private final int index;
+
+    /**
+     * Source of all random choices of this ant.
+     */
+    private final SplittableRandom random;
 
     public Clearing position;
 
@@ -73,6 +69,12 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
      */
     private final Sequence brain;
 
+    /**
+     * Scratch buffers of the trail selection: indices of the co-lowest and of the NaP trails of the current clearing.
+     * They only grow, so selecting a trail does not allocate.
+     */
+    private int[] lowest = new int[8], unexplored = new int[8];
+
     /**
      * Constructs an ant given a basic ant, the world and a recorder.
      *
@@ -81,132 +83,428 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
      * @param recorder to log all actions against
      */
     public Ant(final com.pseuco.np21.shared.Ant ant, final World<Clearing, Trail> world, final Recorder recorder) {
+        this(ant, world.ants().indexOf(ant), world, recorder, LockScheduler.INSTANCE, new SplittableRandom());
+    }
+
+    /**
+     * Constructs an ant given a basic ant, the world, a recorder, the scheduler deciding how the ant waits and the
+     * source of its random choices.
+     *
+     * @param ant       the template ant
+     * @param index     of the template ant in the ants of the world
+     * @param world     the ant has to live in
+     * @param recorder  to log all actions against
+     * @param scheduler the ant uses whenever it may have to wait for other ants
+     * @param random    source of the random choices of the ant, used by this ant only
+     */
+    Ant(final com.pseuco.np21.shared.Ant ant, final int index, final World<Clearing, Trail> world,
+        final Recorder recorder, final Scheduler scheduler, final SplittableRandom random) {
         super(ant);
+        this.index = index;
         this.world = world;
         this.recorder = recorder;
+        this.scheduler = scheduler;
+        this.random = random;
         this.brain = new Sequence();
     }
 
+    /**
+     * Get the dense index of the ant in its world.
+     *
+     * @return index in {@code 0..n-1} where {@code n} is the number of ants of the world
+     */
+    int index() {
+        return index;
+    }
+
+    /**
+     * Outcome of a single {@link #step()}.
+     */
+    enum Step {
+        /**
+         * The ant can do its next step right away.
+         */
+        CONTINUE,
+        /**
+         * The ant is parked by its scheduler and must not be stepped until the scheduler resumes it.
+         */
+        WAIT,
+        /**
+         * The ant despawned.
+         */
+        DONE
+    }
+
+    /**
+     * Where the ant continues with its next step.
+     */
+    private enum Phase {
+        /**
+         * The ant was not spawned yet.
+         */
+        SPAWN,
+        /**
+         * The ant is on {@link #position} and decides what to do next.
+         */
+        DECIDE,
+        /**
+         * The ant selected {@link #trail} and has to take it.
+         */
+        ACQUIRE,
+        /**
+         * The ant owns {@link #trail} and steps onto it.
+         */
+        ENTER_TRAIL,
+        /**
+         * The ant is on {@link #trail} and tries to enter its destination.
+         */
+        ARRIVE,
+        /**
+         * The ant despawned.
+         */
+        DONE
+    }
+
+    /**
+     * Reason the ant takes {@link #trail}, deciding what it does after arriving.
+     */
+    private enum Move {
+        /**
+         * Searching food, kF (a) and kF (b).
+         */
+        FOOD_SEARCH,
+        /**
+         * Returning from an already seen clearing, kF (d).
+         */
+        IMMEDIATE_RETURN,
+        /**
+         * Returning from a dead end, kF (e).
+         */
+        DEAD_END_RETURN,
+        /**
+         * Adventurous ant returning with food, kR (a) S1.
+         */
+        RETURN_IN_SEQUENCE,
+        /**
+         * Non-adventurous ant returning with food, kR (a) S2.
+         */
+        RETURN_FOOD
+    }
+
+    private Phase phase = Phase.SPAWN;
+
+    /**
+     * Trail the ant currently takes, why it takes it and whether it updates the pheromones after arriving.
+     */
+    private Trail trail;
+    private Move move;
+    private boolean updatePheromones;
+
+    /**
+     * Flag indicating that the ant reached a dead end in the anthill, kF (f)
+     * Flag indicating that the simulation was cancelled
+     */
+    private boolean stranded = false;
+    private volatile boolean cancelled = false;
+
     /**
      * Primary ant behavior.
+     * <p>
+     * Steps the ant until it despawned. With a blocking scheduler, like the default one, no step ever waits.
      */
     public void run() {
+        while (step() != Step.DONE) {
+            // every step is done by step
+        }
+    }
+
+    /**
+     * Let the ant do its next step.
+     * <p>
+     * A step ends after the ant decided what to do on a clearing and possibly moved to the next one, or as soon as its
+     * scheduler parks it. Steps of one ant must not run concurrently, but may run on different threads as long as
+     * the scheduler establishes a happens-before relation between them.
+     * <p>
+     * Correctness:
+     * Every step continues exactly where the last one stopped, so a sequence of steps makes the same recorder calls as
+     * an ant running on its own thread.
+     * <p>
+     * Runtime:
+     * Linear in the number of trails of the current clearing, never blocks with a parking scheduler
+     *
+     * @return whether the ant can continue, is parked or despawned
+     */
+    Step step() {
+        try {
+            while (true) {
+                switch (phase) {
+                    case SPAWN -> {
+                        spawn();
+                        return Step.CONTINUE;
+                    }
+                    case DECIDE -> {
+                        if (termination()) {
+                            phase = Phase.DONE;
+                            return Step.DONE;
+                        }
+                        decide();
+                        if (phase == Phase.DECIDE) {
+                            return Step.CONTINUE;
+                        }
+                    }
+                    case ACQUIRE -> {
+                        // set the phase first, the scheduler may hand over the trail before acquire returns
+                        phase = Phase.ENTER_TRAIL;
+                        if (!scheduler.acquire(this, trail)) {
+                            return Step.WAIT;
+                        }
+                    }
+                    case ENTER_TRAIL -> {
+                        // Go from the current clearing to the trail
+                        trail.enter();
+                        this.recorder.enter(this, trail);
+                        this.recorder.leave(this, trail.from());
+                        phase = Phase.ARRIVE;
+                        scheduler.left(this, trail.from());
+                    }
+                    case ARRIVE -> {
+                        // Wait until on the destination clearing a space is free and hope to not get eaten
+                        switch (scheduler.arrive(this, trail.to())) {
+                            case WAITING:
+                                return Step.WAIT;
+                            case TIMED_OUT:
+                                eaten();
+                                return Step.CONTINUE;
+                            case ENTERED:
+                                arrived();
+                                if (phase == Phase.DECIDE) {
+                                    return Step.CONTINUE;
+                                }
+                        }
+                    }
+                    case DONE -> {
+                        return Step.DONE;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // External termination while waiting on the trail
+            this.recorder.leave(this, trail);
+            trail.leave();
+            scheduler.release(this, trail);
+            recorder.despawn(this, Recorder.DespawnReason.TERMINATED);
+            phase = Phase.DONE;
+            return Step.DONE;
+        }
+    }
+
+    /**
+     * Terminate the ant with its next step.
+     * <p>
+     * Used by schedulers whose ants do not run on threads of their own and thus cannot be interrupted.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Spawn the ant in the anthill.
+     */
+    private void spawn() {
         position = world.anthill();
         recorder.spawn(this);
 
         // Add anthill to memory
-        brain.addClearing(position.id(), position.connectsTo().size());
+        brain.addClearing(position.index(), position.degree());
         this.recorder.enter(this, this.position);
+        phase = Phase.DECIDE;
+    }
 
-        while (!termination()) {
-            /*
-             * State in the beginning of a loop:
-             * No termination criterion "fired", so the ant lives and can search for food
-             * Every time the execution passes this point, the ant is in a clearing that is already added to the brain
-             * Each loop-run performs exactly one traversal to a new clearing. The only exceptions are
-             *     - the ant picks up food, then the ant does not move
-             *     - the ant drops food to the anthill, then the ant does not move
-             *     - the ant traverses to a clearing it has already seen, then the ant also goes back to the
-             *         start-clearing of this loop-round and traverses twice in one round
-             */
-
-            // Check if the ant is heading home carrying some food or searched for food
-            if (!goHome) {
-                // If the ant is in the anthill, set the anthill counter to 0 and start food-search in case it didn't
-                // return with food. If the ant brings food home but hasn't dropped it yet, this is not called because
-                // the goHome-flag still is true
-                if (position.compareTo(world.anthill()) == 0) {
-                    stepsSinceHill = 0;
-
-                    // If the ant isn't searching for food yet, start the search
-                    if (!searchingFood) {
-                        searchingFood = true;
-                        this.recorder.startFoodSearch(this);
-                    }
+    /**
+     * Decide what to do on the current position.
+     * <p>
+     * State in the beginning:
+     * No termination criterion "fired", so the ant lives and can search for food
+     * Every time the execution passes this point, the ant is in a clearing that is already added to the brain
+     * Each decision either finishes on the current clearing or starts exactly one traversal to a new clearing. The
+     * only exceptions are
+     *     - the ant picks up food, then the ant does not move
+     *     - the ant drops food to the anthill, then the ant does not move
+     *     - the ant traverses to a clearing it has already seen, then the ant also goes back to the
+     *         start-clearing of this decision and traverses twice, see {@link #arrived()}
+     */
+    private void decide() {
+        // Check if the ant is heading home carrying some food or searched for food
+        if (!goHome) {
+            // If the ant is in the anthill, set the anthill counter to 0 and start food-search in case it didn't
+            // return with food. If the ant brings food home but hasn't dropped it yet, this is not called because
+            // the goHome-flag still is true
+            if (position == world.anthill()) {
+                stepsSinceHill = 0;
+
+                // If the ant isn't searching for food yet, start the search
+                if (!searchingFood) {
+                    searchingFood = true;
+                    this.recorder.startFoodSearch(this);
+                }
+            }
+            // search for food, so check if the current clearing has food and pick up some of it. Another ant may take
+            // the last food in between, then the ant searches on
+            if (!position.hasFood() || !takeFood()) {
+                // otherwise, select a trail to traverse and go take this trail to a new clearing
+                // this method follows the specifications of kF (a) and kF (b)
+                int index = selectWay();
+
+                // handle the cases kF (e) and kF (f), for which selectWay doesn't return an index but -1
+                if (index == -1) {
+                    stepsSinceHill--;
+                    handleDeadEnd();
+                    return;
                 }
-                // search for food, so check if the current clearing has food
-                if (position.hasFood()) {
-                    // If we found food, pick up some food
-                    takeFood();
-                } else {
-                    // otherwise, select a trail to traverse and go take this trail to a new clearing
-                    // this method follows the specifications of kF (a) and kF (b)
-                    int index = selectWay();
-
-                    // handle the cases kF (e) and kF (f), for which selectWay doesn't return an index but -1
-                    if (index == -1) {
-                        stepsSinceHill--;
-                        handleDeadEnd();
-                        continue;
-                    }
 
-                    // mark the trail to traverse as seen in the brain
-                    brain.addBlock(index);
-                    Trail t = position.connectsTo().get(index);
-                    stepsSinceHill++;
-                    traverse(t, !brain.alreadySeen(t.to().id()));
-
-                    // Check if the new clearing was already seen in the traversal, handle case kF (d)
-                    if (brain.alreadySeen(t.to().id())) {
-                        // head back to clearing from where we reached the new clearing
-                        this.recorder.select(this, t.reverse(), null, Recorder.SelectionReason.IMMEDIATE_RETURN);
-                        traverse(t.reverse(), false);
-
-                        // add blockade in clearing from where we returned
-                        brain.addBlock(t.to().id(), selectLastUsedTrail(t.to(), position.id()));
-
-
-                        // going back on the trace, so the distance is again reduced
-                        stepsSinceHill--;
-                    } else {
-                        // Otherwise, add the clearing to the brain
-                        Clearing target = t.to();
-                        brain.addClearing(target.id(), target.connectsTo().size());
-                        brain.addTrail(t);
-                        this.position = target;
-                    }
+                // mark the trail to traverse as seen in the brain
+                brain.addBlock(index);
+                Trail t = position.trail(index);
+                stepsSinceHill++;
+                traverse(t, Move.FOOD_SEARCH, !brain.alreadySeen(t.to().index()));
+            }
+        } else {
+            // In case the ant carries food and goes home, check if the ant has reached home
+            if (position == world.anthill()) {
+                // drop the food, unless enough food was collected meanwhile, then the ant terminates with its next step
+                if (!collect()) {
+                    return;
                 }
+                recorder.returnedFood(this);
+
+                // Clear brain and add the anthill to the brain again
+                brain.clear();
+                brain.addClearing(position.index(), position.degree());
+
+                // reset the "statistics" and some control parameters
+                stepsSinceFood = 0;
+                stepsSinceHill = 0;
+                adventurous = false;
+                goHome = false;
+                updateFoodHome = true;
+                searchingFood = false;
+
+            } else if (adventurous) {
+                // otherwise, if the and is an adventurer, go back the path the ant has taken to find food
+                // This behaviour follows kR (a) S1, i.e. find last used trail the ant has to choose now
+                //Trail t = position.connectsTo().get(selectLastUsedTrail(this.position, brain.lastId()));
+                Trail t = brain.lastTrail().reverse();
+                this.recorder.select(this, t, null, Recorder.SelectionReason.RETURN_IN_SEQUENCE);
+
+                // Traverse this path to come home
+                stepsSinceFood++;
+                traverse(t, Move.RETURN_IN_SEQUENCE, updateFoodHome);
             } else {
-                // In case the ant carries food and goes home, check if the ant has reached home
-                if (position.compareTo(world.anthill()) == 0) {
-                    // drop the food
-                    world.foodCollected();
-                    recorder.returnedFood(this);
-
-                    // Clear brain and add the anthill to the brain again
-                    brain.clear();
-                    brain.addClearing(position.id(), position.connectsTo().size());
-
-                    // reset the "statistics" and some control parameters
-                    stepsSinceFood = 0;
-                    stepsSinceHill = 0;
-                    adventurous = false;
-                    goHome = false;
-                    updateFoodHome = true;
-                    searchingFood = false;
-
-                } else if (adventurous) {
-                    // otherwise, if the and is an adventurer, go back the path the ant has taken to find food
-                    // This behaviour follows kR (a) S1, i.e. find last used trail the ant has to choose now
-                    //Trail t = position.connectsTo().get(selectLastUsedTrail(this.position, brain.lastId()));
-                    Trail t = brain.lastTrail().reverse();
-                    this.recorder.select(this, t, null, Recorder.SelectionReason.RETURN_IN_SEQUENCE);
-
-                    // Traverse this path to come home
-                    stepsSinceFood++;
-                    traverse(t, updateFoodHome);
-                    brain.removeLast();
-                    position = t.to();
+                // The and is non-adventurous and wants to go home, find a way according to the pheromones
+                Trail t = selectWayHome();
+                // traverse the selected trail
+                stepsSinceFood++;
+                traverse(t, Move.RETURN_FOOD, updateFoodHome);
+            }
+        }
+    }
+
+    /**
+     * Finish the current move after the ant entered the destination of {@link #trail}.
+     * <p>
+     * Correctness:
+     * The pheromone updates are implemented based on kF (g) and kR (b), followed by whatever the decision that
+     * started the move does after the traversal.
+     * <p>
+     * Runtime:
+     * Constant, except for the immediate return of kF (d) which looks up the trail to block
+     */
+    private void arrived() {
+        final Trail t = trail;
+
+        // the ant entered the destination clearing
+        this.recorder.enter(this, t.to());
+        this.recorder.leave(this, t);
+        t.leave();
+
+        // give back the trail
+        scheduler.release(this, t);
+        phase = Phase.DECIDE;
+
+        // and update the pheromones according to kF (g) and kR (b)
+        if (updatePheromones) {
+            if (this.goHome) {
+                t.reverse().updateFood(this.stepsSinceFood, this.adventurous);
+                this.recorder.updateFood(this, t.reverse(), t.reverse().food());
+            } else {
+                t.reverse().updateAnthill(this.stepsSinceHill);
+                this.recorder.updateAnthill(this, t.reverse(), t.reverse().anthill());
+            }
+        }
+
+        switch (move) {
+            case FOOD_SEARCH -> {
+                // Check if the new clearing was already seen in the traversal, handle case kF (d)
+                if (brain.alreadySeen(t.to().index())) {
+                    // head back to clearing from where we reached the new clearing
+                    this.recorder.select(this, t.reverse(), null, Recorder.SelectionReason.IMMEDIATE_RETURN);
+                    traverse(t.reverse(), Move.IMMEDIATE_RETURN, false);
                 } else {
-                    // The and is non-adventurous and wants to go home, find a way according to the pheromones
-                    Trail t = selectWayHome();
-                    // traverse the selected trail
-                    stepsSinceFood++;
-                    traverse(t, updateFoodHome);
-                    position = t.to();
+                    // Otherwise, add the clearing to the brain
+                    Clearing target = t.to();
+                    brain.addClearing(target.index(), target.degree());
+                    brain.addTrail(t);
+                    this.position = target;
                 }
             }
+            case IMMEDIATE_RETURN -> {
+                // add blockade in clearing from where we returned
+                brain.addBlock(t.from().index(), selectLastUsedTrail(t.from(), position.index()));
+
+                // going back on the trace, so the distance is again reduced
+                stepsSinceHill--;
+            }
+            case DEAD_END_RETURN -> {
+                // update the food pheromone of the dead end to MaP
+                t.reverse().updateFood(Pheromone.INFINITE, this.adventurous);
+                this.recorder.updateFood(this, t.reverse(), Pheromone.INFINITE);
+                this.position = t.to();
+
+                //Remove the last element from the stack because the ant returns from a dead end.
+                brain.removeLast();
+            }
+            case RETURN_IN_SEQUENCE -> {
+                brain.removeLast();
+                position = t.to();
+            }
+            case RETURN_FOOD -> position = t.to();
+        }
+    }
+
+    /**
+     * The disguise of the ant ran out on {@link #trail}.
+     */
+    private void eaten() {
+        // notify the recorder and leave the trail, the ant despawns with its next check of the termination criteria
+        this.recorder.attractAttention(this);
+        this.recorder.leave(this, trail);
+        trail.leave();
+        scheduler.release(this, trail);
+        this.eaten = true;
+        phase = Phase.DECIDE;
+    }
+
+    /**
+     * Return the carried food to the anthill.
+     *
+     * @return {@code true} if the food was returned, {@code false} if the food threshold was reached before
+     */
+    private boolean collect() {
+        if (world instanceof Colony colony) {
+            return colony.collect(index);
         }
+        world.foodCollected();
+        return true;
     }
 
     /**
@@ -225,8 +523,8 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
             // Ant was eaten and died, don't leave a position, because the ant attracted attention on a trail
             recorder.despawn(this, Recorder.DespawnReason.DISCOVERED_AND_EATEN);
             return true;
-        } else if (Thread.currentThread().isInterrupted()) {
-            // External termination
+        } else if (stranded || cancelled || Thread.currentThread().isInterrupted()) {
+            // External termination or no way out of the anthill
             terminate();
             return true;
         } else if (!world.isFoodLeft()) {
@@ -254,50 +552,86 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
      * Ant in Clearing decides which trail it wants to take
      * <p>
      * Correctness:
-     * Implementation of kF (a) and kF (b). If requirements of kF (e) are met, return -1 and indication of dead-end
+     * Implementation of kF (a) and kF (b). If requirements of kF (e) are met, return -1 and indication of dead-end.
+     * Only trails that are valid in the specification of kF (a) §3 are considered, i.e. neither MaP, nor the incoming
+     * trail, nor blocked by the brain. Among them, the co-lowest trails and the NaP trails are collected and one of
+     * each kind is sampled uniform at random on the way, see {@link #sample(int)}.
      * <p>
      * Runtime:
-     * Linear in the number of trails that are connected to the current position.
-     * This method (and its called submethods) take the locks for the pheromones ones per trail
+     * Linear in the number of trails that are connected to the current position, reads the food pheromone of each
+     * trail once and allocates nothing but the candidates handed to the recorder, see {@link #candidates}
+     * <p>
+     * Package-private for the benchmarks only.
      *
      * @return the selected trail from {@link com.pseuco.np21.shared.Clearing#connectsTo()} of the position-field
      * according to kF (a) §3 or -1 if the conditions of kF (e) are fulfilled
      * @implSpec The ant calling this method searches for food and is either adventurous or not. The positon of the ant
      * is always the position of this ant.
      */
-    private int selectWay() {
-        List<Trail> trailList = this.position.connectsTo();
+    int selectWay() {
+        final int degree = position.degree();
+        if (lowest.length < degree) {
+            lowest = new int[degree];
+            unexplored = new int[degree];
+        }
+
+        // the ant must not take the trail it came from, unless it is in the anthill
+        final boolean home = position == world.anthill();
+        final int incoming = home ? -1 : brain.lastId();
+
+        int lowestCount = 0, unexploredCount = 0;
+        int lowestPick = -1, unexploredPick = -1;
+        int minPheromone = Integer.MAX_VALUE;
+        for (int index = 0; index < degree; index++) {
+            final Trail t = position.trail(index);
+            final Pheromone p = t.food();
+            if ((!home && t.to().index() == incoming) || !brain.viable(index) || p.isInfinite()) {
+                continue;
+            }
 
-        // Only select those trails that are valid with respect to kF (a) §3
-        List<Pair> trailType = divideIntoTrailTypes(trailList);
-        List<Integer> minPheromoneTrailIndices = trailType.get(0).first;
-        List<Integer> NAPTrailIndices = trailType.get(1).first;
+            if (p.isAPheromone()) {
+                final int value = p.value();
+                if (value < minPheromone) {
+                    // a new minimum, forget the trails seen so far
+                    minPheromone = value;
+                    lowestCount = 0;
+                }
+                if (value == minPheromone) {
+                    lowest[lowestCount++] = index;
+                    if (sample(lowestCount)) {
+                        lowestPick = index;
+                    }
+                }
+            } else {
+                unexplored[unexploredCount++] = index;
+                if (sample(unexploredCount)) {
+                    unexploredPick = index;
+                }
+            }
+        }
 
-        if (minPheromoneTrailIndices.isEmpty() && NAPTrailIndices.isEmpty()) {
+        if (lowestCount == 0 && unexploredCount == 0) {
             // dead end, no viable trail from this clearing. this case is handled in the run-method and indicates by -1
             // initial condition of kF (e), i.e. only MaP or already used trails available
             return -1;
         }
 
-        // select a way to go, if there is no way with valid pheromones, default to -1
-        int selectedWayIndex = minPheromoneTrailIndices.isEmpty() ? -1 : minPheromoneTrailIndices.get(getRandomIndex(minPheromoneTrailIndices.size()));
-
         // select a selection-rule according to kF (a) §2 and §3
-        if (!NAPTrailIndices.isEmpty() && (minPheromoneTrailIndices.isEmpty() || trailList.get(selectedWayIndex).food().value() > this.impatience)) {
+        if (unexploredCount > 0 && (lowestCount == 0 || minPheromone > this.impatience)) {
             // The ant will select an NaP-trail, so set the flag adventurous flag according to kF (b) §1
             if (!adventurous) {
                 this.adventurous = true;
                 this.recorder.startExploration(this);
             }
 
-            // select an element randomly from the NAP trails
-            int index = NAPTrailIndices.get(getRandomIndex(NAPTrailIndices.size()));
-            this.recorder.select(this, trailList.get(index), trailType.get(1).second, Recorder.SelectionReason.EXPLORATION);
-            return index;
+            this.recorder.select(this, position.trail(unexploredPick), candidates(unexplored, unexploredCount),
+                    Recorder.SelectionReason.EXPLORATION);
+            return unexploredPick;
         } else {
-            // We are in case kF (a) §1 and a trail is already selected previously;
-            this.recorder.select(this, trailList.get(selectedWayIndex), trailType.get(0).second, Recorder.SelectionReason.FOOD_SEARCH);
-            return selectedWayIndex;
+            // We are in case kF (a) §1 and one of the co-lowest trails is selected
+            this.recorder.select(this, position.trail(lowestPick), candidates(lowest, lowestCount),
+                    Recorder.SelectionReason.FOOD_SEARCH);
+            return lowestPick;
         }
     }
 
@@ -319,8 +653,8 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
      */
     private void handleDeadEnd() {
         // Terminate in case I'm in the anthill case kF (f)
-        if (position.compareTo(world.anthill()) == 0) {
-            Thread.currentThread().interrupt();
+        if (position == world.anthill()) {
+            stranded = true;
             return;
         }
 
@@ -329,14 +663,8 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
         Trail t = brain.lastTrail().reverse();
         this.recorder.select(this, t, null, Recorder.SelectionReason.NO_FOOD_RETURN);
 
-        //Traverse one step back using the last used trail and update the food pheromone to MaP
-        traverse(t, false);
-        t.reverse().updateFood(Pheromone.get(-1), this.adventurous);
-        this.recorder.updateFood(this, t.reverse(), Pheromone.get(-1));
-        this.position = t.to();
-
-        //Remove the last element from the stack because the ant returns from a dead end.
-        brain.removeLast();
+        //Traverse one step back using the last used trail, the food pheromone is updated to MaP after arriving
+        traverse(t, Move.DEAD_END_RETURN, false);
     }
 
     /**
@@ -349,16 +677,14 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
      * Linear in the number of outgoing trails in c
      *
      * @param c        clearing from where the trail starts from
-     * @param targetId id of the clearing where the trail has to end in
+     * @param targetIndex index of the clearing where the trail has to end in
      * @return index of the trail referring to the list of trails in c,
      * -1 if no matching trail is found, but this case should not occur
      */
-    private int selectLastUsedTrail(Clearing c, int targetId) {
-        List<Trail> trails = c.connectsTo();
-
-        for (int i = 0; i < trails.size(); ++i) {
+    private int selectLastUsedTrail(Clearing c, int targetIndex) {
+        for (int i = 0, degree = c.degree(); i < degree; ++i) {
             //check if current trail is the incoming trail
-            if (trails.get(i).to().id() == targetId) {
+            if (c.trail(i).to().index() == targetIndex) {
                 return i;
             }
         }
@@ -366,77 +692,37 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
     }
 
     /**
-     * Get random index from a list. The integer is received uniform at random from the interval [0, bound).
+     * Reservoir sampling over a run of candidates: keep the {@code count}-th candidate with probability
+     * {@code 1/count}, so after the last one each candidate is kept uniform at random.
+     * <p>
+     * The random stream belongs to this ant, so drawing neither allocates nor synchronizes with other ants.
      *
-     * @param bound upper bound for the random number
-     * @return random integer in [0, bound)
+     * @param count number of candidates seen so far, including the current one
+     * @return {@code true} iff the current candidate replaces the kept one
      */
-    private int getRandomIndex(int bound) {
-        return new Random().nextInt(bound);
+    private boolean sample(final int count) {
+        return count == 1 || random.nextInt(count) == 0;
     }
 
     /**
-     * Divide the outgoing trails of the current clearing into three types: First, the trails with valid pheromones and
-     * second, the trails marked with NaP
-     * <p>
-     * Correctness:
-     * This method helps to {@link Ant#selectWay()} with the divided ways and only provides those trails that have a
-     * valid foodPheromone or a NaP-Pheromone. With this, it only provides trails to {@link Ant#selectWay()} that are
-     * valid in the specification of kF (a) §3
+     * Get the candidates of a selection for the recorder.
      * <p>
-     * Runtime:
-     * Linear in the trailList and gets a lock for each trail to access the food pheromone
+     * Recorders may keep the list, so it is never reused. A single candidate is the shared list of its trail, see
+     * {@link Trail#alone()}, only larger lists are allocated.
      *
-     * @param trailList : list of Trails in the current clearing
-     * @return a List with 2 elements: First : A pair of indices and their trails with pheromones (not MaP, not NaP),
-     *                                 Second: A pair of indices and NaP trails
-     */
-    private List<Pair> divideIntoTrailTypes(List<Trail> trailList) {
-        List<Integer> minPheromoneTrailIndices = new ArrayList<>(),
-                NaPTrailIndices = new ArrayList<>();
-        List<Trail> minPheromoneTrails = new ArrayList<>(),
-                NaPTrails = new ArrayList<>();
-        List<Pair> output = new ArrayList<>();
-
-        Pheromone currentPheromone;
-        Trail currentTrail;
-        int minPheromone = Integer.MAX_VALUE;
-
-        // Traverse the complete trail list and put each element in the category MaP, NaP or normal Pheromone
-
-        for (int index = 0; index < trailList.size(); index++) {
-            currentTrail = trailList.get(index);
-
-            currentPheromone = currentTrail.food();
-
-            // check if current trail is the incoming trail
-            if ((position.compareTo(world.anthill()) != 0 && currentTrail.to().id() == brain.lastId()) ||
-                    !this.brain.viable(index) || currentPheromone.isInfinite()) {
-                continue;
-            }
-
-            if (currentPheromone.isAPheromone()) {
-                int pValue = currentPheromone.value();
-                if (pValue < minPheromone) {
-                    minPheromoneTrails.clear();
-                    minPheromoneTrailIndices.clear();
-                    minPheromoneTrails.add(currentTrail);
-                    minPheromoneTrailIndices.add(index);
-                    minPheromone = pValue;
-                } else if (pValue == minPheromone) {
-                    minPheromoneTrails.add(currentTrail);
-                    minPheromoneTrailIndices.add(index);
-                }
-            } else {
-                NaPTrails.add(currentTrail);
-                NaPTrailIndices.add(index);
-            }
+     * @param indices of the candidates in the trails of the current position
+     * @param count   number of candidates
+     * @return the candidate trails in the order of the indices
+     */
+    private List<Trail> candidates(final int[] indices, final int count) {
+        if (count == 1) {
+            return position.trail(indices[0]).alone();
         }
-
-        // put all lists in a list
-        output.add(new Pair(minPheromoneTrailIndices, minPheromoneTrails));
-        output.add(new Pair(NaPTrailIndices, NaPTrails));
-        return output;
+        final var trails = new Trail[count];
+        for (int i = 0; i < count; i++) {
+            trails[i] = position.trail(indices[i]);
+        }
+        return Arrays.asList(trails);
     }
 
     /**
@@ -446,110 +732,71 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
      * Similar to selectWay and getLowestPheromones correct and follows kR (a) S2 in the specification
      * <p>
      * Runtime:
-     * Linear in the number of trails and selects the anthill pheromone once per connected trail
+     * Linear in the number of trails, reads the anthill pheromone once per connected trail and allocates nothing but
+     * the candidates handed to the recorder
      *
      * @return Trail-instance to take on the way home
      * @implSpec The ant calling this are non-adventurous ants carrying food home and want to know the next trail to
      * come home following the lowest anthill pheromones
      */
     private Trail selectWayHome() {
-        List<Trail> candidates = new ArrayList<>();
-        int minPheromone = Integer.MAX_VALUE;
-
-        for (Trail t : this.position.connectsTo()) {
-            // If the anthill Pheromone is invalid, don't consider this way
-            Pheromone trailAnthillPheromone = t.anthill();
-            if (!trailAnthillPheromone.isAPheromone()) {
-                continue;
-            }
-
-            int pValue = trailAnthillPheromone.value();
+        final int degree = position.degree();
+        if (lowest.length < degree) {
+            lowest = new int[degree];
+            unexplored = new int[degree];
+        }
 
-            // Check if the pheromone is not NaP
-            if (pValue < 0) {
+        int count = 0, pick = -1;
+        int minPheromone = Integer.MAX_VALUE;
+        for (int i = 0; i < degree; i++) {
+            // If the anthill Pheromone is invalid or NaP, don't consider this way
+            final Pheromone p = position.trail(i).anthill();
+            if (!p.isAPheromone() || p.value() < 0) {
                 continue;
             }
 
             // Save as co-lowest pheromone or replace the previously lowest
-            if (pValue < minPheromone) {
-                candidates.clear();
-                candidates.add(t);
-                minPheromone = pValue;
-            } else if (pValue == minPheromone) {
-                candidates.add(t);
+            final int value = p.value();
+            if (value < minPheromone) {
+                minPheromone = value;
+                count = 0;
+            }
+            if (value == minPheromone) {
+                lowest[count++] = i;
+                if (sample(count)) {
+                    pick = i;
+                }
             }
         }
 
-        // select one of the lowest-pheromone-trails uniform at random
-        Trail t = candidates.get(getRandomIndex(candidates.size()));
-        this.recorder.select(this, t, candidates, Recorder.SelectionReason.RETURN_FOOD);
+        // one of the lowest-pheromone-trails was sampled uniform at random
+        final Trail t = position.trail(pick);
+        this.recorder.select(this, t, candidates(lowest, count), Recorder.SelectionReason.RETURN_FOOD);
         return t;
     }
 
     /**
-     * Ant traverses a trail to arrive in new Clearing
+     * Ant starts to traverse a trail to arrive in new Clearing
      * <p>
      * Correctness:
-     * If the locking is correct. The pheromone updates are implemented internally and based on kF (g) and kR (b).
+     * The traversal itself is done by the next steps: taking the trail, stepping onto it, waiting for space on the
+     * destination and finally {@link #arrived()}.
      * <p>
      * Runtime:
-     * Constant, but we take the locks of the current trail and both connected clearings. We also wait on the trail for
-     * free space on the target clearing which may take a while
+     * Constant
      *
      * @param t                Trail to go in this step
+     * @param move             reason to take the trail, deciding what happens after arriving
      * @param updatePheromones flag indicating that this method is called after circle detection and the ant has no
      *                         directly returns to its last clearing without updating any pheromones (case d)
      * @implSpec The ant just traverses the provided trail. There is no information whether the ant is adventurous or
-     * <p>
-     * https://docs.oracle.com/javase/7/docs/api/java/util/concurrent/locks/Condition.html#await(long,%20java.util.concurrent.TimeUnit)
      * not
      */
-    private void traverse(Trail t, boolean updatePheromones) {
-        Clearing destination = t.to();
-        // Ant try to get the trail lock
-        t.traverse_Lock.lock();
-        try {
-            // Go from the current clearing to the trail
-            t.enter();
-            this.recorder.enter(this, t);
-            this.recorder.leave(this, t.from());
-            t.from().leave();
-
-            // Wait until on the destination clearing a space is free and hope to not get eaten
-            destination.lock.lock();
-            while (!destination.isSpaceLeft()) {
-                if (!destination.spaceLeft.await(this.disguise(), TimeUnit.MILLISECONDS)) {
-                    // if the ant got eaten, notify the recorder and leave the trail
-                    this.recorder.attractAttention(this);
-                    this.recorder.leave(this, t);
-                    this.eaten = true;
-                    return;
-                }
-            }
-
-            // enter the destination clearing
-            destination.enter();
-            this.recorder.enter(this, t.to());
-            this.recorder.leave(this, t);
-            t.leave();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        } finally {
-            // finally, give back all locks
-            destination.lock.unlock();
-            t.traverse_Lock.unlock();
-        }
-
-        // and update the pheromones according to kF (g) and kR (b)
-        if (updatePheromones) {
-            if (this.goHome) {
-                t.reverse().updateFood(Pheromone.get(this.stepsSinceFood), this.adventurous);
-                this.recorder.updateFood(this, t.reverse(), t.reverse().food());
-            } else {
-                t.reverse().updateAnthill(Pheromone.get(this.stepsSinceHill));
-                this.recorder.updateAnthill(this, t.reverse(), t.reverse().anthill());
-            }
-        }
+    private void traverse(Trail t, Move move, boolean updatePheromones) {
+        this.trail = t;
+        this.move = move;
+        this.updatePheromones = updatePheromones;
+        this.phase = Phase.ACQUIRE;
     }
 
     /**
@@ -559,11 +806,17 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
      * Implementation of kF (h)
      * <p>
      * Runtime:
-     * Constant, takes one lock of the clearing
+     * Constant, one compare-and-set on the food of the clearing
+     *
+     * @return {@code true} iff the ant picked up food, {@code false} if another ant took the last food before
      */
-    private void takeFood() {
-        // get the food and check in the same round if food is left in the clearing. Locking is done in getAndCheckFood
-        updateFoodHome = position.getAndCheckFood();
+    private boolean takeFood() {
+        // get the food and check in the same round if food is left in the clearing
+        final int left = position.tryPickupFood();
+        if (left < 0) {
+            return false;
+        }
+        updateFoodHome = left > 0;
 
         // Internally update some statistics to go home now and eventually don't update the pheromone if it's the last
         // food that the ant returns
@@ -572,5 +825,6 @@ public class Ant extends com.pseuco.np21.shared.Ant implements Runnable {
         // Notify the recorder about the new heading of the ant
         this.recorder.pickupFood(this, position);
         this.recorder.startFoodReturn(this);
+        return true;
     }
 }
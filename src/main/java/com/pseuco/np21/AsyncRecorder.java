@@ -0,0 +1,554 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.Clearing;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.Trail;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Recorder writing the same text as {@link com.pseuco.np21.shared.PrintRecorder} without ever formatting on the
+ * thread of an ant.
+ * <p>
+ * Every call claims a slot of a preallocated ring buffer, stores the references of the event in it and publishes it.
+ * A single consumer thread takes the events in the order of their slots, formats them and writes the text in large
+ * chunks to a channel. Ants only contend on the counter handing out the slots.
+ * <p>
+ * If the consumer falls behind and the ring is full, the {@link Backpressure} decides what happens to new events.
+ * {@link #start()} starts the consumer and {@link #stop()} waits until every event before it has been written, so the
+ * output is bracketed exactly like the output of the print recorder.
+ * <p>
+ * Candidate lists passed to {@link #select} are formatted later on and must not be changed afterwards.
+ */
+public final class AsyncRecorder implements Recorder {
+    /**
+     * What happens to an event if the ring buffer is full.
+     */
+    public enum Backpressure {
+        /**
+         * The ant waits until the consumer freed a slot.
+         */
+        BLOCK,
+        /**
+         * The event is dropped, see {@link #dropped()}. {@link #start()} and {@link #stop()} are never dropped.
+         */
+        DROP,
+        /**
+         * The event goes to an unbounded overflow queue, which is written after the ring in order.
+         */
+        SPILL;
+
+        /**
+         * Get the back-pressure for a command line value.
+         *
+         * @param value either {@code block}, {@code drop} or {@code spill}
+         * @return matching back-pressure
+         * @throws IllegalArgumentException if there is no such back-pressure
+         */
+        public static Backpressure parse(final String value) {
+            return switch (value) {
+                case "block" -> BLOCK;
+                case "drop" -> DROP;
+                case "spill" -> SPILL;
+                default -> throw new IllegalArgumentException(String.format(
+                        "Unknown back-pressure \"%s\"! Expected \"block\", \"drop\" or \"spill\".", value));
+            };
+        }
+    }
+
+    /**
+     * The callbacks of {@link Recorder}.
+     */
+    private enum Kind {
+        START, STOP, SPAWN, DESPAWN, ENTER_CLEARING, LEAVE_CLEARING, ENTER_TRAIL, LEAVE_TRAIL, SELECT,
+        START_FOOD_SEARCH, START_EXPLORATION, START_FOOD_RETURN, RETURNED_FOOD, PICKUP_FOOD, UPDATE_FOOD,
+        UPDATE_ANTHILL, ATTRACT_ATTENTION
+    }
+
+    /**
+     * An event that did not fit into the ring, see {@link Backpressure#SPILL}.
+     */
+    private record Spilled(Kind kind, Ant ant, Object target, Object extra, Enum<?> reason) {
+    }
+
+    /**
+     * Default number of slots of the ring.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Number of characters formatted before they are written.
+     */
+    private static final int CHUNK = 1 << 15;
+
+    private final WritableByteChannel channel;
+    private final Backpressure backpressure;
+
+    /**
+     * The slots of the ring: one array per field of an event, so the ring does not allocate per event.
+     */
+    private final int mask, shift;
+    private final Kind[] kinds;
+    private final Ant[] ants;
+    private final Object[] targets, extras;
+    private final Enum<?>[] reasons;
+    /**
+     * Lap of the sequence last published in each slot, {@code -1} for none.
+     */
+    private final AtomicIntegerArray published;
+
+    /**
+     * Next sequence to claim by producers and next sequence to consume by the consumer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final Queue<Spilled> spill = new ConcurrentLinkedQueue<>();
+    private final LongAdder dropped = new LongAdder();
+
+    private final StringBuilder text = new StringBuilder(CHUNK + 1024);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK * 2);
+    private final CharsetEncoder encoder;
+    private final String newLine = System.lineSeparator();
+
+    private Thread consumer;
+    private volatile IOException failure;
+
+    /**
+     * Constructs a recorder writing to {@code System.out}, blocking if the consumer falls behind.
+     */
+    public AsyncRecorder() {
+        this(Backpressure.BLOCK);
+    }
+
+    /**
+     * Constructs a recorder writing to {@code System.out} in the default charset like {@code System.out} does.
+     *
+     * @param backpressure what happens to events if the ring buffer is full
+     */
+    public AsyncRecorder(final Backpressure backpressure) {
+        this(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), DEFAULT_CAPACITY, backpressure,
+                Charset.defaultCharset());
+    }
+
+    /**
+     * Constructs a recorder writing UTF-8.
+     *
+     * @param channel      to write the text to, it is not closed by the recorder
+     * @param capacity     number of events the ring buffer holds, a power of two
+     * @param backpressure what happens to events if the ring buffer is full
+     * @throws IllegalArgumentException if {@code capacity} is not a positive power of two
+     */
+    public AsyncRecorder(final WritableByteChannel channel, final int capacity, final Backpressure backpressure) {
+        this(channel, capacity, backpressure, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Constructs a recorder.
+     * <p>
+     * Characters the charset cannot encode, like the infinite pheromone in ASCII, are replaced like a
+     * {@link java.io.PrintStream} does.
+     *
+     * @param channel      to write the text to, it is not closed by the recorder
+     * @param capacity     number of events the ring buffer holds, a power of two
+     * @param backpressure what happens to events if the ring buffer is full
+     * @param charset      to encode the text with
+     * @throws IllegalArgumentException if {@code capacity} is not a positive power of two
+     */
+    public AsyncRecorder(final WritableByteChannel channel, final int capacity, final Backpressure backpressure,
+                         final Charset charset) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("The capacity must be a positive power of two!");
+        }
+
+        this.channel = channel;
+        this.backpressure = backpressure;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.kinds = new Kind[capacity];
+        this.ants = new Ant[capacity];
+        this.targets = new Object[capacity];
+        this.extras = new Object[capacity];
+        this.reasons = new Enum<?>[capacity];
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Get the number of events dropped so far, see {@link Backpressure#DROP}.
+     *
+     * @return number of dropped events
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    private int lap(final long sequence) {
+        return (int) (sequence >>> shift);
+    }
+
+    /**
+     * Put an event into the ring, or handle it according to the back-pressure if the ring is full.
+     *
+     * @param mandatory {@code true} if the event must not be dropped
+     */
+    private void publish(final Kind kind, final Ant ant, final Object target, final Object extra,
+                         final Enum<?> reason, final boolean mandatory) {
+        final long sequence;
+        switch (backpressure) {
+            case BLOCK -> sequence = claim();
+            case DROP -> {
+                if (mandatory) {
+                    sequence = claim();
+                } else {
+                    sequence = tryClaim();
+                    if (sequence < 0) {
+                        dropped.increment();
+                        return;
+                    }
+                }
+            }
+            default -> {
+                // keep the order: once events spill, all later ones do until the consumer caught up
+                sequence = spill.isEmpty() ? tryClaim() : -1;
+                if (sequence < 0) {
+                    spill.add(new Spilled(kind, ant, target, extra, reason));
+                    return;
+                }
+            }
+        }
+
+        final int slot = (int) (sequence & mask);
+        kinds[slot] = kind;
+        ants[slot] = ant;
+        targets[slot] = target;
+        extras[slot] = extra;
+        reasons[slot] = reason;
+        published.set(slot, lap(sequence));
+    }
+
+    /**
+     * Claim the next sequence, waiting for the consumer to free its slot.
+     */
+    private long claim() {
+        final long sequence = tail.getAndIncrement();
+        int idle = 0;
+        while (sequence - head > mask) {
+            idle = backOff(idle);
+        }
+        return sequence;
+    }
+
+    /**
+     * Claim the next sequence if its slot is free.
+     *
+     * @return claimed sequence or {@code -1} if the ring is full
+     */
+    private long tryClaim() {
+        while (true) {
+            final long sequence = tail.get();
+            if (sequence - head > mask) {
+                return -1;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    private static int backOff(final int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+        }
+        return idle + 1;
+    }
+
+    /**
+     * Take, format and write events until the stop event.
+     */
+    private void consume() {
+        long next = head;
+        int idle = 0;
+        while (true) {
+            final int slot = (int) (next & mask);
+            if (published.get(slot) == lap(next)) {
+                final var kind = kinds[slot];
+                final var ant = ants[slot];
+                final var target = targets[slot];
+                final var extra = extras[slot];
+                final var reason = reasons[slot];
+                ants[slot] = null;
+                targets[slot] = null;
+                extras[slot] = null;
+                reasons[slot] = null;
+                head = ++next;
+
+                if (format(kind, ant, target, extra, reason)) {
+                    return;
+                }
+                idle = 0;
+                continue;
+            }
+
+            // spilled events come after everything claimed in the ring before
+            if (!spill.isEmpty() && tail.get() == next) {
+                final var event = spill.poll();
+                if (format(event.kind(), event.ant(), event.target(), event.extra(), event.reason())) {
+                    return;
+                }
+                idle = 0;
+                continue;
+            }
+
+            if (text.length() > 0) {
+                write();
+            }
+            idle = backOff(idle);
+        }
+    }
+
+    /**
+     * Format an event like the print recorder.
+     *
+     * @return {@code true} iff this was the stop event and everything was written
+     */
+    private boolean format(final Kind kind, final Ant ant, final Object target, final Object extra,
+                           final Enum<?> reason) {
+        switch (kind) {
+            case START -> text.append("Simulation started.").append(newLine);
+            case STOP -> {
+                text.append("Simulation stopped.").append(newLine);
+                write();
+                return true;
+            }
+            case SPAWN -> name(ant).append(" spawned. ").append(ant).append(newLine);
+            case DESPAWN -> name(ant).append(" despawned since ")
+                    .append(toString((DespawnReason) reason)).append('.').append(newLine);
+            case ENTER_CLEARING, ENTER_TRAIL -> name(ant).append(" enters ").append(target).append('.').append(newLine);
+            case LEAVE_CLEARING, LEAVE_TRAIL -> name(ant).append(" leaves ").append(target).append('.').append(newLine);
+            case SELECT -> {
+                name(ant).append(" selects ").append(target).append(" from the following candidates").append(newLine);
+                if (extra != null) {
+                    for (final Object candidate : (List<?>) extra) {
+                        text.append(candidate).append(newLine);
+                    }
+                }
+                text.append("because ").append(toString((SelectionReason) reason)).append('.').append(newLine);
+            }
+            case START_FOOD_SEARCH -> name(ant).append(" starts food search.").append(newLine);
+            case START_EXPLORATION -> name(ant).append(" starts exploration.").append(newLine);
+            case START_FOOD_RETURN -> name(ant).append(" starts to return food.").append(newLine);
+            case RETURNED_FOOD -> name(ant).append(" returned food.").append(newLine);
+            case PICKUP_FOOD -> name(ant).append(" picks up food at ").append(target).append('.').append(newLine);
+            case UPDATE_FOOD -> name(ant).append(" updates food pheromone level at ").append(target)
+                    .append(" with ").append(extra).append('.').append(newLine);
+            case UPDATE_ANTHILL -> name(ant).append(" updates anthill pheromone level at ").append(target)
+                    .append(" with ").append(extra).append('.').append(newLine);
+            case ATTRACT_ATTENTION -> name(ant).append(" attracts attention.").append(newLine);
+        }
+
+        if (text.length() >= CHUNK) {
+            write();
+        }
+        return false;
+    }
+
+    private StringBuilder name(final Ant ant) {
+        return text.append("Ant \"").append(ant.name()).append('"');
+    }
+
+    private static String toString(final DespawnReason reason) {
+        return switch (reason) {
+            case ENOUGH_FOOD_COLLECTED -> "enough food was collected";
+            case DISCOVERED_AND_EATEN -> "it was discovered and eaten";
+            case TERMINATED -> "it was terminated externally";
+        };
+    }
+
+    private static String toString(final SelectionReason reason) {
+        return switch (reason) {
+            case FOOD_SEARCH -> "it searches food";
+            case EXPLORATION -> "it is exploring";
+            case IMMEDIATE_RETURN -> "it returns immediately";
+            case NO_FOOD_RETURN -> "it found no food and returns";
+            case RETURN_FOOD -> "it returns food";
+            case RETURN_IN_SEQUENCE -> "it returns the path it took to came here";
+        };
+    }
+
+    /**
+     * Encode and write the formatted text. After the first failure, the text is discarded.
+     */
+    private void write() {
+        if (failure == null) {
+            try {
+                final var chars = CharBuffer.wrap(text);
+                CoderResult result;
+                do {
+                    result = encoder.encode(chars, bytes, true);
+                    bytes.flip();
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    bytes.clear();
+                } while (result.isOverflow());
+                encoder.reset();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        text.setLength(0);
+    }
+
+    /**
+     * Start the consumer and record the start of the simulation.
+     *
+     * @throws IllegalStateException if the recorder was started before
+     */
+    @Override
+    public synchronized void start() {
+        if (consumer != null) {
+            throw new IllegalStateException("The recorder was started before!");
+        }
+        consumer = new Thread(this::consume, "async-recorder");
+        consumer.setDaemon(true);
+        consumer.start();
+        publish(Kind.START, null, null, null, null, true);
+    }
+
+    /**
+     * Record the end of the simulation and wait until all events are written.
+     *
+     * @throws IllegalStateException if the recorder was not started
+     * @throws UncheckedIOException  if the text could not be written
+     */
+    @Override
+    public synchronized void stop() {
+        if (consumer == null) {
+            throw new IllegalStateException("The recorder was not started!");
+        }
+        publish(Kind.STOP, null, null, null, null, true);
+
+        boolean interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (failure != null) {
+            throw new UncheckedIOException("Could not write the recording!", failure);
+        }
+    }
+
+    @Override
+    public void spawn(final Ant ant) {
+        publish(Kind.SPAWN, ant, null, null, null, false);
+    }
+
+    @Override
+    public void despawn(final Ant ant, final DespawnReason reason) {
+        publish(Kind.DESPAWN, ant, null, null, reason, false);
+    }
+
+    @Override
+    public void enter(final Ant ant, final Clearing<?, ?> clearing) {
+        publish(Kind.ENTER_CLEARING, ant, clearing, null, null, false);
+    }
+
+    @Override
+    public void leave(final Ant ant, final Clearing<?, ?> clearing) {
+        publish(Kind.LEAVE_CLEARING, ant, clearing, null, null, false);
+    }
+
+    @Override
+    public void enter(final Ant ant, final Trail<?, ?> trail) {
+        publish(Kind.ENTER_TRAIL, ant, trail, null, null, false);
+    }
+
+    @Override
+    public void leave(final Ant ant, final Trail<?, ?> trail) {
+        publish(Kind.LEAVE_TRAIL, ant, trail, null, null, false);
+    }
+
+    @Override
+    public <T extends Trail<?, ?>> void select(final Ant ant, final T trail, final List<T> candidates,
+                                               final SelectionReason reason) {
+        publish(Kind.SELECT, ant, trail, candidates, reason, false);
+    }
+
+    @Override
+    public void startFoodSearch(final Ant ant) {
+        publish(Kind.START_FOOD_SEARCH, ant, null, null, null, false);
+    }
+
+    @Override
+    public void startExploration(final Ant ant) {
+        publish(Kind.START_EXPLORATION, ant, null, null, null, false);
+    }
+
+    @Override
+    public void startFoodReturn(final Ant ant) {
+        publish(Kind.START_FOOD_RETURN, ant, null, null, null, false);
+    }
+
+    @Override
+    public void returnedFood(final Ant ant) {
+        publish(Kind.RETURNED_FOOD, ant, null, null, null, false);
+    }
+
+    @Override
+    public void pickupFood(final Ant ant, final Clearing<?, ?> clearing) {
+        publish(Kind.PICKUP_FOOD, ant, clearing, null, null, false);
+    }
+
+    @Override
+    public void updateFood(final Ant ant, final Trail<?, ?> trail, final Trail.Pheromone value) {
+        publish(Kind.UPDATE_FOOD, ant, trail, value, null, false);
+    }
+
+    @Override
+    public void updateAnthill(final Ant ant, final Trail<?, ?> trail, final Trail.Pheromone value) {
+        publish(Kind.UPDATE_ANTHILL, ant, trail, value, null, false);
+    }
+
+    @Override
+    public void attractAttention(final Ant ant) {
+        publish(Kind.ATTRACT_ATTENTION, ant, null, null, null, false);
+    }
+}
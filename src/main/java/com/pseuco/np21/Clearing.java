@@ -1,7 +1,12 @@
 package com.pseuco.np21;
 
-import java.util.concurrent.locks.Condition;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -9,14 +14,113 @@ import java.util.concurrent.locks.ReentrantLock;
  * <p>
  * Manages ant and food levels on it.
  * <p>
+ * Ant and food levels are changed by compare-and-set without taking {@link #lock}, so busy clearings like the
+ * anthill do not serialize the ants passing through. The lock is only needed by ants waiting for space on a full
+ * clearing, see {@link #enterOrWait}. Clearings with infinite capacity do not count their ants at all and have no lock.
+ * <p>
+ * Once the world is finished, the trails of all clearings live in one {@link Adjacency} and {@link #degree()} and
+ * {@link #trail(int)} walk them without allocating. Trails cannot be added to a finished world anymore.
+ * <p>
+ * Waiting ants queue up in the order they arrived. A leaving ant hands its space directly to the first of them, and
+ * the disguise of every waiting ant expires on {@link TimerWheel#SHARED}, so no ant ever wakes up without a result.
+ * <p>
+ * The first change of its food or ant level in a run logs the clearing with its {@link Colony}, so
+ * {@link Colony#reset()} only restores the clearings a run touched.
+ * <p>
  * You may change the code however you see fit.
  */
 public class Clearing extends com.pseuco.np21.shared.Clearing<Clearing, Trail> {
+    private static final VarHandle ANTS, FOOD, DIRTY;
+
+    static {
+        try {
+            final var lookup = MethodHandles.lookup();
+            ANTS = lookup.findVarHandle(Clearing.class, "ants", int.class);
+            FOOD = lookup.findVarHandle(Clearing.class, "food", int.class);
+            DIRTY = lookup.findVarHandle(Clearing.class, "dirty", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * An ant waiting in the queue of a full clearing.
+     * <p>
+     * Exactly one of the callbacks is called for every wait, under the lock of the clearing. They must not block.
+     */
+    abstract static class Waiter {
+        private TimerWheel.Timeout timeout;
+
+        /**
+         * Real time the ant queued at, only taken while the colony is profiled, see {@link Colony#contention()}.
+         */
+        private long queued;
+
+        /**
+         * The ant got the space of a leaving ant and is on the clearing now.
+         */
+        abstract void admitted();
+
+        /**
+         * The disguise of the ant ran out before it got space.
+         */
+        abstract void timedOut();
+    }
+
+    /**
+     * Waiter parking the calling thread.
+     */
+    private static final class ThreadWaiter extends Waiter {
+        private static final int WAITING = 0, ADMITTED = 1, TIMED_OUT = 2;
+
+        private final Thread thread = Thread.currentThread();
+        private volatile int state = WAITING;
+
+        @Override
+        void admitted() {
+            state = ADMITTED;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        void timedOut() {
+            state = TIMED_OUT;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Only accessed through {@link #ANTS} and {@link #FOOD}.
+     */
     private int ants;
     private int food;
 
     public Lock lock;
-    Condition spaceLeft;
+
+    /**
+     * Position on the map, only kept to write it to a {@link WorldImage}.
+     */
+    private final int x, y;
+
+    /**
+     * Ants waiting for space and their number, only changed while holding {@link #lock}. Most clearings never fill
+     * up, so the queue is only created for the first waiting ant.
+     */
+    private ArrayDeque<Waiter> waiters;
+    private volatile int waiting;
+
+    /**
+     * Trails of the finished world, {@code null} before, and the index of this clearing in its world.
+     */
+    private Adjacency adjacency;
+    private int index = -1;
+
+    /**
+     * World logging the changes of this clearing, {@code null} for clearings not in a {@link Colony}, and whether
+     * this clearing changed since the last reset, which is only set through {@link #DIRTY}.
+     */
+    private Colony colony;
+    private boolean dirty;
 
     /**
      * Constructs a new clearing.
@@ -26,11 +130,179 @@ public class Clearing extends com.pseuco.np21.shared.Clearing<Clearing, Trail> {
      * @param capacity the clearing has access to
      */
     public Clearing(final String name, final int food, final Capacity capacity) {
+        this(name, food, capacity, 0, 0);
+    }
+
+    /**
+     * Constructs a new clearing at the given position of the map.
+     *
+     * @param name     of the clearing
+     * @param food     the clearing starts with
+     * @param capacity the clearing has access to
+     * @param x        coordinate of the clearing on the map
+     * @param y        coordinate of the clearing on the map
+     */
+    public Clearing(final String name, final int food, final Capacity capacity, final int x, final int y) {
         super(name, food, capacity);
         this.food = initialFood;
+        this.x = x;
+        this.y = y;
+
+        // clearings without a capacity never queue ants, so their lock would never be taken
+        this.lock = capacity.isInfinite() ? null : new ReentrantLock();
+    }
+
+    /**
+     * Get the capacity of this clearing.
+     *
+     * @return capacity of this clearing
+     */
+    Capacity capacity() {
+        return capacity;
+    }
+
+    /**
+     * Get the x coordinate of this clearing on the map.
+     *
+     * @return x coordinate
+     */
+    int x() {
+        return x;
+    }
+
+    /**
+     * Get the y coordinate of this clearing on the map.
+     *
+     * @return y coordinate
+     */
+    int y() {
+        return y;
+    }
+
+    /**
+     * Get the dense index of this clearing in its world.
+     *
+     * @return index in {@code 0..n-1} or {@code -1} if this clearing was not created by a {@link Factory}
+     */
+    int index() {
+        return index;
+    }
+
+    /**
+     * Set the dense index, done by the {@link Factory} creating this clearing.
+     *
+     * @param index in {@code 0..n-1}
+     */
+    void index(final int index) {
+        this.index = index;
+    }
+
+    /**
+     * Hand the trails over to the adjacency of the finished world, see {@link Adjacency#freeze}.
+     * <p>
+     * The own list of trails is only trimmed, not cleared, so views of it taken before still list the same trails.
+     */
+    void freeze(final Adjacency adjacency) {
+        this.adjacency = adjacency;
+        if (trails instanceof ArrayList<Trail> list) {
+            list.trimToSize();
+        }
+    }
+
+    /**
+     * Log the changes of this clearing with the world it belongs to, done once by the {@link Colony}.
+     */
+    void track(final Colony colony) {
+        this.colony = colony;
+    }
+
+    /**
+     * Get the world logging the changes of this clearing.
+     *
+     * @return the world or {@code null} if this clearing does not belong to a {@link Colony}
+     */
+    Colony colony() {
+        return colony;
+    }
 
-        this.lock = new ReentrantLock();
-        this.spaceLeft = lock.newCondition();
+    /**
+     * Log this clearing with its world on the first change since the last reset.
+     * <p>
+     * Runtime:
+     * Constant, a plain read once the clearing is logged
+     */
+    private void touch() {
+        if (!dirty && colony != null && DIRTY.compareAndSet(this, false, true)) {
+            colony.modified(this);
+        }
+    }
+
+    /**
+     * Restore the initial food and ant level, done by {@link Colony#reset()} while no simulation runs.
+     */
+    void reset() {
+        FOOD.setVolatile(this, initialFood);
+        ANTS.setVolatile(this, 0);
+        waiters = null;
+        waiting = 0;
+        DIRTY.setVolatile(this, false);
+    }
+
+    /**
+     * Get the adjacency of the finished world.
+     *
+     * @return the adjacency or {@code null} if the world is not finished yet
+     */
+    Adjacency adjacency() {
+        return adjacency;
+    }
+
+    /**
+     * Get the number of trails leaving this clearing.
+     *
+     * @return number of trails leaving this clearing
+     */
+    int degree() {
+        return adjacency == null ? trails.size() : adjacency.degree(index);
+    }
+
+    /**
+     * Get a trail leaving this clearing, in the order of {@link #connectsTo()}.
+     *
+     * @param i number of the trail in {@code 0..degree()-1}
+     * @return the trail
+     */
+    Trail trail(final int i) {
+        if (adjacency == null) {
+            return trails.get(i);
+        }
+        if (i < 0 || i >= adjacency.degree(index)) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        return adjacency.trail(adjacency.offset(index) + i);
+    }
+
+    @Override
+    public List<Trail> connectsTo() {
+        return adjacency == null ? super.connectsTo() : adjacency.connectsTo(index);
+    }
+
+    @Override
+    public void addTrail(final Trail trail) {
+        if (adjacency != null || trail.to().adjacency != null) {
+            throw new IllegalStateException("Cannot add trails to a finished world!");
+        }
+        super.addTrail(trail);
+    }
+
+    @Override
+    public String toString() {
+        return "Clearing{" +
+                "name='" + name + '\'' +
+                ", trails=" + degree() +
+                ", initialFood=" + initialFood +
+                ", capacity=" + capacity +
+                '}';
     }
 
     /**
@@ -39,88 +311,288 @@ public class Clearing extends com.pseuco.np21.shared.Clearing<Clearing, Trail> {
      * @return {@code true} iff there is space left
      */
     public boolean isSpaceLeft() {
-        lock.lock();
-        try {
-            return capacity.isInfinite() || ants < capacity.value();
-        } finally {
-            lock.unlock();
-        }
+        return capacity.isInfinite() || (int) ANTS.getVolatile(this) < capacity.value();
     }
 
     /**
      * Call this when an ant enters this clearing.
+     * <p>
+     * The caller has to make sure that there is space left, use {@link #tryEnter()} to check and enter at once.
      */
     public void enter() {
-        lock.lock();
-        try {
-            ants++;
-        } finally {
-            lock.unlock();
+        if (!capacity.isInfinite()) {
+            touch();
+            ANTS.getAndAdd(this, 1);
         }
     }
 
+    /**
+     * Enter this clearing if there is space left.
+     * <p>
+     * Correctness:
+     * The space check and entering are one compare-and-set, so no other ant can take the free space in between.
+     * <p>
+     * Runtime:
+     * Constant, retries only while other ants enter or leave concurrently
+     *
+     * @return {@code true} iff the ant entered
+     */
+    boolean tryEnter() {
+        if (capacity.isInfinite()) {
+            return true;
+        }
+
+        touch();
+        final int limit = capacity.value();
+        int current = (int) ANTS.getVolatile(this);
+        while (current < limit) {
+            final int witness = (int) ANTS.compareAndExchange(this, current, current + 1);
+            if (witness == current) {
+                return true;
+            }
+            current = witness;
+        }
+        return false;
+    }
+
     /**
      * Call this when an ant leaves this clearing.
+     * <p>
+     * If ants wait for space, the space of the leaving ant is handed to the first of them directly, so no other ant can
+     * take it in between. Only then the lock is taken.
      */
     public void leave() {
-        lock.lock();
-        try {
-            ants--;
+        if (capacity.isInfinite()) {
+            return;
+        }
 
-            // Signal the waiting ants that a place is free on the current clearing
-            spaceLeft.signal();
+        if (waiting == 0) {
+            ANTS.getAndAdd(this, -1);
+            if (waiting == 0) {
+                return;
+            }
+        } else {
+            acquire();
+            try {
+                final var next = waiters == null ? null : waiters.poll();
+                if (next != null) {
+                    admit(next);
+                    return;
+                }
+                ANTS.getAndAdd(this, -1);
+            } finally {
+                lock.unlock();
+            }
+        }
 
-        } catch (Exception ire) {
-            ire.printStackTrace();
+        // an ant started to wait while the space was freed, it may have missed it
+        acquire();
+        try {
+            while (waiters != null && !waiters.isEmpty() && tryEnter()) {
+                admit(waiters.poll());
+            }
         } finally {
             lock.unlock();
         }
     }
 
     /**
-     * Check whether this clearing has food left.
+     * Get the profile of the run on this clearing.
      *
-     * @return {@code true} iff there is food left
+     * @return profile or {@code null} if the run is not profiled
      */
-    public boolean hasFood() {
-        lock.lock();
+    private Contention contention() {
+        return colony == null ? null : colony.contention();
+    }
+
+    /**
+     * Take {@link #lock}, through the profile if the run is profiled.
+     */
+    private void acquire() {
+        final var contention = contention();
+        if (contention == null) {
+            lock.lock();
+        } else {
+            contention.lock(this, lock);
+        }
+    }
+
+    /**
+     * Record the wait of an ant leaving the queue if the run is profiled. Requires {@link #lock}.
+     */
+    private void dequeued(final Waiter waiter) {
+        final var contention = contention();
+        if (contention != null) {
+            contention.queued(this, System.nanoTime() - waiter.queued);
+        }
+    }
+
+    /**
+     * Let the given ant in on the space it was handed. Requires {@link #lock}.
+     */
+    private void admit(final Waiter waiter) {
+        waiting--;
+        TimerWheel.SHARED.cancel(waiter.timeout);
+        dequeued(waiter);
+        waiter.admitted();
+    }
+
+    /**
+     * The disguise of a waiting ant ran out.
+     */
+    private void expire(final Waiter waiter) {
+        acquire();
         try {
-            return food > 0;
+            if (waiters != null && waiters.remove(waiter)) {
+                waiting--;
+                dequeued(waiter);
+                waiter.timedOut();
+            }
         } finally {
             lock.unlock();
         }
     }
 
     /**
-     * Call this when an ant picks up food at this clearing.
+     * Enter this clearing or queue up for space.
+     * <p>
+     * Correctness:
+     * The waiting ant is counted before it checks for space again, and {@link #leave()} frees space before it checks
+     * for waiting ants. Both are volatile, so either the check finds the free space or {@link #leave()} finds the
+     * waiting ant and hands it the space under the lock.
+     * <p>
+     * Runtime:
+     * Constant
+     *
+     * @param waiter  to notify once the ant is admitted or its disguise ran out
+     * @param timeout in milliseconds the ant waits at most
+     * @return {@code true} if the ant entered right away, {@code false} if it waits now
      */
-    public void pickupFood() {
-        lock.lock();
+    boolean enterOrWait(final Waiter waiter, final long timeout) {
+        if (tryEnter()) {
+            return true;
+        }
+
+        acquire();
         try {
-            food--;
+            waiting++;
+            if (tryEnter()) {
+                waiting--;
+                return true;
+            }
+            if (waiters == null) {
+                waiters = new ArrayDeque<>();
+            }
+            if (contention() != null) {
+                waiter.queued = System.nanoTime();
+            }
+            waiters.add(waiter);
+            waiter.timeout = TimerWheel.SHARED.schedule(timeout, () -> expire(waiter));
+            return false;
         } finally {
             lock.unlock();
         }
     }
 
-    public boolean getAndCheckFood() {
-        lock.lock();
+    /**
+     * Stop waiting, e.g. because the ant was interrupted.
+     *
+     * @param waiter that waits
+     * @return {@code true} if the ant stopped waiting, {@code false} if it was already admitted or timed out
+     */
+    boolean withdraw(final Waiter waiter) {
+        acquire();
         try {
-            return --food > 0;
+            if (waiters == null || !waiters.remove(waiter)) {
+                return false;
+            }
+            waiting--;
+            TimerWheel.SHARED.cancel(waiter.timeout);
+            dequeued(waiter);
+            return true;
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Enter this clearing, waiting for space if it is full.
+     * <p>
+     * Runtime:
+     * Constant, but waits up to {@code timeout} milliseconds
+     *
+     * @param timeout in milliseconds the ant waits at most
+     * @return {@code true} if the ant entered, {@code false} if it did not get space within the timeout
+     * @throws InterruptedException if the ant was interrupted while waiting
+     */
+    boolean awaitSpace(final long timeout) throws InterruptedException {
+        final var waiter = new ThreadWaiter();
+        if (enterOrWait(waiter, timeout)) {
+            return true;
+        }
+
+        while (waiter.state == ThreadWaiter.WAITING) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                if (withdraw(waiter)) {
+                    throw new InterruptedException();
+                }
+                // the result is there already, keep the interrupt for the next check of the ant
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return waiter.state == ThreadWaiter.ADMITTED;
+    }
+
+    /**
+     * Check whether this clearing has food left.
+     *
+     * @return {@code true} iff there is food left
+     */
+    public boolean hasFood() {
+        return (int) FOOD.getVolatile(this) > 0;
+    }
+
+    /**
+     * Call this when an ant picks up food at this clearing.
+     * <p>
+     * Nothing happens if there is no food left.
+     */
+    public void pickupFood() {
+        tryPickupFood();
+    }
+
+    /**
+     * Pick up food if there is food left and check how much food is left afterwards.
+     * <p>
+     * Correctness:
+     * The check and the pick up are one compare-and-set, so two ants never pick up the last food both and the food
+     * never drops below zero.
+     * <p>
+     * Runtime:
+     * Constant, retries only while other ants pick up or place food concurrently
+     *
+     * @return food left after picking up, {@code -1} iff there was no food to pick up
+     */
+    public int tryPickupFood() {
+        touch();
+        int current = (int) FOOD.getVolatile(this);
+        while (current > 0) {
+            final int witness = (int) FOOD.compareAndExchange(this, current, current - 1);
+            if (witness == current) {
+                return current - 1;
+            }
+            current = witness;
+        }
+        return -1;
+    }
+
     /**
      * Call this when an ant places food at this clearing.
      */
     public void placeFood() {
-        lock.lock();
-        try {
-            food++;
-        } finally {
-            lock.unlock();
-        }
+        touch();
+        FOOD.getAndAdd(this, 1);
     }
 }
@@ -0,0 +1,238 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.World;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * World built by {@link Factory}, counting the collected food on stripes.
+ * <p>
+ * Every ant asks {@link #isFoodLeft()} before each decision, while food is returned rarely. The food still to be
+ * collected until the threshold is reached is therefore split into quotas on stripes in separate cache lines, an ant
+ * takes a unit from the stripe given by its index and only moves on to the other stripes once its own is empty.
+ * Whoever empties a stripe checks whether all stripes are empty and then sets a flag, which is all
+ * {@link #isFoodLeft()} reads. The flag changes once, so reading it does not contend with returning food.
+ * <p>
+ * Taking a unit from a quota is the only way to return food, so exactly {@code foodThreshold} units are returned, see
+ * {@link #collect(int)}. The flag is set before the ant that returned the last unit continues.
+ * <p>
+ * The world can be simulated again after {@link #reset()}. Clearings and trails log themselves here on their first
+ * change in a run, so a reset only restores those and costs as much as the part of the map the ants explored.
+ */
+final class Colony extends World<Clearing, Trail> {
+    /**
+     * Ints per stripe, so every stripe is in a cache line of its own. The first stripe starts one padding in, away from
+     * the header of the array.
+     */
+    private static final int PADDING = 16;
+
+    private final int threshold;
+    private final int stripes;
+    private final AtomicIntegerArray quotas;
+    private volatile boolean reached;
+
+    /**
+     * Ants of the next simulation, see {@link #reset(List)}.
+     */
+    private volatile List<Ant> ants;
+
+    /**
+     * Clearings and trails changed since the last reset, logged in the order they first changed. Every entity is
+     * logged at most once, so the logs never overflow.
+     */
+    private final Clearing[] modifiedClearings;
+    private final Trail[] modifiedTrails;
+    private final AtomicInteger clearingsModified = new AtomicInteger();
+    private final AtomicInteger trailsModified = new AtomicInteger();
+
+    /**
+     * Profile of the current simulation, set before its ants start, see {@link #profile(Contention)}.
+     */
+    private Contention contention;
+
+    /**
+     * Constructs a new world given a name, clearings, ants and a food threshold.
+     *
+     * @param name          of the world
+     * @param clearings     in this world
+     * @param anthill       of this world
+     * @param food          clearings that contain food
+     * @param foodThreshold the ants have to reach, {@code -1} for all food
+     * @param ants          in this world
+     */
+    Colony(final String name, final List<Clearing> clearings, final Clearing anthill, final List<Clearing> food,
+           final int foodThreshold, final List<Ant> ants) {
+        super(name, clearings, anthill, food, foodThreshold, ants);
+        this.ants = ants;
+        this.threshold = foodThreshold < 0 ? totalFood() : foodThreshold;
+        // the next power of two of the processors, so the stripe of an ant is a mask away
+        final int processors = Runtime.getRuntime().availableProcessors();
+        this.stripes = processors <= 1 ? 1 : Integer.highestOneBit((processors - 1) << 1);
+        this.quotas = new AtomicIntegerArray((stripes + 1) * PADDING);
+        fillQuotas();
+
+        this.modifiedClearings = new Clearing[clearings.size()];
+        this.modifiedTrails = new Trail[clearings.stream().mapToInt(Clearing::degree).sum()];
+        for (final var clearing : clearings) {
+            clearing.track(this);
+        }
+    }
+
+    private void fillQuotas() {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            quotas.set(slot(stripe), threshold / stripes + (stripe < threshold % stripes ? 1 : 0));
+        }
+        reached = threshold == 0;
+    }
+
+    private static int slot(final int stripe) {
+        return (stripe + 1) * PADDING;
+    }
+
+    /**
+     * Return a unit of food to the anthill unless the threshold has been reached already.
+     * <p>
+     * Runtime:
+     * Constant unless the stripe of the ant is empty, then linear in the number of stripes
+     *
+     * @param ant index of the ant returning the food, see {@link com.pseuco.np21.Ant#index()}
+     * @return {@code true} if the food was returned, {@code false} if the threshold has been reached before
+     */
+    boolean collect(final int ant) {
+        for (int i = 0; i < stripes; i++) {
+            final int slot = slot((ant + i) & (stripes - 1));
+            int quota;
+            while ((quota = quotas.get(slot)) > 0) {
+                if (quotas.compareAndSet(slot, quota, quota - 1)) {
+                    if (quota == 1) {
+                        checkReached();
+                    }
+                    return true;
+                }
+            }
+        }
+        // all stripes are empty, the ant emptying the last one may still be checking
+        reached = true;
+        return false;
+    }
+
+    /**
+     * Set the flag if all stripes are empty. Stripes never fill up again, so the ant emptying the last stripe sees all
+     * of them empty.
+     */
+    private void checkReached() {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (quotas.get(slot(stripe)) > 0) {
+                return;
+            }
+        }
+        reached = true;
+    }
+
+    /**
+     * Get the amount of food returned so far.
+     * <p>
+     * Runtime:
+     * Linear in the number of stripes
+     *
+     * @return food returned so far, at most the threshold
+     */
+    int collected() {
+        int left = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            left += quotas.get(slot(stripe));
+        }
+        return threshold - left;
+    }
+
+    /**
+     * Return a unit of food on the stripe of the current thread, prefer {@link #collect(int)} to learn whether the food
+     * was returned.
+     */
+    @Override
+    public void foodCollected() {
+        collect((int) Thread.currentThread().getId());
+    }
+
+    @Override
+    public boolean isFoodLeft() {
+        return !reached;
+    }
+
+    @Override
+    public List<Ant> ants() {
+        return Collections.unmodifiableList(ants);
+    }
+
+    /**
+     * Profile the lock contention of the next simulation, or stop profiling. Must be called before its ants start.
+     *
+     * @param contention to record into or {@code null} to record nothing
+     */
+    void profile(final Contention contention) {
+        this.contention = contention;
+    }
+
+    /**
+     * Get the profile of the current simulation.
+     *
+     * @return profile or {@code null} if the simulation is not profiled
+     */
+    Contention contention() {
+        return contention;
+    }
+
+    /**
+     * Log a clearing on its first change since the last reset, see {@link Clearing#reset()}.
+     */
+    void modified(final Clearing clearing) {
+        modifiedClearings[clearingsModified.getAndIncrement()] = clearing;
+    }
+
+    /**
+     * Log a trail on its first change since the last reset, see {@link Trail#reset()}.
+     */
+    void modified(final Trail trail) {
+        modifiedTrails[trailsModified.getAndIncrement()] = trail;
+    }
+
+    /**
+     * Restore the initial food, ant levels and pheromones, so the world can be simulated again.
+     * <p>
+     * Must not be called while a simulation of this world runs, the simulation has to be finished, see
+     * {@link Run#await()}.
+     * <p>
+     * Runtime:
+     * Linear in the number of clearings and trails changed since the last reset and the number of stripes
+     */
+    void reset() {
+        final int clearings = clearingsModified.getAndSet(0);
+        for (int i = 0; i < clearings; i++) {
+            modifiedClearings[i].reset();
+            modifiedClearings[i] = null;
+        }
+        final int trails = trailsModified.getAndSet(0);
+        for (int i = 0; i < trails; i++) {
+            modifiedTrails[i].reset();
+            modifiedTrails[i] = null;
+        }
+        fillQuotas();
+    }
+
+    /**
+     * Restore the world like {@link #reset()} and let other ants loose on it in the next simulation.
+     * <p>
+     * Runtime:
+     * Like {@link #reset()} plus linear in the number of ants
+     *
+     * @param ants of the next simulation
+     */
+    void reset(final List<Ant> ants) {
+        reset();
+        this.ants = List.copyOf(ants);
+    }
+}
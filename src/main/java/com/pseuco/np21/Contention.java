@@ -0,0 +1,242 @@
+package com.pseuco.np21;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock contention and wait times of the clearings and trails of a world during a run, see
+ * {@link Options#withContention}.
+ * <p>
+ * For every trail the {@link Trail#traverseLock() traverse lock} is profiled, for every bounded clearing its
+ * {@link Clearing#lock} and its queue of ants waiting for space, where every ant that queued counts as one contended
+ * acquisition of the space it waited for. Waits are measured in real time, also on {@link Engine#DISCRETE_EVENT}.
+ * <p>
+ * Every thread records into an accumulator of its own, a small open-addressing table of the entities it waited on,
+ * so recording takes no lock and shares no cache line with other threads. The accumulators are merged when the
+ * profile is read, which must happen after the run finished, see {@link Run#contention()}.
+ * <p>
+ * Without a profile, {@link Colony#contention()} is {@code null} and the only cost is a check for it on paths that
+ * take a lock anyway.
+ */
+public final class Contention {
+    /**
+     * Counters of an entity in an accumulator and in {@link #merge()}.
+     */
+    private static final int ACQUISITIONS = 0, CONTENDED = 1, WAIT = 2, MAX_WAIT = 3, COUNTERS = 4;
+
+    /**
+     * Waits of the ants on the lock or the space of a clearing or trail.
+     *
+     * @param name         of the clearing or trail, the latter as {@code <from>-><to>}
+     * @param trail        {@code true} for a trail, {@code false} for a clearing
+     * @param acquisitions number of times the lock or the space was acquired
+     * @param contended    number of acquisitions that had to wait
+     * @param totalWait    total time waited
+     * @param maxWait      longest single wait
+     */
+    public record Bottleneck(String name, boolean trail, long acquisitions, long contended, Duration totalWait,
+                             Duration maxWait) {
+    }
+
+    /**
+     * Counters of a thread by entity, see {@link #key}.
+     */
+    private static final class Accumulator {
+        private int[] keys = new int[16];
+        private long[] counters = new long[16 * COUNTERS];
+        private int size;
+
+        Accumulator() {
+            Arrays.fill(keys, -1);
+        }
+
+        void add(final int key, final long wait, final boolean contended) {
+            final int slot = slot(key) * COUNTERS;
+            counters[slot + ACQUISITIONS]++;
+            if (contended) {
+                counters[slot + CONTENDED]++;
+                counters[slot + WAIT] += wait;
+                counters[slot + MAX_WAIT] = Math.max(counters[slot + MAX_WAIT], wait);
+            }
+        }
+
+        /**
+         * Find or insert the slot of an entity, growing the table to keep it at most half full.
+         */
+        private int slot(final int key) {
+            int slot = index(key, keys.length);
+            while (keys[slot] != key) {
+                if (keys[slot] < 0) {
+                    if (2 * (size + 1) > keys.length) {
+                        grow();
+                        return slot(key);
+                    }
+                    keys[slot] = key;
+                    size++;
+                    return slot;
+                }
+                slot = (slot + 1) & (keys.length - 1);
+            }
+            return slot;
+        }
+
+        private static int index(final int key, final int length) {
+            return (key * 0x9e3779b9) >>> 1 & (length - 1);
+        }
+
+        private void grow() {
+            final var oldKeys = keys;
+            final var oldCounters = counters;
+            keys = new int[2 * oldKeys.length];
+            counters = new long[keys.length * COUNTERS];
+            Arrays.fill(keys, -1);
+            for (int old = 0; old < oldKeys.length; old++) {
+                if (oldKeys[old] >= 0) {
+                    int slot = index(oldKeys[old], keys.length);
+                    while (keys[slot] >= 0) {
+                        slot = (slot + 1) & (keys.length - 1);
+                    }
+                    keys[slot] = oldKeys[old];
+                    System.arraycopy(oldCounters, old * COUNTERS, counters, slot * COUNTERS, COUNTERS);
+                }
+            }
+        }
+    }
+
+    private final Colony world;
+    private final List<Accumulator> accumulators = new ArrayList<>();
+    private final ThreadLocal<Accumulator> local = ThreadLocal.withInitial(this::register);
+
+    /**
+     * Constructs an empty profile of a world.
+     *
+     * @param world whose clearings and trails are profiled
+     */
+    Contention(final Colony world) {
+        this.world = world;
+    }
+
+    private Accumulator register() {
+        final var accumulator = new Accumulator();
+        synchronized (accumulators) {
+            accumulators.add(accumulator);
+        }
+        return accumulator;
+    }
+
+    private static int key(final Clearing clearing) {
+        return 2 * clearing.index();
+    }
+
+    private static int key(final Trail trail) {
+        return 2 * trail.index() + 1;
+    }
+
+    /**
+     * Take a lock of a clearing, measuring the wait if it is held.
+     *
+     * @param clearing the lock belongs to
+     * @param lock     to take
+     */
+    void lock(final Clearing clearing, final Lock lock) {
+        lock(key(clearing), lock);
+    }
+
+    /**
+     * Take the traverse lock of a trail, measuring the wait if it is held.
+     *
+     * @param trail the lock belongs to
+     * @param lock  to take
+     */
+    void lock(final Trail trail, final Lock lock) {
+        lock(key(trail), lock);
+    }
+
+    private void lock(final int key, final Lock lock) {
+        if (lock.tryLock()) {
+            local.get().add(key, 0, false);
+            return;
+        }
+        final long start = System.nanoTime();
+        lock.lock();
+        local.get().add(key, System.nanoTime() - start, true);
+    }
+
+    /**
+     * Record that an ant waited for space on a clearing, after it was admitted, timed out or withdrew.
+     *
+     * @param clearing the ant queued on
+     * @param wait     in nanoseconds
+     */
+    void queued(final Clearing clearing, final long wait) {
+        local.get().add(key(clearing), wait, true);
+    }
+
+    /**
+     * Sum up the counters of all threads.
+     *
+     * @return counters by entity, {@link #ACQUISITIONS} to {@link #MAX_WAIT} for every key
+     */
+    private HashMap<Integer, long[]> merge() {
+        final var merged = new HashMap<Integer, long[]>();
+        synchronized (accumulators) {
+            for (final var accumulator : accumulators) {
+                for (int slot = 0; slot < accumulator.keys.length; slot++) {
+                    if (accumulator.keys[slot] < 0) {
+                        continue;
+                    }
+                    final var total = merged.computeIfAbsent(accumulator.keys[slot], key -> new long[COUNTERS]);
+                    final int offset = slot * COUNTERS;
+                    total[ACQUISITIONS] += accumulator.counters[offset + ACQUISITIONS];
+                    total[CONTENDED] += accumulator.counters[offset + CONTENDED];
+                    total[WAIT] += accumulator.counters[offset + WAIT];
+                    total[MAX_WAIT] = Math.max(total[MAX_WAIT], accumulator.counters[offset + MAX_WAIT]);
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Get the clearings and trails the ants waited on the longest.
+     * <p>
+     * Runtime:
+     * Linear in the number of trails plus the entities recorded by every thread
+     *
+     * @param n maximal number of bottlenecks
+     * @return bottlenecks by total wait, longest first, ties broken by contended acquisitions
+     */
+    public List<Bottleneck> top(final int n) {
+        final var merged = merge();
+        final var trails = new HashMap<Integer, Trail>();
+        for (final var clearing : world.clearings()) {
+            for (final var trail : clearing.connectsTo()) {
+                if (merged.containsKey(key(trail))) {
+                    trails.put(key(trail), trail);
+                }
+            }
+        }
+
+        final var bottlenecks = new ArrayList<Bottleneck>(merged.size());
+        merged.forEach((key, counters) -> {
+            final boolean trail = key % 2 == 1;
+            final String name;
+            if (trail) {
+                final var edge = trails.get(key);
+                name = edge.from().name() + "->" + edge.to().name();
+            } else {
+                name = world.clearings().get(key / 2).name();
+            }
+            bottlenecks.add(new Bottleneck(name, trail, counters[ACQUISITIONS], counters[CONTENDED],
+                    Duration.ofNanos(counters[WAIT]), Duration.ofNanos(counters[MAX_WAIT])));
+        });
+        bottlenecks.sort(Comparator.comparing(Bottleneck::totalWait).thenComparingLong(Bottleneck::contended).reversed()
+                .thenComparing(Bottleneck::name));
+        return List.copyOf(bottlenecks.subList(0, Math.min(n, bottlenecks.size())));
+    }
+}
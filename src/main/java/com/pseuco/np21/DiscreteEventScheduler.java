@@ -0,0 +1,276 @@
+package com.pseuco.np21;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * {@link Scheduler} running all ants of a simulation as a discrete event simulation on virtual time.
+ * <p>
+ * All ants are stepped by the thread calling {@link #run}: the ant of the earliest event in a priority queue does its
+ * next {@link Ant#step() step}. If the ant can continue, its next step is scheduled at the same time, otherwise it is
+ * parked until another ant or the expiry of its disguise resumes it. Events with the same time run in the order they
+ * were scheduled, so the order of all recorder calls only depends on the order of the ants and the choices they make.
+ * <p>
+ * Traversing a trail takes {@link #TRAVERSAL} of virtual time, so the time limit ends every simulation, even one
+ * whose ants never wait. Otherwise virtual time only passes while ants wait for space: their disguise expires as a
+ * scheduled event and is cancelled if space becomes available before.
+ */
+final class DiscreteEventScheduler implements Scheduler {
+    /**
+     * Virtual time in milliseconds an ant spends on a trail before it arrives at the destination.
+     */
+    static final long TRAVERSAL = 1;
+
+    /**
+     * State of a single ant in the simulation.
+     */
+    private static final class Process {
+        private final Ant ant;
+        private boolean done;
+        /**
+         * Pending expiry of the disguise while waiting on {@link #waitingOn}.
+         */
+        private Event timeout;
+        private Clearing waitingOn;
+        private boolean timedOut;
+        /**
+         * Whether the ant traversed its current trail and is at the destination now.
+         */
+        private boolean traversed;
+
+        private Process(final Ant ant) {
+            this.ant = ant;
+        }
+    }
+
+    /**
+     * Step of an ant at some point in virtual time.
+     */
+    private static final class Event implements Comparable<Event> {
+        private final long time;
+        private final long sequence;
+        private final Process process;
+        private final boolean timeout;
+        private boolean cancelled;
+
+        private Event(final long time, final long sequence, final Process process, final boolean timeout) {
+            this.time = time;
+            this.sequence = sequence;
+            this.process = process;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public int compareTo(final Event other) {
+            final int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final long timeLimit;
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>();
+    private final List<Process> processes = new ArrayList<>();
+    private final Map<Ant, Process> byAnt = new IdentityHashMap<>();
+    private final Map<Trail, Process> trailOwners = new HashMap<>();
+    private final Map<Trail, ArrayDeque<Process>> trailWaiters = new HashMap<>();
+    private final Map<Clearing, ArrayDeque<Process>> clearingWaiters = new HashMap<>();
+
+    private long now;
+    private long sequence;
+    private boolean cancelled;
+
+    /**
+     * Set by {@link #stop()} from another thread, the events are only processed by the thread in {@link #run}.
+     */
+    private volatile boolean stopRequested;
+
+    /**
+     * Constructs a new scheduler.
+     *
+     * @param timeLimit virtual time in milliseconds after which all remaining ants are terminated, {@code -1} for none
+     */
+    DiscreteEventScheduler(final long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    /**
+     * Get the current virtual time.
+     *
+     * @return virtual time in milliseconds since the start of the simulation
+     */
+    long now() {
+        return now;
+    }
+
+    /**
+     * Run the given ants until all of them terminated.
+     * <p>
+     * The ants must have been constructed with this scheduler and are started in the given order.
+     *
+     * @param ants to run
+     */
+    void run(final List<Ant> ants) {
+        for (final Ant ant : ants) {
+            final var process = new Process(ant);
+            processes.add(process);
+            byAnt.put(ant, process);
+            schedule(process, 0, false);
+        }
+
+        while (true) {
+            final Event event = events.poll();
+            if (event == null) {
+                if (processes.stream().allMatch(p -> p.done)) {
+                    break;
+                }
+                // nothing can happen anymore, but not every ant terminated
+                if (cancelled) {
+                    throw new IllegalStateException("Ants are waiting for each other after termination!");
+                }
+                cancel();
+                continue;
+            }
+            if (event.cancelled) {
+                continue;
+            }
+            if (stopRequested && !cancelled) {
+                events.add(event);
+                cancel();
+                continue;
+            }
+            if (timeLimit >= 0 && event.time > timeLimit && !cancelled) {
+                events.add(event);
+                now = timeLimit;
+                cancel();
+                continue;
+            }
+
+            now = event.time;
+            if (event.timeout) {
+                event.process.timedOut = true;
+                event.process.timeout = null;
+            }
+            switch (event.process.ant.step()) {
+                case CONTINUE -> schedule(event.process, now, false);
+                case WAIT -> {
+                    // resumed by release, left or the expiry of its disguise
+                }
+                case DONE -> event.process.done = true;
+            }
+        }
+    }
+
+    /**
+     * Terminate all remaining ants at the current virtual time.
+     * <p>
+     * May be called from any thread, the ants are cancelled by the thread running the simulation before it processes
+     * its next event.
+     */
+    void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Terminate all remaining ants.
+     * <p>
+     * All ants are cancelled, so they terminate with their next check of the termination criteria. Waiting ants do not
+     * wait for their disguise to expire but are resumed immediately.
+     */
+    private void cancel() {
+        cancelled = true;
+        for (final Process process : processes) {
+            if (process.done) {
+                continue;
+            }
+            process.ant.cancel();
+            if (process.timeout != null) {
+                process.timeout.cancelled = true;
+                process.timeout = null;
+                clearingWaiters.get(process.waitingOn).remove(process);
+                schedule(process, now, false);
+            }
+        }
+    }
+
+    private Event schedule(final Process process, final long time, final boolean timeout) {
+        final var event = new Event(time, sequence++, process, timeout);
+        events.add(event);
+        return event;
+    }
+
+    @Override
+    public boolean acquire(final Ant ant, final Trail trail) {
+        final var process = byAnt.get(ant);
+        if (trailOwners.putIfAbsent(trail, process) == null) {
+            return true;
+        }
+
+        // the trail is handed over to us by release
+        trailWaiters.computeIfAbsent(trail, t -> new ArrayDeque<>()).add(process);
+        return false;
+    }
+
+    @Override
+    public void release(final Ant ant, final Trail trail) {
+        final var waiters = trailWaiters.get(trail);
+        final var next = waiters == null ? null : waiters.poll();
+        if (next == null) {
+            trailOwners.remove(trail);
+        } else {
+            trailOwners.put(trail, next);
+            schedule(next, now, false);
+        }
+    }
+
+    @Override
+    public void left(final Ant ant, final Clearing clearing) {
+        clearing.leave();
+
+        // wake up the longest waiting ant, it checks for space on its own
+        final var waiters = clearingWaiters.get(clearing);
+        final var next = waiters == null ? null : waiters.poll();
+        if (next != null) {
+            next.timeout.cancelled = true;
+            next.timeout = null;
+            schedule(next, now, false);
+        }
+    }
+
+    @Override
+    public Arrival arrive(final Ant ant, final Clearing destination) throws InterruptedException {
+        final var process = byAnt.get(ant);
+        if (!process.traversed && !cancelled) {
+            // the ant is resumed at the destination once it traversed the trail
+            process.traversed = true;
+            schedule(process, now + TRAVERSAL, false);
+            return Arrival.WAITING;
+        }
+
+        process.waitingOn = null;
+        if (process.timedOut) {
+            process.timedOut = false;
+            process.traversed = false;
+            clearingWaiters.get(destination).remove(process);
+            return Arrival.TIMED_OUT;
+        }
+
+        if (destination.tryEnter()) {
+            process.traversed = false;
+            return Arrival.ENTERED;
+        }
+        if (cancelled) {
+            throw new InterruptedException();
+        }
+
+        clearingWaiters.computeIfAbsent(destination, c -> new ArrayDeque<>()).add(process);
+        process.waitingOn = destination;
+        process.timeout = schedule(process, now + ant.disguise(), true);
+        return Arrival.WAITING;
+    }
+}
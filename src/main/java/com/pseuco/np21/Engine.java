@@ -0,0 +1,38 @@
+package com.pseuco.np21;
+
+/**
+ * The way a {@link Simulator} drives its ants.
+ */
+public enum Engine {
+    /**
+     * Every ant runs freely on its own thread and waits in real time.
+     */
+    THREADS,
+    /**
+     * Ants take turns in a deterministic order given by a queue of events keyed by virtual time. Waiting for space on a
+     * clearing costs no real time, the disguise of a waiting ant expires as soon as nothing else can happen before.
+     */
+    DISCRETE_EVENT,
+    /**
+     * Ants are stepped by a bounded pool of worker threads, see {@link Options#workers()}. Waiting ants do not occupy a
+     * thread, so populations far beyond the number of threads the system can handle are possible.
+     */
+    WORKER_POOL;
+
+    /**
+     * Get the engine for a command line value.
+     *
+     * @param value either {@code threads}, {@code des} or {@code pool}
+     * @return matching engine
+     * @throws IllegalArgumentException if there is no such engine
+     */
+    public static Engine parse(final String value) {
+        return switch (value) {
+            case "threads" -> THREADS;
+            case "des" -> DISCRETE_EVENT;
+            case "pool" -> WORKER_POOL;
+            default -> throw new IllegalArgumentException(
+                    String.format("Unknown engine \"%s\"! Expected \"threads\", \"des\" or \"pool\".", value));
+        };
+    }
+}
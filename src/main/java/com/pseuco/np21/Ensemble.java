@@ -0,0 +1,323 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.World;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Monte Carlo study of a world: independent runs of the same world with different seeds.
+ * <p>
+ * The world is parsed once and its {@link Topology} is shared by all runs, so runs share no clearings or trails. At
+ * most {@code parallelism} runs are simulated at once, each thread of the pool spawns one world and
+ * {@link Colony#reset() resets} it between its runs, so only that many worlds are alive at a time and a run costs as
+ * much as the part of the map it explored. Run {@code k} uses the seed of the options plus {@code k},
+ * or a random base seed if the options have none, so a study on {@link Engine#DISCRETE_EVENT} can be repeated.
+ * <p>
+ * The runs are recorded by counting only and summarized into a {@link Summary}.
+ */
+public final class Ensemble {
+    /**
+     * Quantiles of the t-distribution for two-sided 95 % confidence intervals, by degrees of freedom.
+     */
+    private static final double[] T_QUANTILES = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+
+    private final Topology topology;
+    private final int foodThreshold;
+    private final Options options;
+    private final int runs;
+    private final int parallelism;
+
+    /**
+     * Outcome of a single run.
+     *
+     * @param seed      the run was simulated with
+     * @param outcome   the way the run ended
+     * @param collected food returned to the anthill
+     * @param moves     number of trails the ants entered
+     * @param elapsed   real time from the start until every ant despawned
+     * @param despawns  number of ants despawned for each reason
+     */
+    public record Sample(long seed, Run.Outcome outcome, int collected, long moves, Duration elapsed,
+                         Map<Recorder.DespawnReason, Integer> despawns) {
+    }
+
+    /**
+     * Distribution of a quantity over the runs.
+     *
+     * @param mean      of the values
+     * @param deviation sample standard deviation of the values, {@code NaN} for a single run
+     * @param p5        5th percentile of the values
+     * @param p50       median of the values
+     * @param p95       95th percentile of the values
+     * @param low       lower bound of the 95 % confidence interval of the mean, {@code NaN} for a single run
+     * @param high      upper bound of the 95 % confidence interval of the mean, {@code NaN} for a single run
+     */
+    public record Statistic(double mean, double deviation, double p5, double p50, double p95, double low,
+                            double high) {
+        /**
+         * Summarize values. Percentiles are nearest-rank, the confidence interval assumes the mean to be normally
+         * distributed and uses the t-distribution.
+         *
+         * @param values at least one
+         * @return the distribution of the values
+         */
+        static Statistic of(final double[] values) {
+            final var sorted = values.clone();
+            Arrays.sort(sorted);
+            final int n = sorted.length;
+            final double mean = Arrays.stream(sorted).sum() / n;
+            double squares = 0;
+            for (final double value : sorted) {
+                squares += (value - mean) * (value - mean);
+            }
+            final double deviation = n < 2 ? Double.NaN : Math.sqrt(squares / (n - 1));
+            final double margin = n < 2 ? Double.NaN : quantile(n - 1) * deviation / Math.sqrt(n);
+            return new Statistic(mean, deviation, percentile(sorted, 5), percentile(sorted, 50),
+                    percentile(sorted, 95), mean - margin, mean + margin);
+        }
+
+        private static double percentile(final double[] sorted, final double percentile) {
+            final int rank = (int) Math.ceil(sorted.length * percentile / 100);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+
+        /**
+         * Get the 97.5 % quantile of the t-distribution, approximated beyond the table.
+         */
+        private static double quantile(final int degrees) {
+            return degrees <= T_QUANTILES.length ? T_QUANTILES[degrees - 1] : 1.96 + 2.5 / degrees;
+        }
+    }
+
+    /**
+     * Results of all runs of a study.
+     *
+     * @param samples   of the runs in the order of their seeds
+     * @param collected distribution of the food returned to the anthill
+     * @param moves     distribution of the trails entered
+     * @param elapsed   distribution of the real time of the runs in milliseconds
+     * @param despawns  distribution of the ants despawned for each reason
+     */
+    public record Summary(List<Sample> samples, Statistic collected, Statistic moves, Statistic elapsed,
+                          Map<Recorder.DespawnReason, Statistic> despawns) {
+        /**
+         * Count the runs by the way they ended.
+         *
+         * @return number of runs for each outcome
+         */
+        public Map<Run.Outcome, Integer> outcomes() {
+            final var outcomes = new EnumMap<Run.Outcome, Integer>(Run.Outcome.class);
+            for (final var sample : samples) {
+                outcomes.merge(sample.outcome(), 1, Integer::sum);
+            }
+            return outcomes;
+        }
+    }
+
+    /**
+     * Recorder counting the moves and the despawns of a run, lock-free so it does not serialize the ants.
+     */
+    private static final class Tally implements Recorder {
+        private final LongAdder moves = new LongAdder();
+        private final AtomicIntegerArray despawns = new AtomicIntegerArray(DespawnReason.values().length);
+
+        Map<DespawnReason, Integer> despawns() {
+            final var counts = new EnumMap<DespawnReason, Integer>(DespawnReason.class);
+            for (final var reason : DespawnReason.values()) {
+                counts.put(reason, despawns.get(reason.ordinal()));
+            }
+            return Collections.unmodifiableMap(counts);
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void spawn(final Ant ant) {
+        }
+
+        @Override
+        public void despawn(final Ant ant, final DespawnReason reason) {
+            despawns.incrementAndGet(reason.ordinal());
+        }
+
+        @Override
+        public void enter(final Ant ant, final com.pseuco.np21.shared.Clearing<?, ?> clearing) {
+        }
+
+        @Override
+        public void leave(final Ant ant, final com.pseuco.np21.shared.Clearing<?, ?> clearing) {
+        }
+
+        @Override
+        public void enter(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail) {
+            moves.increment();
+        }
+
+        @Override
+        public void leave(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail) {
+        }
+
+        @Override
+        public <T extends com.pseuco.np21.shared.Trail<?, ?>> void select(final Ant ant, final T trail,
+                                                                         final List<T> candidates,
+                                                                         final SelectionReason reason) {
+        }
+
+        @Override
+        public void startFoodSearch(final Ant ant) {
+        }
+
+        @Override
+        public void startExploration(final Ant ant) {
+        }
+
+        @Override
+        public void startFoodReturn(final Ant ant) {
+        }
+
+        @Override
+        public void returnedFood(final Ant ant) {
+        }
+
+        @Override
+        public void pickupFood(final Ant ant, final com.pseuco.np21.shared.Clearing<?, ?> clearing) {
+        }
+
+        @Override
+        public void updateFood(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail,
+                               final com.pseuco.np21.shared.Trail.Pheromone value) {
+        }
+
+        @Override
+        public void updateAnthill(final Ant ant, final com.pseuco.np21.shared.Trail<?, ?> trail,
+                                  final com.pseuco.np21.shared.Trail.Pheromone value) {
+        }
+
+        @Override
+        public void attractAttention(final Ant ant) {
+        }
+    }
+
+    /**
+     * Constructs a study of a world.
+     *
+     * @param template      world to spawn every run from, it is never simulated itself
+     * @param foodThreshold the ants of every run have to reach, {@code -1} for all food
+     * @param options       to simulate every run with, see the class comment for the seeds
+     * @param runs          number of runs, at least one
+     * @param parallelism   maximal number of runs simulated at once, at least one
+     */
+    public Ensemble(final World<Clearing, Trail> template, final int foodThreshold, final Options options,
+                    final int runs, final int parallelism) {
+        if (runs < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("An ensemble needs at least one run at a time!");
+        }
+        this.topology = Topology.of(template);
+        this.foodThreshold = foodThreshold;
+        this.options = options;
+        this.runs = runs;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Simulate all runs and wait for them.
+     *
+     * @return the results of the runs
+     * @throws InterruptedException  if the waiting thread was interrupted, the runs in progress are cancelled then
+     * @throws IllegalStateException if a run failed
+     */
+    public Summary run() throws InterruptedException {
+        final long base = options.seed().orElseGet(() -> ThreadLocalRandom.current().nextLong());
+        final var worlds = ThreadLocal.withInitial(() -> (Colony) topology.spawn(foodThreshold));
+        final var tasks = new ArrayList<Callable<Sample>>(runs);
+        for (int k = 0; k < runs; k++) {
+            final long seed = base + k;
+            tasks.add(() -> simulate(worlds, seed));
+        }
+
+        final var executor = Executors.newFixedThreadPool(Math.min(parallelism, runs));
+        final var samples = new ArrayList<Sample>(runs);
+        try {
+            for (final var future : executor.invokeAll(tasks)) {
+                samples.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A run of the ensemble failed!", e.getCause());
+        } finally {
+            // interrupts the runs still waiting, which cancel their simulations
+            executor.shutdownNow();
+        }
+
+        final var despawns = new EnumMap<Recorder.DespawnReason, Statistic>(Recorder.DespawnReason.class);
+        for (final var reason : Recorder.DespawnReason.values()) {
+            despawns.put(reason, statistic(samples, sample -> sample.despawns().get(reason)));
+        }
+        return new Summary(List.copyOf(samples), statistic(samples, Sample::collected),
+                statistic(samples, Sample::moves), statistic(samples, sample -> sample.elapsed().toNanos() / 1e6),
+                Collections.unmodifiableMap(despawns));
+    }
+
+    private Sample simulate(final ThreadLocal<Colony> worlds, final long seed) throws InterruptedException {
+        final var world = worlds.get();
+        world.reset();
+        try {
+            return simulate(world, options, seed);
+        } catch (InterruptedException e) {
+            // the ants of the cancelled run may still be on the world
+            worlds.remove();
+            throw e;
+        }
+    }
+
+    /**
+     * Simulate a single run on a world that was reset, counting its moves and despawns.
+     *
+     * @param world   to simulate
+     * @param options to simulate the run with
+     * @param seed    of the run
+     * @return the outcome of the run
+     * @throws InterruptedException if the waiting thread was interrupted, the run is cancelled then
+     */
+    static Sample simulate(final Colony world, final Options options, final long seed) throws InterruptedException {
+        final var tally = new Tally();
+        final var run = new Simulator(world, tally, options.withSeed(seed)).start();
+        Run.Result result;
+        try {
+            result = run.await();
+        } catch (InterruptedException e) {
+            run.cancel();
+            throw e;
+        }
+        return new Sample(seed, result.outcome(), result.collected(), tally.moves.sum(), result.elapsed(),
+                tally.despawns());
+    }
+
+    private static Statistic statistic(final List<Sample> samples, final ToDoubleFunction<Sample> value) {
+        return Statistic.of(samples.stream().mapToDouble(value).toArray());
+    }
+}
@@ -0,0 +1,98 @@
+package com.pseuco.np21;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * The kind of thread every ant of a simulation runs on.
+ * <p>
+ * The project is compiled against Java 16, which has no virtual threads. {@link #VIRTUAL} therefore looks up
+ * {@code Thread.ofVirtual()} at runtime and is only available if the simulator runs on a JVM that provides it.
+ */
+public enum ExecutionMode {
+    /**
+     * One platform (i.e. operating system) thread per ant.
+     */
+    PLATFORM,
+    /**
+     * One virtual thread per ant. Requires a JVM with virtual threads (Java 21 or later).
+     */
+    VIRTUAL;
+
+    /**
+     * Handles for {@code Thread.ofVirtual()} and {@code Thread.Builder#unstarted(Runnable)}, or {@code null} if the
+     * running JVM does not support virtual threads.
+     */
+    private static final MethodHandle OF_VIRTUAL, UNSTARTED;
+
+    static {
+        MethodHandle ofVirtual = null, unstarted = null;
+        try {
+            final var lookup = MethodHandles.publicLookup();
+            final var builder = Class.forName("java.lang.Thread$Builder");
+            final var virtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(virtualBuilder));
+            unstarted = lookup.findVirtual(builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+
+            // Preview builds of virtual threads refuse to create them unless previews are enabled, so probe once
+            unstarted.invoke(ofVirtual.invoke(), (Runnable) () -> {
+            });
+        } catch (Throwable t) {
+            ofVirtual = null;
+            unstarted = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        UNSTARTED = unstarted;
+    }
+
+    /**
+     * Check whether threads of this mode can be created on the running JVM.
+     *
+     * @return {@code true} iff {@link #newThread} will succeed
+     */
+    public boolean isSupported() {
+        return this == PLATFORM || UNSTARTED != null;
+    }
+
+    /**
+     * Create a new, not yet started thread of this mode.
+     *
+     * @param task the thread executes
+     * @return unstarted thread running {@code task}
+     * @throws UnsupportedOperationException if the running JVM does not support this mode
+     */
+    public Thread newThread(final Runnable task) {
+        if (this == PLATFORM) {
+            return new Thread(task);
+        }
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM!");
+        }
+
+        try {
+            return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(), task);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Could not create a virtual thread!", t);
+        }
+    }
+
+    /**
+     * Get the mode for a command line value.
+     *
+     * @param value either {@code platform} or {@code virtual}
+     * @return matching mode
+     * @throws IllegalArgumentException if there is no such mode
+     */
+    public static ExecutionMode parse(final String value) {
+        return switch (value) {
+            case "platform" -> PLATFORM;
+            case "virtual" -> VIRTUAL;
+            default -> throw new IllegalArgumentException(
+                    String.format("Unknown thread mode \"%s\"! Expected \"platform\" or \"virtual\".", value));
+        };
+    }
+}
@@ -10,6 +10,10 @@ import java.util.List;
 /**
  * Implementation of the {@link com.pseuco.np21.shared.Factory} interface.
  * <p>
+ * Every factory builds one world and numbers its entities densely: clearings, trails and ants each get the indices
+ * {@code 0..n-1} in the order they are created, independent of {@link com.pseuco.np21.shared.Entity#id()} which
+ * counts across all worlds. Per-entity state can thus live in flat arrays, see {@link Adjacency}.
+ * <p>
  * You may change the code however you see fit.
  */
 public class Factory implements com.pseuco.np21.shared.Factory<Clearing, Trail> {
@@ -18,6 +22,7 @@ public class Factory implements com.pseuco.np21.shared.Factory<Clearing, Trail>
     private final List<Ant> ants;
 
     private Clearing anthill;
+    private int trails;
 
     /**
      * Constructs a new factory.
@@ -25,9 +30,19 @@ public class Factory implements com.pseuco.np21.shared.Factory<Clearing, Trail>
      * You may change this except for the signature.
      */
     public Factory() {
-        clearings = new ArrayList<>();
-        foodClearings = new ArrayList<>();
-        ants = new ArrayList<>();
+        this(10, 10);
+    }
+
+    /**
+     * Constructs a new factory for a world of known size.
+     *
+     * @param clearings number of clearings the world will have
+     * @param ants      number of ants the world will have
+     */
+    Factory(final int clearings, final int ants) {
+        this.clearings = new ArrayList<>(clearings);
+        this.foodClearings = new ArrayList<>();
+        this.ants = new ArrayList<>(ants);
     }
 
     @Override
@@ -56,7 +71,23 @@ public class Factory implements com.pseuco.np21.shared.Factory<Clearing, Trail>
 
     @Override
     public Clearing createClearing(final String name, final int food, final Position.Capacity capacity) {
-        final var clearing = new com.pseuco.np21.Clearing(name, food, capacity);
+        return createClearing(name, food, capacity, 0, 0);
+    }
+
+    /**
+     * Create a clearing and remember its position on the map.
+     *
+     * @param name     of the clearing
+     * @param food     the clearing starts with
+     * @param capacity the clearing has access to
+     * @param x        coordinate of the clearing on the map
+     * @param y        coordinate of the clearing on the map
+     * @return the new clearing
+     */
+    public Clearing createClearing(final String name, final int food, final Position.Capacity capacity,
+                                   final int x, final int y) {
+        final var clearing = new com.pseuco.np21.Clearing(name, food, capacity, x, y);
+        clearing.index(clearings.size());
         clearings.add(clearing);
 
         if (food > 0) {
@@ -69,6 +100,7 @@ public class Factory implements com.pseuco.np21.shared.Factory<Clearing, Trail>
     @Override
     public Trail createTrail(final Clearing a, final Clearing b) {
         final var trail = new com.pseuco.np21.Trail(a, b);
+        trail.index(trails++);
         a.addTrail(trail);
         return trail;
     }
@@ -80,8 +112,12 @@ public class Factory implements com.pseuco.np21.shared.Factory<Clearing, Trail>
         return ant;
     }
 
+    /**
+     * Finish the world and freeze its trails into an {@link Adjacency}, no trails can be added afterwards.
+     */
     @Override
     public World<Clearing, Trail> finishWorld(final String name, final int foodThreshold) {
-        return new World<>(name, clearings, anthill, foodClearings, foodThreshold, ants);
+        Adjacency.freeze(clearings);
+        return new Colony(name, clearings, anthill, foodClearings, foodThreshold, ants);
     }
 }
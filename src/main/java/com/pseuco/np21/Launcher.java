@@ -0,0 +1,279 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.PrintRecorder;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.World;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Entrypoint of the program, started by {@code gradle run} and {@code java -jar out/ants.jar}.
+ * <p>
+ * {@link Simulator#main} must stay untouched, so options beyond {@code map}, {@code ants}, {@code food} and
+ * {@code timeout} are offered here. Statistics of the run are printed to {@code System.err} to keep the recording on
+ * {@code System.out} intact.
+ * <p>
+ * With {@code engine=des} the timeout is measured in virtual time, otherwise the run is cancelled once it passed, see
+ * {@link Run}. With {@code recorder=async} the recording is formatted and written by {@link AsyncRecorder} off the
+ * threads of the ants, with {@code recorder=binary} a compact trace is written to the {@code trace} file instead, see
+ * {@link TraceWriter} and {@link TraceReader}.
+ * <p>
+ * With {@code compile} the world is written into a {@link WorldImage} instead of being simulated, with {@code image}
+ * the world is loaded from such an image unless the map or ants file changed since it was compiled.
+ * <p>
+ * With {@code runs} the world is not recorded but simulated that many times, at most {@code parallel} runs at once,
+ * and a summary of the runs is printed to {@code System.out}, see {@link Ensemble}.
+ * <p>
+ * With {@code sweep} the ants of the ants file, which may be left out then, are replaced by populations of equal ants
+ * for every combination of the {@code population}, {@code impatience} and {@code disguise} values, e.g.
+ * {@code 10..100:10} or {@code 5,20,80}, each simulated {@code runs} times. The results are printed to
+ * {@code System.out} and kept in the {@code sweep} file, so an interrupted sweep resumes there, see {@link Sweep}.
+ * <p>
+ * With {@code contention} the run is profiled and the clearings and trails the ants waited on the longest are printed
+ * at its end, as many as given, see {@link Contention}.
+ */
+public class Launcher {
+    private static final String USAGE = "Usage: <command> map=<map file> [ants=<ants file>] [food=<food>] "
+            + "[timeout=<timeout>] [threads=platform|virtual] [engine=threads|des|pool] [workers=<workers>] "
+            + "[seed=<seed>] [recorder=print|async|binary] [backpressure=block|drop|spill] [trace=<trace file>] "
+            + "[image=<image file>] [compile=<image file>] [runs=<runs> [parallel=<runs at once>]] "
+            + "[sweep=<cache file> impatience=<values> disguise=<values> [population=<values>]] "
+            + "[contention=<bottlenecks>]";
+
+    /**
+     * Default constructor is not needed and thus inaccessible.
+     */
+    private Launcher() {
+    }
+
+    /**
+     * Entrypoint of the program.
+     *
+     * @param args command line arguments
+     * @throws IOException if the specified files cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        final var arguments = parseArguments(args);
+        if (arguments == null || !arguments.containsKey("map")
+                || !(arguments.containsKey("ants") || arguments.containsKey("sweep"))) {
+            System.out.println(USAGE);
+            System.exit(1);
+        }
+
+        final var foodThreshold = Integer.parseInt(arguments.getOrDefault("food", "-1"));
+        final var timeout = Integer.parseInt(arguments.getOrDefault("timeout", "10000"));
+        final var mode = ExecutionMode.parse(arguments.getOrDefault("threads", "platform"));
+        final var engine = Engine.parse(arguments.getOrDefault("engine", "threads"));
+        final var virtualTime = engine == Engine.DISCRETE_EVENT;
+        var options = Options.DEFAULT
+                .withEngine(engine)
+                .withThreads(mode)
+                .withTimeLimit(virtualTime ? timeout : -1)
+                .withDeadline(virtualTime ? -1 : timeout);
+        if (arguments.containsKey("seed")) {
+            options = options.withSeed(Long.parseLong(arguments.get("seed")));
+        }
+        if (arguments.containsKey("workers")) {
+            options = options.withWorkers(Integer.parseInt(arguments.get("workers")));
+        }
+        final var bottlenecks = Integer.parseInt(arguments.getOrDefault("contention", "0"));
+        if (bottlenecks > 0) {
+            options = options.withContention(true);
+        }
+
+        final var mapFile = Path.of(arguments.get("map"));
+        final var antsFile = arguments.containsKey("ants") ? Path.of(arguments.get("ants")) : null;
+        if (antsFile == null && (arguments.containsKey("image") || arguments.containsKey("compile"))) {
+            throw new IllegalArgumentException("World images need an ants file!");
+        }
+        final var loadStart = System.nanoTime();
+        Optional<World<Clearing, Trail>> image = Optional.empty();
+        if (arguments.containsKey("image")) {
+            image = WorldImage.load(Path.of(arguments.get("image")), mapFile, antsFile, foodThreshold);
+            if (image.isEmpty()) {
+                System.err.println("The world image is missing or stale, parsing the text files instead.");
+            }
+        }
+        final World<Clearing, Trail> world;
+        if (image.isPresent()) {
+            world = image.get();
+            System.err.printf("Loaded the world image in %.1f ms.%n", (System.nanoTime() - loadStart) / 1e6);
+        } else {
+            final var factory = new Factory();
+            final var parser = new StreamingParser();
+            final String name;
+            if (antsFile != null) {
+                name = parser.parse(mapFile, antsFile, factory);
+            } else {
+                try (final var map = FileChannel.open(mapFile)) {
+                    name = parser.parse(map, Channels.newChannel(InputStream.nullInputStream()), factory);
+                }
+            }
+            world = factory.finishWorld(name, foodThreshold);
+            System.err.printf("Parsed %.1f MB at %.1f MB/s.%n", parser.bytes() / 1e6, parser.throughput());
+        }
+
+        if (arguments.containsKey("compile")) {
+            WorldImage.write(Path.of(arguments.get("compile")), world, mapFile, antsFile);
+            System.err.printf("Compiled the world into \"%s\".%n", arguments.get("compile"));
+            return;
+        }
+
+        if (arguments.containsKey("sweep")) {
+            if (!arguments.containsKey("impatience") || !arguments.containsKey("disguise")
+                    || !arguments.containsKey("population") && world.ants().isEmpty()) {
+                throw new IllegalArgumentException("A sweep needs populations, impatience and disguise values!");
+            }
+            final var sweep = new Sweep(world, foodThreshold, options,
+                    Sweep.Axis.parse(arguments.getOrDefault("population", String.valueOf(world.ants().size()))),
+                    Sweep.Axis.parse(arguments.get("impatience")), Sweep.Axis.parse(arguments.get("disguise")),
+                    Integer.parseInt(arguments.getOrDefault("runs", "1")),
+                    Integer.parseInt(arguments.getOrDefault("parallel",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    Path.of(arguments.get("sweep")));
+            final var start = System.nanoTime();
+            try {
+                printSweep(world, sweep.run(), System.nanoTime() - start);
+            } catch (InterruptedException e) {
+                System.err.printf("The sweep was interrupted, the finished cells are kept in \"%s\".%n",
+                        arguments.get("sweep"));
+            }
+            return;
+        }
+
+        if (arguments.containsKey("runs")) {
+            final var ensemble = new Ensemble(world, foodThreshold, options, Integer.parseInt(arguments.get("runs")),
+                    Integer.parseInt(arguments.getOrDefault("parallel",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))));
+            final var start = System.nanoTime();
+            try {
+                printSummary(world, ensemble.run(), System.nanoTime() - start);
+            } catch (InterruptedException e) {
+                System.err.println("The ensemble was interrupted.");
+            }
+            return;
+        }
+
+        final Recorder recorder;
+        final AsyncRecorder asyncRecorder;
+        switch (arguments.getOrDefault("recorder", "print")) {
+            case "print" -> {
+                recorder = new PrintRecorder();
+                asyncRecorder = null;
+            }
+            case "async" -> {
+                final var backpressure = AsyncRecorder.Backpressure.parse(
+                        arguments.getOrDefault("backpressure", "block"));
+                asyncRecorder = new AsyncRecorder(backpressure);
+                recorder = asyncRecorder;
+            }
+            case "binary" -> {
+                if (!arguments.containsKey("trace")) {
+                    throw new IllegalArgumentException("The binary recorder needs a trace file!");
+                }
+                recorder = new TraceWriter(Path.of(arguments.get("trace")), world);
+                asyncRecorder = null;
+            }
+            default -> throw new IllegalArgumentException(String.format(
+                    "Unknown recorder \"%s\"! Expected \"print\", \"async\" or \"binary\".",
+                    arguments.get("recorder")));
+        }
+
+        final var run = new Simulator(world, recorder, options).start();
+        Run.Result result;
+        while (true) {
+            try {
+                result = run.await();
+                break;
+            } catch (InterruptedException e) {
+                // the ants still despawn, so wait for them
+                run.cancel();
+            }
+        }
+
+        final var elapsed = result.elapsed().toNanos();
+        System.err.printf("Simulated %d ants in %.1f ms with %s on %s threads (%.1f ants/s), %s.%n",
+                result.ants(), elapsed / 1e6, engine.name().toLowerCase(), mode.name().toLowerCase(),
+                result.ants() / (elapsed / 1e9), result.outcome().name().toLowerCase().replace('_', ' '));
+        if (result.outcome() != Run.Outcome.COMPLETED) {
+            System.err.printf("The remaining ants terminated within %.1f ms.%n", result.shutdown().toNanos() / 1e6);
+        }
+        if (asyncRecorder != null && asyncRecorder.dropped() > 0) {
+            System.err.printf("Dropped %d events of the recording.%n", asyncRecorder.dropped());
+        }
+        run.contention().ifPresent(contention -> printBottlenecks(contention.top(bottlenecks)));
+    }
+
+    private static void printBottlenecks(final List<Contention.Bottleneck> bottlenecks) {
+        System.err.printf("Top %d bottlenecks by wait time:%n", bottlenecks.size());
+        System.err.printf("%-8s %-32s %12s %12s %14s %14s%n", "", "name", "acquired", "contended", "wait [ms]",
+                "max wait [ms]");
+        for (final var bottleneck : bottlenecks) {
+            System.err.printf("%-8s %-32s %12d %12d %14.3f %14.3f%n", bottleneck.trail() ? "trail" : "clearing",
+                    bottleneck.name(), bottleneck.acquisitions(), bottleneck.contended(),
+                    bottleneck.totalWait().toNanos() / 1e6, bottleneck.maxWait().toNanos() / 1e6);
+        }
+    }
+
+    private static void printSummary(final World<Clearing, Trail> world, final Ensemble.Summary summary,
+                                     final long elapsed) {
+        final var outcomes = new StringJoiner(", ");
+        summary.outcomes().forEach((outcome, count) ->
+                outcomes.add(count + " " + outcome.name().toLowerCase().replace('_', ' ')));
+        System.out.printf("Simulated %d runs of \"%s\" in %.1f ms: %s.%n", summary.samples().size(), world.name(),
+                elapsed / 1e6, outcomes);
+        System.out.printf("%-32s %12s %12s %12s %12s %12s %25s%n", "", "mean", "deviation", "p5", "p50", "p95",
+                "95 % confidence");
+        printStatistic("food collected", summary.collected());
+        printStatistic("moves", summary.moves());
+        printStatistic("wall time [ms]", summary.elapsed());
+        summary.despawns().forEach((reason, statistic) ->
+                printStatistic("despawned " + reason.name().toLowerCase().replace('_', ' '), statistic));
+    }
+
+    private static void printSweep(final World<Clearing, Trail> world, final List<Sweep.Result> results,
+                                   final long elapsed) {
+        System.out.printf("Swept %d populations on \"%s\" in %.1f ms.%n", results.size(), world.name(),
+                elapsed / 1e6);
+        System.out.printf("%12s %12s %12s %6s %12s %12s%n", "population", "impatience", "disguise", "runs", "food/s",
+                "eaten");
+        for (final var result : results) {
+            final var cell = result.cell();
+            System.out.printf("%12d %12d %12d %6d %12.1f %11.1f%%%n", cell.population(), cell.impatience(),
+                    cell.disguise(), result.runs(), result.foodPerSecond(), 100 * result.eatenRatio());
+        }
+    }
+
+    private static void printStatistic(final String name, final Ensemble.Statistic statistic) {
+        System.out.printf("%-32s %12.1f %12.1f %12.1f %12.1f %12.1f %25s%n", name, statistic.mean(),
+                statistic.deviation(), statistic.p5(), statistic.p50(), statistic.p95(),
+                String.format("%.1f..%.1f", statistic.low(), statistic.high()));
+    }
+
+    private static Map<String, String> parseArguments(final String[] args) {
+        final var options = Set.of("map", "ants", "food", "timeout", "threads", "engine", "workers", "seed",
+                "recorder", "backpressure", "trace", "image", "compile", "runs", "parallel", "sweep", "population",
+                "impatience", "disguise", "contention");
+        final var result = new HashMap<String, String>();
+
+        for (final var arg : args) {
+            final var parts = arg.split("=", 2);
+            if (parts.length != 2 || !options.contains(parts[0])) {
+                return null;
+            }
+            result.put(parts[0], parts[1]);
+        }
+
+        return result;
+    }
+}
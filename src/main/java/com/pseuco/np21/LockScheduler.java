@@ -0,0 +1,55 @@
+package com.pseuco.np21;
+
+/**
+ * {@link Scheduler} for ants running on their own threads, blocking on the locks of trails and clearings.
+ * <p>
+ * Waiting for space uses {@link Clearing#awaitSpace} with a timeout of the ant's disguise. Ants never
+ * get parked, so {@link Ant#step()} never returns {@link Ant.Step#WAIT} with this scheduler.
+ */
+final class LockScheduler implements Scheduler {
+    /**
+     * The scheduler is stateless, so all ants can share this instance.
+     */
+    static final LockScheduler INSTANCE = new LockScheduler();
+
+    private LockScheduler() {
+    }
+
+    @Override
+    public boolean acquire(final Ant ant, final Trail trail) {
+        final var colony = trail.from().colony();
+        final var contention = colony == null ? null : colony.contention();
+        if (contention == null) {
+            trail.traverseLock().lock();
+        } else {
+            contention.lock(trail, trail.traverseLock());
+        }
+        return true;
+    }
+
+    @Override
+    public void release(final Ant ant, final Trail trail) {
+        trail.traverseLock().unlock();
+    }
+
+    @Override
+    public void left(final Ant ant, final Clearing clearing) {
+        clearing.leave();
+    }
+
+    /**
+     * Wait for free space on the destination and enter it.
+     * <p>
+     * Correctness:
+     * See {@link Clearing#awaitSpace}, the space check and entering are a single compare-and-set. The lock of the
+     * destination is only taken if it is full and released before the ant calls the recorder, so neither the recorder
+     * nor a blocked ant on a virtual thread ever sits inside the critical section of the clearing.
+     * <p>
+     * Runtime:
+     * Constant, but waits up to the disguise of the ant for every wake-up without free space
+     */
+    @Override
+    public Arrival arrive(final Ant ant, final Clearing destination) throws InterruptedException {
+        return destination.awaitSpace(ant.disguise()) ? Arrival.ENTERED : Arrival.TIMED_OUT;
+    }
+}
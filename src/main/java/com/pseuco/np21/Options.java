@@ -0,0 +1,194 @@
+package com.pseuco.np21;
+
+import java.util.OptionalLong;
+
+/**
+ * Immutable settings of a {@link Simulator}.
+ * <p>
+ * Start from {@link #DEFAULT} and derive the settings you need with the {@code with} methods.
+ */
+public final class Options {
+    /**
+     * Ants on platform threads waiting in real time, as the simulator always did.
+     */
+    public static final Options DEFAULT = new Options(Engine.THREADS, ExecutionMode.PLATFORM, -1, OptionalLong.empty(),
+            Runtime.getRuntime().availableProcessors(), -1, false);
+
+    private final Engine engine;
+    private final ExecutionMode threads;
+    private final long timeLimit;
+    private final OptionalLong seed;
+    private final int workers;
+    private final long deadline;
+    private final boolean contention;
+
+    private Options(final Engine engine, final ExecutionMode threads, final long timeLimit, final OptionalLong seed,
+                    final int workers, final long deadline, final boolean contention) {
+        this.engine = engine;
+        this.threads = threads;
+        this.timeLimit = timeLimit;
+        this.seed = seed;
+        this.workers = workers;
+        this.deadline = deadline;
+        this.contention = contention;
+    }
+
+    /**
+     * Get the engine driving the ants.
+     *
+     * @return engine driving the ants
+     */
+    public Engine engine() {
+        return engine;
+    }
+
+    /**
+     * Get the kind of thread the ants run on.
+     *
+     * @return kind of thread the ants run on
+     */
+    public ExecutionMode threads() {
+        return threads;
+    }
+
+    /**
+     * Get the virtual time in milliseconds after which a {@link Engine#DISCRETE_EVENT} simulation terminates all
+     * remaining ants.
+     *
+     * @return virtual time limit or {@code -1} if there is none
+     */
+    public long timeLimit() {
+        return timeLimit;
+    }
+
+    /**
+     * Get the master seed the random choices of all ants are derived from.
+     *
+     * @return master seed or nothing if every run shall make different choices
+     */
+    public OptionalLong seed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of worker threads of a {@link Engine#WORKER_POOL} simulation.
+     *
+     * @return number of worker threads, by default the number of available processors
+     */
+    public int workers() {
+        return workers;
+    }
+
+    /**
+     * Get the real time in milliseconds after which a run started with {@link Simulator#start()} is cancelled.
+     *
+     * @return deadline in milliseconds after the start or {@code -1} if there is none
+     */
+    public long deadline() {
+        return deadline;
+    }
+
+    /**
+     * Derive options with another engine.
+     *
+     * @param engine driving the ants
+     * @return options with the given engine
+     */
+    public Options withEngine(final Engine engine) {
+        return new Options(engine, threads, timeLimit, seed, workers, deadline, contention);
+    }
+
+    /**
+     * Derive options with another kind of thread.
+     *
+     * @param threads kind of thread the ants run on
+     * @return options with the given kind of thread
+     */
+    public Options withThreads(final ExecutionMode threads) {
+        return new Options(engine, threads, timeLimit, seed, workers, deadline, contention);
+    }
+
+    /**
+     * Derive options with another virtual time limit.
+     *
+     * @param timeLimit virtual time in milliseconds or {@code -1} for none
+     * @return options with the given time limit
+     */
+    public Options withTimeLimit(final long timeLimit) {
+        return new Options(engine, threads, timeLimit, seed, workers, deadline, contention);
+    }
+
+    /**
+     * Derive options with a master seed.
+     * <p>
+     * Every ant gets its own random stream derived from this seed and its index in the world. Two simulations on
+     * {@link Engine#DISCRETE_EVENT} with the same seed, world and ants make the same choices.
+     *
+     * @param seed the random choices of the ants are derived from
+     * @return options with the given seed
+     */
+    public Options withSeed(final long seed) {
+        return new Options(engine, threads, timeLimit, OptionalLong.of(seed), workers, deadline, contention);
+    }
+
+    /**
+     * Derive options with another number of worker threads.
+     *
+     * @param workers number of threads stepping the ants of a {@link Engine#WORKER_POOL} simulation
+     * @return options with the given number of workers
+     * @throws IllegalArgumentException if {@code workers} is not positive
+     */
+    public Options withWorkers(final int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is required!");
+        }
+        return new Options(engine, threads, timeLimit, seed, workers, deadline, contention);
+    }
+
+    /**
+     * Derive options with another deadline.
+     * <p>
+     * Unlike {@link #withTimeLimit}, the deadline is measured in real time and applies to all engines.
+     *
+     * @param deadline real time in milliseconds after the start or {@code -1} for none
+     * @return options with the given deadline
+     */
+    public Options withDeadline(final long deadline) {
+        return new Options(engine, threads, timeLimit, seed, workers, deadline, contention);
+    }
+
+    /**
+     * Get whether the lock contention of a run is profiled.
+     *
+     * @return {@code true} if the waits on clearings and trails are recorded, see {@link Run#contention()}
+     */
+    public boolean contention() {
+        return contention;
+    }
+
+    /**
+     * Derive options profiling the lock contention or not.
+     * <p>
+     * Profiled runs record how often the ants took the locks of the clearings and trails, how often they had to wait
+     * and for how long, see {@link Contention}. Runs that are not profiled do not pay for it.
+     *
+     * @param contention {@code true} to profile the runs
+     * @return options with the given profiling
+     */
+    public Options withContention(final boolean contention) {
+        return new Options(engine, threads, timeLimit, seed, workers, deadline, contention);
+    }
+
+    @Override
+    public String toString() {
+        return "Options{" +
+                "engine=" + engine +
+                ", threads=" + threads +
+                ", timeLimit=" + timeLimit +
+                ", seed=" + seed +
+                ", workers=" + workers +
+                ", deadline=" + deadline +
+                ", contention=" + contention +
+                '}';
+    }
+}
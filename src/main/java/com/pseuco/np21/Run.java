@@ -0,0 +1,198 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.World;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Handle of a simulation started by {@link Simulator#start()}.
+ * <p>
+ * The simulation runs on a platform thread of its own, which only ever interrupts the threads of its ants. It ends
+ * once every ant despawned, which {@link #cancel()} and the deadline of the options enforce by terminating the
+ * remaining ants, see {@link Simulator#cancel()}. Thus the simulator can be embedded in a long-lived process without
+ * interrupting any thread it does not own.
+ * <p>
+ * The deadline is scheduled on a timer thread shared by all runs and cancelled as soon as the run finishes, so the
+ * timer never keeps a finished run, its world or its recorder reachable.
+ * <p>
+ * Cancellations and the end of the simulation race for {@link #ending}: whichever sets it first decides the outcome,
+ * so a run is never reported completed after the simulator was cancelled, nor cancelled after it completed.
+ */
+public final class Run {
+    /**
+     * Timer of the deadlines of all runs. Cancelled deadlines are removed from its queue right away.
+     */
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1, task -> {
+        final var thread = new Thread(task, "run-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * The way a run ended.
+     */
+    public enum Outcome {
+        /**
+         * The ants terminated on their own, e.g. because enough food was collected.
+         */
+        COMPLETED,
+        /**
+         * The run was cancelled by {@link #cancel()}.
+         */
+        CANCELLED,
+        /**
+         * The run was cancelled because its {@link Options#deadline() deadline} passed.
+         */
+        DEADLINE_EXCEEDED
+    }
+
+    /**
+     * Outcome and timing of a finished run.
+     *
+     * @param outcome   the way the run ended
+     * @param ants      number of ants in the run
+     * @param collected food returned to the anthill, {@code -1} if the world does not count it
+     * @param elapsed   real time from the start until every ant despawned
+     * @param shutdown  real time from the cancellation until every ant despawned, zero if the run completed
+     */
+    public record Result(Outcome outcome, int ants, int collected, Duration elapsed, Duration shutdown) {
+    }
+
+    /**
+     * Outcome of a run and the real time it was decided at.
+     */
+    private record Ending(Outcome outcome, long at) {
+    }
+
+    private final Simulator simulator;
+    private final World<Clearing, Trail> world;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    /**
+     * Set once, by the first cancellation or by the end of the simulation if it was not cancelled before.
+     */
+    private final AtomicReference<Ending> ending = new AtomicReference<>();
+    private final long start;
+    private final ScheduledFuture<?> deadline;
+    private volatile Result result;
+    private volatile Contention contention;
+    private volatile Throwable failure;
+
+    /**
+     * Start a simulation.
+     *
+     * @param simulator to run
+     * @param world     simulated by the simulator
+     * @param deadline  real time in milliseconds after which the run is cancelled, {@code -1} for none
+     */
+    Run(final Simulator simulator, final World<Clearing, Trail> world, final long deadline) {
+        this.simulator = simulator;
+        this.world = world;
+        this.start = System.nanoTime();
+
+        // scheduled before the simulation starts, so it is there to be cancelled once the simulation finished
+        this.deadline = deadline < 0 ? null
+                : DEADLINES.schedule(() -> cancel(Outcome.DEADLINE_EXCEEDED), deadline, TimeUnit.MILLISECONDS);
+        final var thread = new Thread(this::execute, "simulation-" + world.name());
+        thread.start();
+    }
+
+    private void execute() {
+        try {
+            simulator.run();
+        } catch (Throwable e) {
+            failure = e;
+        }
+
+        final var cancellation = ending.compareAndExchange(null, new Ending(Outcome.COMPLETED, System.nanoTime()));
+        // taken after the race, so a cancellation that won it was always before the end
+        final long end = System.nanoTime();
+        final var outcome = cancellation == null ? Outcome.COMPLETED : cancellation.outcome();
+        final var shutdown = cancellation == null ? Duration.ZERO : Duration.ofNanos(end - cancellation.at());
+        int collected = -1;
+        if (world instanceof Colony colony) {
+            collected = colony.collected();
+            contention = colony.contention();
+        }
+        result = new Result(outcome, world.ants().size(), collected, Duration.ofNanos(end - start), shutdown);
+        if (deadline != null) {
+            deadline.cancel(false);
+        }
+        finished.countDown();
+    }
+
+    private void cancel(final Outcome outcome) {
+        if (ending.compareAndSet(null, new Ending(outcome, System.nanoTime()))) {
+            simulator.cancel();
+        }
+    }
+
+    /**
+     * Terminate every remaining ant, see {@link Simulator#cancel()}. Does nothing if the run finished or was cancelled
+     * before.
+     */
+    public void cancel() {
+        cancel(Outcome.CANCELLED);
+    }
+
+    /**
+     * Check whether every ant despawned.
+     *
+     * @return {@code true} if the run finished
+     */
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Wait until every ant despawned.
+     *
+     * @return the result of the run
+     * @throws InterruptedException  if the waiting thread was interrupted, the run goes on
+     * @throws IllegalStateException if the simulation failed
+     */
+    public Result await() throws InterruptedException {
+        finished.await();
+        return result();
+    }
+
+    /**
+     * Wait until every ant despawned or the timeout passed.
+     *
+     * @param timeout to wait at most
+     * @return the result of the run or nothing if it did not finish in time
+     * @throws InterruptedException  if the waiting thread was interrupted, the run goes on
+     * @throws IllegalStateException if the simulation failed
+     */
+    public Optional<Result> await(final Duration timeout) throws InterruptedException {
+        if (!finished.await(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            return Optional.empty();
+        }
+        return Optional.of(result());
+    }
+
+    /**
+     * Get the lock contention of the finished run, see {@link Options#withContention}.
+     *
+     * @return profile of the run or nothing if it was not profiled or is not done yet
+     */
+    public Optional<Contention> contention() {
+        return isDone() ? Optional.ofNullable(contention) : Optional.empty();
+    }
+
+    private Result result() {
+        if (failure != null) {
+            throw new IllegalStateException("The simulation failed!", failure);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,68 @@
+package com.pseuco.np21;
+
+/**
+ * Strategy an ant uses at every point where its behavior depends on other ants.
+ * <p>
+ * These are the points where an ant may block: taking a trail (trails have a capacity of one) and waiting for free
+ * space on the clearing at the end of the trail. Implementations decide how waiting is done, e.g. by blocking the
+ * thread of the ant or by parking the ant and {@link Ant#step() stepping} it again once it may continue.
+ * <p>
+ * A scheduler that parks an ant must not step it again before the ant returned {@link Ant.Step#WAIT} from its current
+ * step. It may however decide to resume the ant as soon as the parking method returned.
+ */
+interface Scheduler {
+    /**
+     * Result of an attempt to enter a clearing.
+     */
+    enum Arrival {
+        /**
+         * The ant entered the clearing.
+         */
+        ENTERED,
+        /**
+         * The ant is parked until it traversed the trail, there may be space or its disguise ran out. It has to
+         * call {@link #arrive(Ant, Clearing)} again when it is resumed.
+         */
+        WAITING,
+        /**
+         * The disguise of the ant ran out while waiting for space.
+         */
+        TIMED_OUT
+    }
+
+    /**
+     * Take the given trail.
+     *
+     * @param ant   taking the trail
+     * @param trail to take
+     * @return {@code true} if the ant owns the trail now, {@code false} if the ant is parked and the trail is handed
+     * over to it before it is resumed
+     */
+    boolean acquire(Ant ant, Trail trail);
+
+    /**
+     * Give back a trail taken with {@link #acquire}.
+     *
+     * @param ant   giving back the trail
+     * @param trail to give back
+     */
+    void release(Ant ant, Trail trail);
+
+    /**
+     * Leave the given clearing, making its space available for waiting ants.
+     *
+     * @param ant      leaving the clearing
+     * @param clearing that is left
+     */
+    void left(Ant ant, Clearing clearing);
+
+    /**
+     * Enter the destination if there is free space, otherwise wait for it.
+     *
+     * @param ant         that wants to enter
+     * @param destination clearing to enter
+     * @return whether the ant entered, is parked or waited too long
+     * @throws InterruptedException if the ant was interrupted or the simulation was cancelled while waiting
+     */
+    Arrival arrive(Ant ant, Clearing destination) throws InterruptedException;
+}
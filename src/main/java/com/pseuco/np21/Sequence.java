@@ -1,140 +1,243 @@
 package com.pseuco.np21;
 
-import java.util.HashSet;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.Objects;
 
 public class Sequence {
     /**
-     * This class implements the brain of ants. It consists of a stack of Pairs. Each pair represents a clearing and its
-     * outgoing trails {@link Pair}.
+     * This class implements the brain of ants. It consists of a stack of clearings, each with flags for its outgoing
+     * trails, and a stack of the trails the ant took between them.
      * <p>
      * As structure for the brain we use a stack because it naturally fits the specification of the description in its
      * character that new clearings are put on top of the last and is removed when returning from a dead end.
+     * <p>
+     * Viability in this case means that an ant may traverse a trail from the clearing according to the rules of the
+     * specification. We can use flags by index without mixing the paths and their viability because the trails of a
+     * clearing are not modified after the world is finished, see {@link Adjacency}.
+     * <p>
+     * Clearings are identified by their dense index, see {@link Clearing#index()}. The brain only holds primitive
+     * arrays which grow with the longest route and are reused afterwards, so remembering a clearing does not allocate:
+     * <ul>
+     *     <li>the stack of clearings is an int array, the start of the flags of every entry a second one</li>
+     *     <li>the flags of all entries share one bitset, each entry using the bits after those of the entry below</li>
+     *     <li>the entry of a clearing is looked up in an open-addressing table from clearing index to entry, which
+     *     holds just the clearings on the route, so its size follows the depth of the route and not the size of the
+     *     map</li>
+     * </ul>
      */
 
-    private static class Pair {
-        /**
-         * This pair-class represents the entities in the "brain" of the ants. Each pair stores the id of the clearing
-         * and an array of its outgoing edges. This bool-array is used to mark edges that were already used by the ant.
-         * We can use an array without mixing the paths and its viability because the list of outgoing edges is not
-         * modified after creating the map. This is guaranteed by the code that we may not modify and the protected
-         * field {@link com.pseuco.np21.shared.Clearing# trails}.
-         * <p>
-         * Viable/Viability in this case means that an ant may traverse a trail from the clearing according to the rules
-         * of the specification.
-         */
-
-        private final int id;
-        private final boolean[] options;
-
-        /**
-         * Instantiate a pair holding the id of the clearing and a boolean array of its outgoing edges
-         *
-         * @param id      id of the clearing
-         * @param size    number of outgoing trails from that clearing
-         * @param blocked indices of the paths that are known to be blocked. This array can also be empty.
-         */
-        public Pair(int id, int size, int... blocked) {
-            this.id = id;
-            this.options = new boolean[size];
-
-            // Initialize all paths as viable ...
-            for (int i = 0; i < size; ++i) {
-                this.options[i] = true;
-            }
+    private static final int INITIAL_DEPTH = 16;
 
-            // ... and exclude those that are said to be not viable
-            for (int b : blocked) {
-                this.options[b] = false;
-            }
-        }
+    /**
+     * Clearings on the route, the first bit of their flags, and the entry below with the same clearing or -1.
+     * The flags of entry {@code i} are the bits {@code offsets[i]} up to {@code offsets[i + 1]} of {@link #blocked}.
+     */
+    private int[] clearings = new int[INITIAL_DEPTH];
+    private int[] offsets = new int[INITIAL_DEPTH + 1];
+    private int[] previous = new int[INITIAL_DEPTH];
+    private int depth;
 
-        /**
-         * get the id of the clearing in this entity in the ant-brain.
-         *
-         * @return id of the clearing associated with this pair.
-         */
-        public int getId() {
-            return this.id;
-        }
+    /**
+     * Flags of the trails, a set bit marks a trail that is not viable.
+     */
+    private long[] blocked = new long[INITIAL_DEPTH];
 
-        /**
-         * check if a path in the represented clearing is viable
-         *
-         * @param path index of the path to check for this clearing
-         * @return true if the path is viable
-         */
-        public boolean viable(int path) {
-            return this.options[path];
-        }
+    /**
+     * Trails taken between the clearings on the route.
+     */
+    private Trail[] trails = new Trail[INITIAL_DEPTH];
+    private int trailDepth;
+
+    /**
+     * Top entry of every clearing on the route by clearing index, linear probing with {@code -1} marking free slots.
+     * The table is at most half full.
+     */
+    private int[] keys = empty(2 * INITIAL_DEPTH);
+    private int[] entries = new int[2 * INITIAL_DEPTH];
+    private int size;
+
+    /**
+     * Initialize the sequence, i.e. the brain of the ant.
+     */
+    public Sequence() {
+    }
 
-        /**
-         * Add a blockade on the associated clearing, this may result from coming back from a dead end
-         *
-         * @param path index that is newly blocked
-         */
-        public void addBlock(int path) {
-            this.options[path] = false;
+    /**
+     * Get the top entry of a clearing.
+     *
+     * @param id index of the clearing
+     * @return entry of the clearing or -1 if it is not on the route
+     */
+    private int entry(final int id) {
+        final int slot = slot(id);
+        return keys[slot] == id ? entries[slot] : -1;
+    }
+
+    private static int[] empty(final int length) {
+        final var keys = new int[length];
+        Arrays.fill(keys, -1);
+        return keys;
+    }
+
+    /**
+     * Find the slot of a clearing or the free slot it would be put in.
+     */
+    private int slot(final int id) {
+        final int mask = keys.length - 1;
+        int slot = home(id, mask);
+        while (keys[slot] != id && keys[slot] >= 0) {
+            slot = (slot + 1) & mask;
         }
+        return slot;
+    }
+
+    private static int home(final int id, final int mask) {
+        final int hash = id * 0x9e3779b9;
+        return (hash ^ hash >>> 16) & mask;
+    }
 
-        /**
-         * Get all flags for the paths going out from this clearing
-         *
-         * @return boolean-array according to the
-         */
-        public boolean[] getOptions() {
-            return this.options;
+    /**
+     * Set the top entry of a clearing, growing the table if it would be more than half full.
+     */
+    private void put(final int id, final int entry) {
+        int slot = slot(id);
+        if (keys[slot] < 0) {
+            if (2 * (size + 1) > keys.length) {
+                final var oldKeys = keys;
+                final var oldEntries = entries;
+                keys = empty(2 * oldKeys.length);
+                entries = new int[keys.length];
+                for (int old = 0; old < oldKeys.length; old++) {
+                    if (oldKeys[old] >= 0) {
+                        final int free = slot(oldKeys[old]);
+                        keys[free] = oldKeys[old];
+                        entries[free] = oldEntries[old];
+                    }
+                }
+                slot = slot(id);
+            }
+            keys[slot] = id;
+            size++;
         }
+        entries[slot] = entry;
     }
 
+    /**
+     * Forget a clearing, moving the clearings probed after it back so that none of them is cut off from its home.
+     */
+    private void remove(final int id) {
+        final int mask = keys.length - 1;
+        int hole = slot(id);
+        for (int next = (hole + 1) & mask; keys[next] >= 0; next = (next + 1) & mask) {
+            if (((next - home(keys[next], mask)) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                entries[hole] = entries[next];
+                hole = next;
+            }
+        }
+        keys[hole] = -1;
+        size--;
+    }
 
-    private final Stack<Pair> seq;
-    private final HashSet<Integer> seqHash;
-    private final Stack<Trail> trailChain;
     /**
-     * Initialize the sequence, i.e. the brain of the ant.
+     * Add a new station on the route of the ant to its brain
+     *
+     * @param id   index of the newly visited clearing, see {@link Clearing#index()}
+     * @param size number of outgoing trails from this new clearing
      */
-    public Sequence() {
-        seq = new Stack<>();
-        trailChain = new Stack<>();
-        seqHash = new HashSet<>();
+    public void addClearing(final int id, final int size) {
+        if (depth == clearings.length) {
+            clearings = Arrays.copyOf(clearings, 2 * depth);
+            offsets = Arrays.copyOf(offsets, 2 * depth + 1);
+            previous = Arrays.copyOf(previous, 2 * depth);
+        }
+
+        final int from = offsets[depth];
+        final int to = from + size;
+        unblock(from, to);
+
+        clearings[depth] = id;
+        offsets[depth + 1] = to;
+        previous[depth] = entry(id);
+        put(id, depth);
+        depth++;
     }
 
     /**
      * Add a new station on the route of the ant to its brain
      *
-     * @param id      id of the newly visited clearing
+     * @param id      index of the newly visited clearing, see {@link Clearing#index()}
      * @param size    number of outgoing trails from this new clearing
      * @param blocked indices of the initially blocked trails from this edge
      */
-    public void addClearing(int id, int size, int... blocked) {
-        this.seq.push(new Pair(id, size, blocked));
-        this.seqHash.add(id);
+    public void addClearing(final int id, final int size, final int... blocked) {
+        addClearing(id, size);
+        for (final int b : blocked) {
+            addBlock(b);
+        }
+    }
+
+    /**
+     * Mark the flags from {@code from} up to {@code to} as viable, growing the bitset if needed.
+     */
+    private void unblock(final int from, final int to) {
+        if (from >= to) {
+            return;
+        }
+        final int first = from >>> 6;
+        final int last = (to - 1) >>> 6;
+        if (last >= blocked.length) {
+            blocked = Arrays.copyOf(blocked, Math.max(last + 1, 2 * blocked.length));
+        }
+
+        final long firstMask = -1L << from;
+        final long lastMask = -1L >>> -to;
+        if (first == last) {
+            blocked[first] &= ~(firstMask & lastMask);
+        } else {
+            blocked[first] &= ~firstMask;
+            Arrays.fill(blocked, first + 1, last, 0L);
+            blocked[last] &= ~lastMask;
+        }
     }
 
     /**
      * Add a new trail to the stack
      * @param trail trail to be added
      */
-    public void addTrail(Trail trail){
-        this.trailChain.push(trail);
+    public void addTrail(final Trail trail) {
+        if (trailDepth == trails.length) {
+            trails = Arrays.copyOf(trails, 2 * trailDepth);
+        }
+        trails[trailDepth++] = trail;
     }
 
     /**
      * get last used trail in the stack
      * @return last used trail
      */
-    public Trail lastTrail(){
-        return this.trailChain.peek();
+    public Trail lastTrail() {
+        if (trailDepth == 0) {
+            throw new EmptyStackException();
+        }
+        return trails[trailDepth - 1];
     }
 
     /**
      * Get information on all trails that leave the last clearing
+     * <p>
+     * This copies the flags, use {@link #viable(int)} to check a single trail.
      *
      * @return boolean array encoding to which clearing the ant may traverse.
      */
     public boolean[] getOptions() {
-        return this.seq.peek().getOptions();
+        final int top = top();
+        final var options = new boolean[offsets[top + 1] - offsets[top]];
+        for (int i = 0; i < options.length; i++) {
+            options[i] = viable(top, i);
+        }
+        return options;
     }
 
     /**
@@ -144,13 +247,17 @@ public class Sequence {
      * @return id of clearing to return to
      */
     public int lastId() {
-        return this.seq.get(this.seq.size() - 2).getId();
+        if (depth < 2) {
+            throw new ArrayIndexOutOfBoundsException(depth - 2);
+        }
+        return clearings[depth - 2];
     }
 
     public boolean full() {
+        final int top = top();
         int trues = 0;
-        for (boolean b : this.seq.peek().options) {
-            if (b) {
+        for (int i = 0; i < offsets[top + 1] - offsets[top]; i++) {
+            if (viable(top, i)) {
                 trues += 1;
             }
         }
@@ -163,37 +270,47 @@ public class Sequence {
      * Remove the last element from the stack if the ant returns from a dead end.
      */
     public void removeLast() {
-        this.seqHash.remove(this.seq.peek().getId());
-        this.trailChain.pop();
-        this.seq.pop();
+        final int top = top();
+        if (trailDepth == 0) {
+            throw new EmptyStackException();
+        }
+        trails[--trailDepth] = null;
+
+        pop(top);
+        depth--;
     }
 
     /**
      * Clear the brain. This is useful if the ant returns to the anthill.
      */
     public void clear() {
-        this.seq.clear();
-        this.trailChain.clear();
-        this.seqHash.clear();
+        Arrays.fill(trails, 0, trailDepth, null);
+        trailDepth = 0;
+        for (int entry = depth - 1; entry >= 0; entry--) {
+            pop(entry);
+        }
+        depth = 0;
+    }
+
+    /**
+     * Make the entry below the given top entry of its clearing the top entry, or forget the clearing.
+     */
+    private void pop(final int entry) {
+        if (previous[entry] < 0) {
+            remove(clearings[entry]);
+        } else {
+            put(clearings[entry], previous[entry]);
+        }
     }
 
     /**
      * Check if the clearing with the given id is already part of the current route to prevent circles.
      *
-     * @param id ID of the clearing to check
+     * @param id index of the clearing to check
      * @return true if the clearing is already part of the current traverse.
      */
-    /*public boolean alreadySeen(int id) {
-        for (Pair pair : this.seq) {
-            if (pair.getId() == id) {
-                return true;
-            }
-        }
-        return false;
-    }*/
-
-    public boolean alreadySeen(int id) {
-       return seqHash.contains(id);
+    public boolean alreadySeen(final int id) {
+        return entry(id) >= 0;
     }
 
     /**
@@ -201,26 +318,53 @@ public class Sequence {
      *
      * @param path index of the path that is newly blocked.
      */
-    public void addBlock(int path) {
-        this.seq.peek().addBlock(path);
+    public void addBlock(final int path) {
+        block(top(), path);
     }
 
-    public void addBlock(int id, int path) {
-        for (Pair pair : this.seq) {
-            if (pair.getId() == id) {
-                pair.addBlock(path);
-            }
+    /**
+     * Add a new blocked-flag to the index path of every entry of a clearing.
+     *
+     * @param id   index of the clearing
+     * @param path index of the path that is newly blocked
+     */
+    public void addBlock(final int id, final int path) {
+        for (int entry = entry(id); entry >= 0; entry = previous[entry]) {
+            block(entry, path);
         }
     }
 
+    private void block(final int entry, final int path) {
+        final int bit = offsets[entry] + Objects.checkIndex(path, offsets[entry + 1] - offsets[entry]);
+        blocked[bit >>> 6] |= 1L << bit;
+    }
+
     /**
      * Check if the queried path is viable in the latest brain-entity.
      *
      * @param path index of the path to be checked
      * @return true if the path can be traversed
      */
-    public boolean viable(int path) {
-        return this.seq.peek().viable(path);
+    public boolean viable(final int path) {
+        return viable(top(), path);
+    }
+
+    private boolean viable(final int entry, final int path) {
+        final int bit = offsets[entry] + Objects.checkIndex(path, offsets[entry + 1] - offsets[entry]);
+        return (blocked[bit >>> 6] & 1L << bit) == 0;
+    }
+
+    /**
+     * Get the latest brain-entity.
+     *
+     * @return index of the top entry
+     * @throws EmptyStackException if the brain is empty
+     */
+    private int top() {
+        if (depth == 0) {
+            throw new EmptyStackException();
+        }
+        return depth - 1;
     }
 
     /**
@@ -229,6 +373,6 @@ public class Sequence {
      * @return length of the internal sequence of clearings
      */
     public int length() {
-        return this.seq.size();
+        return depth;
     }
 }
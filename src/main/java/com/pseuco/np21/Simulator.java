@@ -12,7 +12,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Entrypoint of the program and simulation manager.
@@ -22,6 +25,37 @@ import java.util.stream.Collectors;
 public class Simulator {
     private final World<Clearing, Trail> world;
     private final Recorder recorder;
+    private final Options options;
+
+    /**
+     * Threads of the ants of the current run, {@code null} before {@link #run()} started them.
+     */
+    private volatile Thread[] antThreads;
+
+    /**
+     * Scheduler of the current {@link Engine#WORKER_POOL} run, {@code null} otherwise.
+     */
+    private volatile WorkerPoolScheduler pool;
+
+    /**
+     * Scheduler of the current {@link Engine#DISCRETE_EVENT} run, {@code null} otherwise.
+     */
+    private volatile DiscreteEventScheduler events;
+
+    /**
+     * Ants of the current run, {@code null} before {@link #run()} created them.
+     */
+    private volatile List<Ant> ants;
+
+    /**
+     * Set by {@link #cancel()}, ants created afterwards are cancelled right away.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Whether {@link #start()} was called, a simulator runs once.
+     */
+    private final AtomicBoolean started = new AtomicBoolean();
 
     /**
      * Constructs a new simulator.
@@ -32,8 +66,38 @@ public class Simulator {
      * @param recorder to record actions against
      */
     public Simulator(final World<Clearing, Trail> world, final Recorder recorder) {
+        this(world, recorder, Options.DEFAULT);
+    }
+
+    /**
+     * Constructs a new simulator running its ants on threads of the given mode.
+     *
+     * @param world    to simulate
+     * @param recorder to record actions against
+     * @param mode     of the threads the ants run on
+     * @throws UnsupportedOperationException if the running JVM does not support {@code mode}
+     */
+    public Simulator(final World<Clearing, Trail> world, final Recorder recorder, final ExecutionMode mode) {
+        this(world, recorder, Options.DEFAULT.withThreads(mode));
+    }
+
+    /**
+     * Constructs a new simulator with the given options.
+     *
+     * @param world    to simulate
+     * @param recorder to record actions against
+     * @param options  of the simulation
+     * @throws UnsupportedOperationException if the running JVM does not support the requested threads
+     */
+    public Simulator(final World<Clearing, Trail> world, final Recorder recorder, final Options options) {
+        if (!options.threads().isSupported()) {
+            throw new UnsupportedOperationException(
+                    String.format("Thread mode %s is not supported by this JVM!", options.threads()));
+        }
+
         this.world = world;
         this.recorder = recorder;
+        this.options = options;
     }
 
     /**
@@ -42,29 +106,198 @@ public class Simulator {
      * You may change this except for the signature.
      */
     public void run() {
-        final List<Ant> ants = world.ants().stream()
-                .map(a -> new Ant(a, world, recorder))
-                .collect(Collectors.toList());
+        if (world instanceof Colony colony) {
+            colony.profile(options.contention() ? new Contention(colony) : null);
+        }
+        if (options.engine() == Engine.DISCRETE_EVENT) {
+            runDiscreteEvents();
+            return;
+        }
+        if (options.engine() == Engine.WORKER_POOL) {
+            runWorkerPool();
+            return;
+        }
+
+        final List<Ant> ants = createAnts(LockScheduler.INSTANCE);
 
         this.recorder.start();
 
         Thread[] antThreads = new Thread[ants.size()];
         for (int i = 0 ; i < antThreads.length ; ++i) {
-            antThreads[i] = new Thread(ants.get(i));
-            antThreads[i].start();
+            antThreads[i] = options.threads().newThread(ants.get(i));
+        }
+        this.antThreads = antThreads;
+        if (cancelled) {
+            // cancel ran before the threads were published, it could not interrupt them
+            ants.forEach(Ant::cancel);
+        }
+        for (Thread antThread : antThreads) {
+            antThread.start();
         }
 
+        // every ant records its own despawn, so an interrupt of this thread cancels the ants and waits for them
+        boolean interrupted = false;
         for (int i = 0 ; i < antThreads.length ; ++i) {
             try {
                 antThreads[i].join();
             } catch (InterruptedException e) {
-                ants.get(i).terminate();
+                interrupted = true;
+                cancel();
+                i--;
             }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        this.recorder.stop();
+    }
+
+    /**
+     * Create the ants with behavior for all ants of the world.
+     *
+     * @param scheduler the ants use to wait for each other
+     * @return ants in the order of the world
+     */
+    private List<Ant> createAnts(final Scheduler scheduler) {
+        final var templates = world.ants();
+        final List<Ant> ants = IntStream.range(0, templates.size())
+                .mapToObj(i -> new Ant(templates.get(i), i, world, recorder, scheduler, randomFor(i)))
+                .collect(Collectors.toList());
+        this.ants = ants;
+        if (cancelled) {
+            ants.forEach(Ant::cancel);
+        }
+        return ants;
+    }
+
+    /**
+     * Get the random stream of an ant.
+     *
+     * @param index of the ant in the world
+     * @return new random stream used by this ant only
+     */
+    private SplittableRandom randomFor(final int index) {
+        if (options.seed().isEmpty()) {
+            return new SplittableRandom();
+        }
+        return randomFor(options.seed().getAsLong(), index);
+    }
+
+    /**
+     * Get the seeded random stream of an ant.
+     * <p>
+     * The stream is derived from the seed and the index of the ant in the world only, so every ant has a stream of its
+     * own, even if the ants file repeats a name, and an ant makes the same choices no matter how many ants follow it.
+     *
+     * @param seed  of the simulation
+     * @param index of the ant in the world
+     * @return new random stream used by this ant only
+     */
+    static SplittableRandom randomFor(final long seed, final int index) {
+        // mix the index into the seed (MurmurHash3 finalizer) so neighbouring ants get unrelated streams
+        long mixed = seed ^ ((index + 1) * 0x9E3779B97F4A7C15L);
+        mixed = (mixed ^ (mixed >>> 33)) * 0xFF51AFD7ED558CCDL;
+        mixed = (mixed ^ (mixed >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return new SplittableRandom(mixed ^ (mixed >>> 33));
+    }
+
+    /**
+     * The simulation on virtual time, see {@link Engine#DISCRETE_EVENT}.
+     */
+    private void runDiscreteEvents() {
+        final var scheduler = new DiscreteEventScheduler(options.timeLimit());
+        final List<Ant> ants = createAnts(scheduler);
+        this.events = scheduler;
+        if (cancelled) {
+            scheduler.stop();
+        }
 
+        this.recorder.start();
+        scheduler.run(ants);
         this.recorder.stop();
     }
 
+    /**
+     * The simulation on a bounded pool of worker threads, see {@link Engine#WORKER_POOL}.
+     */
+    private void runWorkerPool() {
+        final var scheduler = new WorkerPoolScheduler(options.workers());
+        final List<Ant> ants = createAnts(scheduler);
+        this.pool = scheduler;
+        if (cancelled) {
+            scheduler.cancel();
+        }
+
+        this.recorder.start();
+        scheduler.run(ants, options.threads());
+        this.recorder.stop();
+    }
+
+    /**
+     * Start the simulation on a thread of its own.
+     * <p>
+     * The returned handle cancels the run, see {@link #cancel()}, and waits for its {@link Run.Result}. If the options
+     * have a {@link Options#deadline() deadline}, the run is cancelled once it passed.
+     *
+     * @return handle of the run
+     * @throws IllegalStateException if the simulator was started before
+     */
+    public Run start() {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException("A simulator can only be started once!");
+        }
+        return new Run(this, world, options.deadline());
+    }
+
+    /**
+     * Terminate every ant of the current run.
+     * <p>
+     * Every ant that spawned despawns with {@link com.pseuco.np21.shared.Recorder.DespawnReason#TERMINATED} unless it
+     * terminates for another reason first, and the ants that did not spawn yet do so with their first step. The
+     * despawn is recorded by the ant itself, so {@link #run()} returns once all of them did.
+     * <p>
+     * Ants on threads are cancelled and only the threads this simulator started are interrupted, to wake those that
+     * wait. Virtual threads are not visible to {@link Thread#getAllStackTraces()}, so this is the only way to reach
+     * them. Ants on a worker pool or on virtual time do not own a thread and are cancelled by their scheduler. This may
+     * be called from any thread at any time, also before {@link #run()} started.
+     */
+    public void cancel() {
+        cancelled = true;
+
+        final List<Ant> ants = this.ants;
+        if (ants != null) {
+            ants.forEach(Ant::cancel);
+        }
+
+        final WorkerPoolScheduler pool = this.pool;
+        if (pool != null) {
+            pool.cancel();
+        }
+
+        final DiscreteEventScheduler events = this.events;
+        if (events != null) {
+            events.stop();
+        }
+
+        final Thread[] threads = this.antThreads;
+        if (threads != null) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Terminate every ant of the current run, see {@link #cancel()}.
+     * <p>
+     * A simulation on virtual time is cancelled at its current virtual time, limit it by {@link Options#timeLimit()} to
+     * get the same outcome on every run.
+     */
+    public void interrupt() {
+        cancel();
+    }
+
     /**
      * Entrypoint of the program.
      * <p>
@@ -0,0 +1,520 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Clearing;
+import com.pseuco.np21.shared.Factory;
+import com.pseuco.np21.shared.Position;
+import com.pseuco.np21.shared.Trail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming parser for map and ant files.
+ * <p>
+ * Accepts the same files as {@link com.pseuco.np21.shared.Parser}, calls the factory in the same order and fails
+ * with the same exceptions, but reads the files in chunks from a channel and matches lines with a hand-written
+ * tokenizer instead of regular expressions. Clearings, trails and ants are passed to the factory as soon as their
+ * line was read, so the files never have to fit into memory as a whole. {@link com.pseuco.np21.Factory} also gets the
+ * positions of the clearings, which the regular parser drops.
+ * <p>
+ * Like {@code Parser}, map lines end with {@code \n} or {@code \r\n}, ant lines with the line separator of the system,
+ * and lines that do not match are silently skipped or end the section they are in.
+ */
+public final class StreamingParser {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int bufferSize;
+
+    private long bytes;
+    private long nanos;
+
+    /**
+     * Constructs a new parser.
+     */
+    public StreamingParser() {
+        this(BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new parser reading chunks of the given size, lines may still be longer.
+     *
+     * @param bufferSize initial size of the read buffer
+     */
+    StreamingParser(final int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Parses a new world from the given files.
+     *
+     * @param mapFile  map file
+     * @param antsFile ants file
+     * @param factory  used to construct the world
+     * @return name of the constructed world
+     * @throws IOException              if a file cannot be read or is no valid UTF-8
+     * @throws IllegalArgumentException if the files are malformed
+     */
+    public String parse(final Path mapFile, final Path antsFile, final Factory<?, ?> factory) throws IOException {
+        try (final var map = FileChannel.open(mapFile); final var ants = FileChannel.open(antsFile)) {
+            return parse(map, ants, factory);
+        }
+    }
+
+    /**
+     * Parses a new world from the given channels, which are read to their end but not closed.
+     *
+     * @param map     channel of the map file
+     * @param ants    channel of the ants file
+     * @param factory used to construct the world
+     * @return name of the constructed world
+     * @throws IOException              if a channel cannot be read or is no valid UTF-8
+     * @throws IllegalArgumentException if the files are malformed
+     */
+    public String parse(final ReadableByteChannel map, final ReadableByteChannel ants, final Factory<?, ?> factory)
+            throws IOException {
+        final var start = System.nanoTime();
+        final var mapLines = new Lines(map, bufferSize, false, true);
+        final var antLines = new Lines(ants, bufferSize, "\r\n".equals(System.lineSeparator()), false);
+        try {
+            final var name = parseMap(mapLines, factory);
+            parseAnts(antLines, factory);
+            return name;
+        } finally {
+            bytes += mapLines.bytes + antLines.bytes;
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Get the number of bytes parsed so far.
+     *
+     * @return number of bytes
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Get the throughput of all parses so far.
+     *
+     * @return megabytes ({@code 10^6} bytes) per second
+     */
+    public double throughput() {
+        return nanos == 0 ? 0 : bytes / 1e6 / (nanos / 1e9);
+    }
+
+    private static <C extends Clearing<C, T>, T extends Trail<C, T>>
+    String parseMap(final Lines lines, final Factory<C, T> factory) throws IOException {
+        // the regular parser splits the file into lines and drops empty lines at its end, which only matters for
+        // counting lines and for whether the last clearing is checked to be unique
+        if (!lines.next()) {
+            throw new IllegalArgumentException("Map files must contain at least 2 lines!");
+        }
+        final var name = lines.string();
+        final var validName = lines.name() && lines.atEnd();
+        if (!lines.next()) {
+            throw new IllegalArgumentException("Map files must contain at least 2 lines!");
+        }
+        final var noClearing = lines.isEmpty();
+        if (noClearing && !lines.skipEmpty()) {
+            throw new IllegalArgumentException("Map files must contain at least 2 lines!");
+        }
+        if (!validName) {
+            throw new IllegalArgumentException(
+                    String.format("Map file must start with a name! \"%s\" is not a valid name!", name));
+        }
+
+        final var clearings = new HashMap<String, C>();
+        C clearing = noClearing ? null : parseClearing(lines, factory);
+        if (clearing == null) {
+            throw new IllegalArgumentException("Map file needs at least one clearing!");
+        }
+        factory.setAnthill(clearing);
+        while (clearing != null) {
+            if (!lines.next()) {
+                return name;
+            }
+            if (lines.isEmpty()) {
+                // nothing after an empty line is parsed, it only decides whether this clearing is the last one
+                if (lines.skipEmpty() && clearings.containsKey(clearing.name())) {
+                    throw new IllegalArgumentException("Clearing names must be unique!");
+                }
+                return name;
+            }
+
+            if (clearings.containsKey(clearing.name())) {
+                throw new IllegalArgumentException("Clearing names must be unique!");
+            }
+            clearings.put(clearing.name(), clearing);
+
+            clearing = parseClearing(lines, factory);
+        }
+
+        do {
+            if (!parseTrail(lines, clearings, factory)) {
+                break;
+            }
+        } while (lines.next());
+
+        return name;
+    }
+
+    /**
+     * Parse a line {@code name;capacity;food;(x,y)}.
+     *
+     * @return the new clearing or {@code null} if the line does not match
+     */
+    private static <C extends Clearing<C, T>, T extends Trail<C, T>>
+    C parseClearing(final Lines lines, final Factory<C, T> factory) {
+        lines.rewind();
+        if (!lines.name()) {
+            return null;
+        }
+        final int nameStart = lines.tokenStart, nameEnd = lines.tokenEnd;
+        if (!lines.expect(';') || !lines.number()) {
+            return null;
+        }
+        final int capacityStart = lines.tokenStart, capacityEnd = lines.tokenEnd;
+        if (!lines.expect(';') || !lines.number()) {
+            return null;
+        }
+        final int foodStart = lines.tokenStart, foodEnd = lines.tokenEnd;
+        if (!lines.expect(';') || !lines.expect('(') || !lines.number()) {
+            return null;
+        }
+        final int xStart = lines.tokenStart, xEnd = lines.tokenEnd;
+        if (!lines.expect(',') || !lines.number()) {
+            return null;
+        }
+        final int yStart = lines.tokenStart, yEnd = lines.tokenEnd;
+        if (!lines.expect(')') || !lines.atEnd()) {
+            return null;
+        }
+
+        final var name = lines.string(nameStart, nameEnd);
+        final int capacity = lines.integer(capacityStart, capacityEnd);
+        final int food = lines.integer(foodStart, foodEnd);
+        // the position must be a valid integer, but only our factory keeps it
+        final int x = lines.integer(xStart, xEnd);
+        final int y = lines.integer(yStart, yEnd);
+
+        if (factory instanceof com.pseuco.np21.Factory positions) {
+            @SuppressWarnings("unchecked") final var clearing =
+                    (C) positions.createClearing(name, food, Position.Capacity.get(capacity), x, y);
+            return clearing;
+        }
+        return factory.createClearing(name, food, Position.Capacity.get(capacity));
+    }
+
+    /**
+     * Parse a line {@code nameA-nameB}.
+     *
+     * @return {@code true} iff the line matches
+     */
+    private static <C extends Clearing<C, T>, T extends Trail<C, T>>
+    boolean parseTrail(final Lines lines, final Map<String, C> clearings, final Factory<C, T> factory) {
+        lines.rewind();
+        if (!lines.name()) {
+            return false;
+        }
+        final int aStart = lines.tokenStart, aEnd = lines.tokenEnd;
+        if (!lines.expect('-') || !lines.name() || !lines.atEnd()) {
+            return false;
+        }
+
+        final var nameA = lines.string(aStart, aEnd);
+        final var nameB = lines.string(lines.tokenStart, lines.tokenEnd);
+
+        final var clearingA = clearings.get(nameA);
+        final var clearingB = clearings.get(nameB);
+
+        if (clearingA == null || clearingB == null) {
+            throw new IllegalArgumentException(
+                    String.format("Could not find clearing \"%s\" or \"%s\"!", nameA, nameB));
+        }
+
+        factory.createTrail(clearingA, clearingB);
+
+        return true;
+    }
+
+    private static void parseAnts(final Lines lines, final Factory<?, ?> factory) throws IOException {
+        // the regular parser only fails if the file consists of line separators alone
+        boolean separated = false, content = false;
+        while (lines.next()) {
+            separated |= lines.terminated;
+            if (!lines.isEmpty()) {
+                content = true;
+                parseAnt(lines, factory);
+            }
+        }
+        if (separated && !content) {
+            throw new IllegalArgumentException("Ants files must contain at least 1 line!");
+        }
+    }
+
+    /**
+     * Parse a line {@code name;impatience;disguise}, lines that do not match are skipped.
+     */
+    private static void parseAnt(final Lines lines, final Factory<?, ?> factory) {
+        lines.rewind();
+        if (!lines.name()) {
+            return;
+        }
+        final int nameStart = lines.tokenStart, nameEnd = lines.tokenEnd;
+        if (!lines.expect(';') || !lines.number()) {
+            return;
+        }
+        final int impatienceStart = lines.tokenStart, impatienceEnd = lines.tokenEnd;
+        if (!lines.expect(';') || !lines.number() || !lines.atEnd()) {
+            return;
+        }
+
+        final var name = lines.string(nameStart, nameEnd);
+        final int impatience = lines.integer(impatienceStart, impatienceEnd);
+        final int disguise = lines.integer(lines.tokenStart, lines.tokenEnd);
+
+        factory.createAnt(name, impatience, disguise);
+    }
+
+    /**
+     * Tokenizer reading a channel line by line.
+     * <p>
+     * The current line is the range {@code [start, end)} of {@code buffer} without its terminator and stays valid
+     * until the next call of {@link #next()}. Tokens are matched from {@code cursor} on.
+     */
+    private static final class Lines {
+        private final ReadableByteChannel channel;
+        /**
+         * Whether lines end with {@code \r\n} only, otherwise they end with {@code \n}, and whether a {@code \r}
+         * in front of it belongs to the terminator in that case.
+         */
+        private final boolean crlf, stripCarriageReturn;
+
+        private byte[] buffer;
+        private int position, limit;
+        private boolean eof;
+        private long bytes;
+
+        private int start, end, cursor;
+        private int tokenStart, tokenEnd;
+        /**
+         * Whether the current line ended with a terminator, and whether it consists of several pieces separated by a
+         * {@code \n} that is not a terminator, see {@link #crlf}. Only the last piece of a joined line is kept.
+         */
+        private boolean terminated, joined;
+
+        private Lines(final ReadableByteChannel channel, final int bufferSize, final boolean crlf,
+                      final boolean stripCarriageReturn) {
+            this.channel = channel;
+            this.buffer = new byte[Math.max(bufferSize, 1)];
+            this.crlf = crlf;
+            this.stripCarriageReturn = stripCarriageReturn;
+        }
+
+        /**
+         * Advance to the next line.
+         *
+         * @return {@code false} iff the end of the input was reached
+         * @throws IOException if the input cannot be read or is no valid UTF-8
+         */
+        boolean next() throws IOException {
+            if (!piece()) {
+                return false;
+            }
+
+            joined = false;
+            if (crlf) {
+                while (terminated && !endsWithCarriageReturn()) {
+                    // the \n is part of the line, which can thus never match
+                    joined = true;
+                    if (!piece()) {
+                        terminated = false;
+                        break;
+                    }
+                }
+                if (terminated) {
+                    end--;
+                }
+            } else if (stripCarriageReturn && terminated && endsWithCarriageReturn()) {
+                end--;
+            }
+            cursor = start;
+            return true;
+        }
+
+        private boolean endsWithCarriageReturn() {
+            return end > start && buffer[end - 1] == '\r';
+        }
+
+        /**
+         * Read up to the next {@code \n}.
+         */
+        private boolean piece() throws IOException {
+            int scan = position;
+            while (true) {
+                for (int i = scan; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        return found(i, true);
+                    }
+                }
+                scan = limit;
+
+                if (eof) {
+                    return position < limit && found(limit, false);
+                }
+
+                // keep the unread part, it belongs to the line being read
+                if (position > 0) {
+                    System.arraycopy(buffer, position, buffer, 0, limit - position);
+                    scan -= position;
+                    limit -= position;
+                    position = 0;
+                }
+                if (limit == buffer.length) {
+                    final var grown = new byte[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, limit);
+                    buffer = grown;
+                }
+                final int read = channel.read(ByteBuffer.wrap(buffer, limit, buffer.length - limit));
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    limit += read;
+                    bytes += read;
+                }
+            }
+        }
+
+        private boolean found(final int terminator, final boolean terminated) throws IOException {
+            start = position;
+            end = terminator;
+            position = terminated ? terminator + 1 : terminator;
+            this.terminated = terminated;
+            checkEncoding(start, end);
+            return true;
+        }
+
+        /**
+         * Fail like reading the file as a string does if the line is no valid UTF-8.
+         */
+        private void checkEncoding(final int from, final int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                if (buffer[i] < 0) {
+                    StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(buffer, from, to - from));
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Skip empty lines.
+         *
+         * @return {@code true} iff a non-empty line follows
+         */
+        boolean skipEmpty() throws IOException {
+            while (next()) {
+                if (!isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Match tokens from the start of the current line again.
+         */
+        void rewind() {
+            cursor = start;
+        }
+
+        boolean isEmpty() {
+            return start == end && !joined;
+        }
+
+        boolean atEnd() {
+            return cursor == end && !joined;
+        }
+
+        boolean expect(final char c) {
+            if (cursor < end && buffer[cursor] == c) {
+                cursor++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Match {@code \w+}, i.e. ASCII letters, digits and underscores.
+         */
+        boolean name() {
+            tokenStart = cursor;
+            while (cursor < end) {
+                final byte b = buffer[cursor];
+                if (!(b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9' || b == '_')) {
+                    break;
+                }
+                cursor++;
+            }
+            tokenEnd = cursor;
+            return tokenEnd > tokenStart;
+        }
+
+        /**
+         * Match {@code [-+]?\d+}.
+         */
+        boolean number() {
+            tokenStart = cursor;
+            if (cursor < end && (buffer[cursor] == '-' || buffer[cursor] == '+')) {
+                cursor++;
+            }
+            final int digits = cursor;
+            while (cursor < end && buffer[cursor] >= '0' && buffer[cursor] <= '9') {
+                cursor++;
+            }
+            tokenEnd = cursor;
+            return cursor > digits;
+        }
+
+        /**
+         * Convert a matched number like {@link Integer#parseInt(String)} does.
+         *
+         * @throws NumberFormatException if the number does not fit into an int
+         */
+        int integer(final int from, final int to) {
+            final boolean negative = buffer[from] == '-';
+            int i = buffer[from] == '-' || buffer[from] == '+' ? from + 1 : from;
+            long value = 0;
+            for (; i < to; i++) {
+                value = value * 10 + (buffer[i] - '0');
+                if (value > 1L + Integer.MAX_VALUE) {
+                    break;
+                }
+            }
+            if (negative) {
+                value = -value;
+            }
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException(String.format("For input string: \"%s\"", string(from, to)));
+            }
+            return (int) value;
+        }
+
+        String string(final int from, final int to) {
+            return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Get the whole current line.
+         */
+        String string() {
+            return string(start, end);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.World;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+
+/**
+ * Parameter sweep over the populations of a world: every combination of population size, impatience and disguise is
+ * a cell of the grid, and every cell is simulated with a population of equal ants created by
+ * {@link Factory#createAnt}.
+ * <p>
+ * The world is parsed once. At most {@code parallelism} cells are simulated at once, each thread of the pool spawns
+ * one world from the {@link Topology} and {@link Colony#reset(List) resets} it with the ants of its next cell. Run
+ * {@code r} of every cell uses the seed of the options plus {@code r}, so all cells face the same random streams.
+ * <p>
+ * Finished cells are appended to a cache file as soon as they are done, so an interrupted sweep resumes with the
+ * missing cells. Every line of the cache carries a key of the map, the food threshold, the number of runs and the
+ * options that change results, and only lines with the key of this sweep are reused. The key is kept in full, and the
+ * number of workers is only part of it on {@link Engine#WORKER_POOL}, so a sweep resumes on a machine with a different
+ * number of processors.
+ */
+public final class Sweep {
+    private static final String HEADER = "key,population,impatience,disguise,runs,food,seconds,eaten";
+
+    /**
+     * Values of a swept parameter.
+     *
+     * @param values in the order they are swept
+     */
+    public record Axis(List<Integer> values) {
+        /**
+         * Create an axis.
+         *
+         * @throws IllegalArgumentException if there are no values
+         */
+        public Axis {
+            if (values.isEmpty()) {
+                throw new IllegalArgumentException("An axis needs at least one value!");
+            }
+            values = List.copyOf(values);
+        }
+
+        /**
+         * Get the axis for a command line value.
+         *
+         * @param value either a list {@code <a>,<b>,...}, a range {@code <min>..<max>[:<step>]} or a single number
+         * @return matching axis
+         * @throws IllegalArgumentException if the value is no axis
+         */
+        public static Axis parse(final String value) {
+            try {
+                final var values = new ArrayList<Integer>();
+                for (final var part : value.split(",")) {
+                    final var range = part.split(":", 2);
+                    final var bounds = range[0].split("\\.\\.", 2);
+                    final int min = Integer.parseInt(bounds[0].strip());
+                    final int max = bounds.length == 1 ? min : Integer.parseInt(bounds[1].strip());
+                    final int step = range.length == 1 ? 1 : Integer.parseInt(range[1].strip());
+                    if (min > max || step < 1) {
+                        throw new IllegalArgumentException(String.format("Invalid range \"%s\"!", part));
+                    }
+                    for (long v = min; v <= max; v += step) {
+                        values.add((int) v);
+                    }
+                }
+                return new Axis(values);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Invalid axis \"%s\"!", value), e);
+            }
+        }
+    }
+
+    /**
+     * Configuration of a population.
+     *
+     * @param population number of ants
+     * @param impatience of every ant
+     * @param disguise   of every ant
+     */
+    public record Cell(int population, int impatience, int disguise) {
+    }
+
+    /**
+     * Totals over the runs of a cell.
+     *
+     * @param cell    that was simulated
+     * @param runs    of the cell
+     * @param food    returned to the anthill in all runs
+     * @param seconds of real time all runs took
+     * @param eaten   ants in all runs
+     */
+    public record Result(Cell cell, int runs, long food, double seconds, long eaten) {
+        /**
+         * Get the food returned per second of real time.
+         *
+         * @return food per second
+         */
+        public double foodPerSecond() {
+            return food / seconds;
+        }
+
+        /**
+         * Get the share of the ants that were eaten.
+         *
+         * @return ratio in {@code [0, 1]}
+         */
+        public double eatenRatio() {
+            return (double) eaten / ((long) runs * cell.population());
+        }
+    }
+
+    private final Topology topology;
+    private final int foodThreshold;
+    private final Options options;
+    private final List<Cell> cells;
+    private final int runs;
+    private final int parallelism;
+    private final Path cache;
+    private final String key;
+
+    /**
+     * Constructs a sweep over a world.
+     *
+     * @param template      world to spawn the runs from, its ants are ignored and it is never simulated itself
+     * @param foodThreshold the ants of every run have to reach, {@code -1} for all food
+     * @param options       to simulate every run with, see the class comment for the seeds
+     * @param populations   numbers of ants to sweep, all positive
+     * @param impatiences   impatience values to sweep
+     * @param disguises     disguise values to sweep
+     * @param runs          per cell, at least one
+     * @param parallelism   maximal number of cells simulated at once, at least one
+     * @param cache         file keeping the finished cells
+     */
+    public Sweep(final World<Clearing, Trail> template, final int foodThreshold, final Options options,
+                 final Axis populations, final Axis impatiences, final Axis disguises, final int runs,
+                 final int parallelism, final Path cache) {
+        if (runs < 1 || parallelism < 1 || populations.values().stream().anyMatch(population -> population < 1)) {
+            throw new IllegalArgumentException("A sweep needs at least one ant, run and cell at a time!");
+        }
+        this.topology = Topology.of(template);
+        this.foodThreshold = foodThreshold;
+        this.options = options;
+        this.runs = runs;
+        this.parallelism = parallelism;
+        this.cache = cache;
+        this.key = key(topology, foodThreshold, options, runs);
+
+        this.cells = new ArrayList<>();
+        for (final int population : populations.values()) {
+            for (final int impatience : impatiences.values()) {
+                for (final int disguise : disguises.values()) {
+                    cells.add(new Cell(population, impatience, disguise));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the key of the cached cells of a sweep, made of everything that changes their results. It must not contain a
+     * comma.
+     */
+    private static String key(final Topology topology, final int foodThreshold, final Options options,
+                              final int runs) {
+        final var key = new StringJoiner(";");
+        key.add(Long.toHexString(topology.fingerprint()))
+                .add("food=" + foodThreshold)
+                .add("runs=" + runs)
+                .add("engine=" + options.engine().name().toLowerCase())
+                .add("threads=" + options.threads().name().toLowerCase())
+                .add("seed=" + options.seed().orElse(0))
+                .add("limit=" + options.timeLimit())
+                .add("deadline=" + options.deadline());
+        if (options.engine() == Engine.WORKER_POOL) {
+            key.add("workers=" + options.workers());
+        }
+        return key.toString();
+    }
+
+    /**
+     * Simulate the cells missing in the cache and wait for them.
+     *
+     * @return the results of all cells in grid order: population, then impatience, then disguise
+     * @throws IOException           if the cache cannot be read or written
+     * @throws InterruptedException  if the waiting thread was interrupted, the finished cells are cached
+     * @throws IllegalStateException if a run failed
+     */
+    public List<Result> run() throws IOException, InterruptedException {
+        final var results = read();
+        final var missing = cells.stream().filter(cell -> !results.containsKey(cell)).toList();
+
+        if (!missing.isEmpty()) {
+            final var worlds = ThreadLocal.withInitial(() -> (Colony) topology.spawn(foodThreshold));
+            final var executor = Executors.newFixedThreadPool(Math.min(parallelism, missing.size()));
+            final var completion = new ExecutorCompletionService<Result>(executor);
+            try (final var out = open()) {
+                for (final var cell : missing) {
+                    completion.submit(() -> simulate(worlds, cell));
+                }
+                for (int i = 0; i < missing.size(); i++) {
+                    final var result = completion.take().get();
+                    write(out, result);
+                    results.put(result.cell(), result);
+                }
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A run of the sweep failed!", e.getCause());
+            } finally {
+                // interrupts the cells still running, which cancel their simulations
+                executor.shutdownNow();
+            }
+        }
+
+        return cells.stream().map(results::get).toList();
+    }
+
+    /**
+     * Simulate all runs of a cell on the world of the pool thread.
+     */
+    private Result simulate(final ThreadLocal<Colony> worlds, final Cell cell) throws InterruptedException {
+        final var factory = new Factory(0, cell.population());
+        final var ants = new ArrayList<Ant>(cell.population());
+        for (int i = 0; i < cell.population(); i++) {
+            ants.add(factory.createAnt("A" + i, cell.impatience(), cell.disguise()));
+        }
+
+        final var world = worlds.get();
+        final long base = options.seed().orElse(0);
+        long food = 0, nanos = 0, eaten = 0;
+        try {
+            for (int r = 0; r < runs; r++) {
+                world.reset(ants);
+                final var sample = Ensemble.simulate(world, options, base + r);
+                food += sample.collected();
+                nanos += sample.elapsed().toNanos();
+                eaten += sample.despawns().get(Recorder.DespawnReason.DISCOVERED_AND_EATEN);
+            }
+        } catch (InterruptedException e) {
+            // the ants of the cancelled run may still be on the world
+            worlds.remove();
+            throw e;
+        }
+        return new Result(cell, runs, food, nanos / 1e9, eaten);
+    }
+
+    /**
+     * Read the cells of this sweep from the cache, skipping lines of other sweeps and a last line cut off by an
+     * interruption, i.e. without a line break.
+     */
+    private Map<Cell, Result> read() throws IOException {
+        final var results = new HashMap<Cell, Result>();
+        if (!Files.exists(cache)) {
+            return results;
+        }
+        final var content = Files.readString(cache, StandardCharsets.UTF_8);
+        for (final var line : content.substring(0, content.lastIndexOf('\n') + 1).split("\n")) {
+            final var fields = line.split(",");
+            if (fields.length != 8 || !fields[0].equals(key)) {
+                continue;
+            }
+            try {
+                final var cell = new Cell(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]));
+                results.put(cell, new Result(cell, Integer.parseInt(fields[4]), Long.parseLong(fields[5]),
+                        Double.parseDouble(fields[6]), Long.parseLong(fields[7])));
+            } catch (NumberFormatException e) {
+                // not written by a sweep, e.g. edited by hand
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Open the cache for appending, starting a new line if the last one was cut off.
+     */
+    private BufferedWriter open() throws IOException {
+        boolean cutOff = false;
+        if (Files.exists(cache) && Files.size(cache) > 0) {
+            try (final var channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+                final var last = ByteBuffer.allocate(1);
+                channel.read(last, channel.size() - 1);
+                cutOff = last.get(0) != '\n';
+            }
+        }
+        final boolean fresh = !Files.exists(cache) || Files.size(cache) == 0;
+        final var out = Files.newBufferedWriter(cache, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        if (cutOff) {
+            out.write('\n');
+        }
+        if (fresh) {
+            out.write(HEADER);
+            out.write('\n');
+        }
+        return out;
+    }
+
+    /**
+     * Append a finished cell to the cache and flush it, so it survives the process being killed.
+     */
+    private void write(final BufferedWriter out, final Result result) throws IOException {
+        final var cell = result.cell();
+        out.write(String.join(",", key, String.valueOf(cell.population()), String.valueOf(cell.impatience()),
+                String.valueOf(cell.disguise()), String.valueOf(result.runs()), String.valueOf(result.food()),
+                String.valueOf(result.seconds()), String.valueOf(result.eaten())));
+        out.write('\n');
+        out.flush();
+    }
+}
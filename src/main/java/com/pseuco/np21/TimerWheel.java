@@ -0,0 +1,293 @@
+package com.pseuco.np21;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical timer wheel owning the deadlines of all waiting ants.
+ * <p>
+ * Deadlines are kept in five wheels of doubly linked buckets with a resolution of one millisecond: the first wheel has
+ * a bucket for each of the next 256 milliseconds, each further wheel covers 64 times the span of the previous one with
+ * 64 buckets. Whenever the first wheel completes a turn, the next bucket of the second wheel is spread over the first
+ * one, and so on. Scheduling and cancelling a timeout are thus constant time no matter how many timeouts are pending,
+ * and a single thread fires all of them.
+ * <p>
+ * Between two expirations the thread sleeps until the tick of the next occupied bucket of the first wheel, or until the
+ * next cascade if the first wheel is empty. Scheduling a timeout that is due earlier wakes it up.
+ * <p>
+ * Tasks of expired timeouts run on the thread of the wheel, so they have to be short and must not block. Exceptions
+ * thrown by a task are passed to the uncaught exception handler of the thread and do not affect the other tasks.
+ */
+final class TimerWheel {
+    private static final int ROOT_BITS = 8, LEVEL_BITS = 6, LEVELS = 4;
+    private static final int ROOT_SIZE = 1 << ROOT_BITS, LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int ROOT_MASK = ROOT_SIZE - 1, LEVEL_MASK = LEVEL_SIZE - 1;
+    private static final long MAX_DELAY = (1L << (ROOT_BITS + LEVELS * LEVEL_BITS)) - 1;
+
+    /**
+     * The wheel shared by all simulations, its thread is started with the first timeout.
+     */
+    static final TimerWheel SHARED = new TimerWheel("ant-disguise-timer");
+
+    /**
+     * A scheduled task, linked into the bucket of its deadline until it expires or is cancelled.
+     */
+    static final class Timeout {
+        private final long deadline;
+        private final Runnable task;
+        private Timeout previous, next;
+
+        private Timeout(final long deadline, final Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        /**
+         * Sentinel of an empty bucket.
+         */
+        private Timeout() {
+            this(0, null);
+            previous = next = this;
+        }
+    }
+
+    private final String name;
+    private final long origin = System.nanoTime();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pending = lock.newCondition();
+
+    /**
+     * {@code buckets[0]} is the first wheel, {@code buckets[1..LEVELS]} the coarser ones. Guarded by {@link #lock}.
+     */
+    private final Timeout[][] buckets = new Timeout[LEVELS + 1][];
+    /**
+     * Next tick to process and number of pending timeouts, guarded by {@link #lock}.
+     */
+    private long tick;
+    private int size;
+    /**
+     * Tick the thread of the wheel sleeps until, {@link Long#MIN_VALUE} while it is awake. Guarded by {@link #lock}.
+     */
+    private long wakeup = Long.MIN_VALUE;
+
+    private Thread thread;
+
+    /**
+     * Constructs a new wheel, its thread is started with the first timeout.
+     *
+     * @param name of the thread of the wheel
+     */
+    TimerWheel(final String name) {
+        this.name = name;
+        buckets[0] = sentinels(ROOT_SIZE);
+        for (int level = 1; level <= LEVELS; level++) {
+            buckets[level] = sentinels(LEVEL_SIZE);
+        }
+    }
+
+    private static Timeout[] sentinels(final int count) {
+        final var sentinels = new Timeout[count];
+        for (int i = 0; i < count; i++) {
+            sentinels[i] = new Timeout();
+        }
+        return sentinels;
+    }
+
+    /**
+     * Get the current tick of the clock of this wheel.
+     */
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+    }
+
+    /**
+     * Run a task once the delay passed.
+     *
+     * @param delay in milliseconds
+     * @param task  to run on the thread of the wheel
+     * @return handle to cancel the task
+     */
+    Timeout schedule(final long delay, final Runnable task) {
+        final var timeout = new Timeout(now() + Math.max(delay, 0), task);
+        lock.lock();
+        try {
+            if (thread == null) {
+                tick = now();
+                thread = new Thread(this::loop, name);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            if (size == 0) {
+                // all buckets are empty, so the wheel can skip the ticks it was idle
+                tick = Math.max(tick, now());
+            }
+            insert(timeout);
+            size++;
+            if (timeout.deadline < wakeup) {
+                wakeup = timeout.deadline;
+                pending.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return timeout;
+    }
+
+    /**
+     * Cancel a task that did not run yet.
+     *
+     * @param timeout handle of the task
+     * @return {@code true} iff the task will not run
+     */
+    boolean cancel(final Timeout timeout) {
+        lock.lock();
+        try {
+            if (timeout.next == null) {
+                return false;
+            }
+            unlink(timeout);
+            size--;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Put a timeout into the bucket of its deadline. Requires {@link #lock}.
+     */
+    private void insert(final Timeout timeout) {
+        final long delay = Math.min(timeout.deadline - tick, MAX_DELAY);
+        final Timeout sentinel;
+        if (delay < 0) {
+            // overdue, fire with the next tick
+            sentinel = buckets[0][(int) (tick & ROOT_MASK)];
+        } else if (delay < ROOT_SIZE) {
+            sentinel = buckets[0][(int) (timeout.deadline & ROOT_MASK)];
+        } else {
+            int level = 1;
+            while (delay >= 1L << (ROOT_BITS + level * LEVEL_BITS)) {
+                level++;
+            }
+            final long deadline = tick + delay;
+            sentinel = buckets[level][(int) ((deadline >>> (ROOT_BITS + (level - 1) * LEVEL_BITS)) & LEVEL_MASK)];
+        }
+
+        timeout.previous = sentinel.previous;
+        timeout.next = sentinel;
+        sentinel.previous.next = timeout;
+        sentinel.previous = timeout;
+    }
+
+    private static void unlink(final Timeout timeout) {
+        timeout.previous.next = timeout.next;
+        timeout.next.previous = timeout.previous;
+        timeout.previous = timeout.next = null;
+    }
+
+    /**
+     * Spread a bucket of a coarser wheel over the finer ones. Requires {@link #lock}.
+     *
+     * @return index of the bucket, the next coarser wheel has to be cascaded too if it is {@code 0}
+     */
+    private int cascade(final int level) {
+        final int index = (int) ((tick >>> (ROOT_BITS + (level - 1) * LEVEL_BITS)) & LEVEL_MASK);
+        final var sentinel = buckets[level][index];
+        Timeout timeout = sentinel.next;
+        sentinel.previous = sentinel.next = sentinel;
+        while (timeout != sentinel) {
+            final var next = timeout.next;
+            insert(timeout);
+            timeout = next;
+        }
+        return index;
+    }
+
+    /**
+     * Advance the wheel up to the current time and collect the expired timeouts. Requires {@link #lock}.
+     */
+    private void advance(final List<Runnable> expired) {
+        final long now = now();
+        while (tick <= now) {
+            final int index = (int) (tick & ROOT_MASK);
+            if (index == 0) {
+                for (int level = 1; level <= LEVELS && cascade(level) == 0; level++) {
+                    // the next wheel completed a turn as well
+                }
+            }
+            tick++;
+
+            final var sentinel = buckets[0][index];
+            while (sentinel.next != sentinel) {
+                final var timeout = sentinel.next;
+                unlink(timeout);
+                size--;
+                expired.add(timeout.task);
+            }
+        }
+    }
+
+    /**
+     * Find the tick the wheel has to be advanced to next, i.e. the tick of the next occupied bucket of the first wheel
+     * or of the next cascade, whichever comes first. Requires {@link #lock}.
+     */
+    private long next() {
+        for (long next = tick; ; next++) {
+            final int index = (int) (next & ROOT_MASK);
+            if (index == 0 || buckets[0][index].next != buckets[0][index]) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Sleep until the next tick to advance to, or until a timeout due earlier is scheduled. Requires {@link #lock}.
+     */
+    private void await() {
+        if (size == 0) {
+            wakeup = Long.MAX_VALUE;
+            pending.awaitUninterruptibly();
+        } else {
+            wakeup = next();
+            final long nanos = TimeUnit.MILLISECONDS.toNanos(wakeup) - (System.nanoTime() - origin);
+            if (nanos > 0) {
+                try {
+                    pending.awaitNanos(nanos);
+                } catch (InterruptedException e) {
+                    // nobody interrupts the thread of the wheel on purpose, the next pass checks the deadlines again
+                }
+            }
+        }
+        wakeup = Long.MIN_VALUE;
+    }
+
+    private void loop() {
+        final List<Runnable> expired = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                advance(expired);
+                while (expired.isEmpty()) {
+                    await();
+                    advance(expired);
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            for (final Runnable task : expired) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    final var thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+            expired.clear();
+        }
+    }
+}
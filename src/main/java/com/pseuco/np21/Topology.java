@@ -0,0 +1,164 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.Position;
+import com.pseuco.np21.shared.World;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable part of a world that any number of runs share: names, capacities, positions and initial food of the
+ * clearings, the {@link Adjacency} and the ants.
+ * <p>
+ * {@link #spawn} builds the per-run part, fresh clearings and trails holding just their ant and food levels and
+ * pheromones, in one pass over flat arrays. Nothing is parsed again and no trail lists are built up and frozen, the
+ * spawned worlds share the offsets and targets of the adjacency, the strings and the capacities with the topology.
+ * Locks are not part of the per-run state either: clearings with infinite capacity have none and trails create theirs
+ * when the thread engine first traverses them.
+ * <p>
+ * The clearings and trails of a run stay objects, since recorders tell them apart by identity, and their ant and food
+ * levels and pheromones stay fields of these objects rather than arrays owned by the run, since the ants, the
+ * engines and the specification tests read and write them there. So a spawn still builds one object per clearing and
+ * per direction of every trail: on a generated grid of 100,000 clearings and about 400,000 trail directions, a spawn
+ * takes about 51 MB, i.e. roughly 500 bytes per clearing, while the topology itself is only held once.
+ */
+public final class Topology {
+    private final String name;
+    private final String[] names;
+    private final int[] food;
+    private final Position.Capacity[] capacities;
+    private final int[] x, y;
+    private final int anthill;
+
+    /**
+     * The clearings every trail created by the factory leads from and to, i.e. those with an even index, two entries
+     * per trail.
+     */
+    private final int[] ends;
+
+    /**
+     * The slot of every trail in the adjacency by the index of the trail.
+     */
+    private final int[] slots;
+
+    private final Adjacency adjacency;
+    private final List<Ant> ants;
+
+    private Topology(final World<Clearing, Trail> world) {
+        this.name = world.name();
+        this.adjacency = Adjacency.of(world);
+        this.ants = List.copyOf(world.ants());
+
+        final int clearings = adjacency.clearings();
+        this.names = new String[clearings];
+        this.food = new int[clearings];
+        this.capacities = new Position.Capacity[clearings];
+        this.x = new int[clearings];
+        this.y = new int[clearings];
+        for (final var clearing : world.clearings()) {
+            final int i = clearing.index();
+            names[i] = clearing.name();
+            food[i] = clearing.initialFood();
+            capacities[i] = clearing.capacity();
+            x[i] = clearing.x();
+            y[i] = clearing.y();
+        }
+        this.anthill = world.anthill().index();
+
+        this.ends = new int[adjacency.trails()];
+        this.slots = new int[adjacency.trails()];
+        for (int clearing = 0; clearing < clearings; clearing++) {
+            for (int slot = adjacency.offset(clearing); slot < adjacency.offset(clearing + 1); slot++) {
+                final int trail = adjacency.trail(slot).index();
+                slots[trail] = slot;
+                if (trail % 2 == 0) {
+                    ends[trail] = clearing;
+                    ends[trail + 1] = adjacency.target(slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Take the topology of a world.
+     * <p>
+     * Runtime:
+     * Linear in the size of the world
+     *
+     * @param world finished by a {@link Factory}, its clearings must still hold their initial food
+     * @return the topology of the world
+     */
+    public static Topology of(final World<Clearing, Trail> world) {
+        return new Topology(world);
+    }
+
+    /**
+     * Get a fingerprint of the topology, which differs for different maps with high probability.
+     * <p>
+     * The name, clearings and trails are hashed, the ants are not.
+     * <p>
+     * Runtime:
+     * Linear in the number of clearings and trails
+     *
+     * @return 64 bit hash of the topology
+     */
+    public long fingerprint() {
+        long hash = name.hashCode();
+        for (int i = 0; i < names.length; i++) {
+            final var capacity = capacities[i];
+            hash = mix(hash, names[i].hashCode());
+            hash = mix(hash, food[i]);
+            hash = mix(hash, capacity.isInfinite() ? -1 : capacity.value());
+        }
+        for (final int end : ends) {
+            hash = mix(hash, end);
+        }
+        return mix(hash, anthill);
+    }
+
+    /**
+     * Mix a value into a hash (MurmurHash3 finalizer), so permuted values give different hashes.
+     */
+    private static long mix(final long hash, final int value) {
+        long mixed = (hash ^ value) * 0xff51afd7ed558ccdL;
+        mixed = (mixed ^ (mixed >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return mixed ^ (mixed >>> 33);
+    }
+
+    /**
+     * Spawn a fresh world to simulate a run on, at the start of the simulation.
+     * <p>
+     * The world has the clearings and trails of the topology with the same indices, but no state in common with any
+     * other world. Several threads may spawn worlds at once.
+     * <p>
+     * Runtime:
+     * Linear in the number of clearings and trails
+     *
+     * @param foodThreshold the ants have to reach, {@code -1} for all food
+     * @return the new world
+     */
+    public World<Clearing, Trail> spawn(final int foodThreshold) {
+        final var clearings = new Clearing[names.length];
+        final var stocked = new ArrayList<Clearing>();
+        for (int i = 0; i < clearings.length; i++) {
+            clearings[i] = new Clearing(names[i], food[i], capacities[i], x[i], y[i]);
+            clearings[i].index(i);
+            if (food[i] > 0) {
+                stocked.add(clearings[i]);
+            }
+        }
+
+        final var trails = new Trail[slots.length];
+        for (int i = 0; i < slots.length; i += 2) {
+            final var trail = new Trail(clearings[ends[i]], clearings[ends[i + 1]]);
+            trail.index(i / 2);
+            trails[slots[i]] = trail;
+            trails[slots[i + 1]] = trail.reverse();
+        }
+        adjacency.share(clearings, trails);
+
+        return new Colony(name, Arrays.asList(clearings), clearings[anthill], stocked, foodThreshold, ants);
+    }
+}
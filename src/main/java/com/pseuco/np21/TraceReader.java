@@ -0,0 +1,306 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.TraceWriter.Event;
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.Position.Capacity;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.Recorder.DespawnReason;
+import com.pseuco.np21.shared.Recorder.SelectionReason;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reader for traces written by {@link TraceWriter}.
+ * <p>
+ * Opening a trace reads its dictionary header and rebuilds the clearings and trails of the world, {@link #replay}
+ * then streams the records into a recorder, so a trace can be checked or printed as if the simulation ran again. The
+ * rebuilt clearings connect to the same trails as the originals, though not necessarily in the same order. The input is
+ * read in large chunks and records are decoded without any intermediate representation.
+ */
+public final class TraceReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final DespawnReason[] DESPAWN_REASONS = DespawnReason.values();
+    private static final SelectionReason[] SELECTION_REASONS = SelectionReason.values();
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final String name;
+    private final Map<Integer, Clearing> clearings = new HashMap<>();
+    private final Map<Integer, Trail> trails = new HashMap<>();
+    private final Map<Integer, Ant> ants = new HashMap<>();
+    private final Clearing anthill;
+
+    /**
+     * Constructs a reader for a channel and reads the header of the trace.
+     *
+     * @param channel to read the trace from, it is closed by {@link #close()}
+     * @throws IOException if the header cannot be read or is malformed
+     */
+    public TraceReader(final ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        buffer.flip();
+
+        if (getVarint() != TraceWriter.MAGIC) {
+            throw new IOException("Not a trace!");
+        }
+        final int version = getVarint();
+        if (version != TraceWriter.VERSION) {
+            throw new IOException(String.format("Unsupported trace version %d!", version));
+        }
+        name = getString();
+
+        final int clearingCount = getVarint();
+        final int anthillId = getVarint();
+        for (int i = 0; i < clearingCount; i++) {
+            final int id = getVarint();
+            final var clearingName = getString();
+            final int food = getVarint();
+            final var capacity = Capacity.get(getSigned());
+            clearings.put(id, new Clearing(clearingName, food, capacity));
+        }
+        anthill = clearing(anthillId);
+
+        final int pairCount = getVarint();
+        for (int i = 0; i < pairCount; i++) {
+            final int id = getVarint();
+            final int reverseId = getVarint();
+            final var from = clearing(getVarint());
+            final var trail = new Trail(from, clearing(getVarint()));
+            from.addTrail(trail);
+            trails.put(id, trail);
+            trails.put(reverseId, trail.reverse());
+        }
+    }
+
+    /**
+     * Open a trace file and read its header.
+     *
+     * @param file to read the trace from
+     * @return reader positioned at the first record
+     * @throws IOException if the file cannot be read or its header is malformed
+     */
+    public static TraceReader open(final Path file) throws IOException {
+        final var channel = FileChannel.open(file);
+        try {
+            return new TraceReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the name of the traced world.
+     *
+     * @return name of the world
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Get the anthill of the rebuilt world.
+     *
+     * @return anthill of the world
+     */
+    public Clearing anthill() {
+        return anthill;
+    }
+
+    /**
+     * Make sure the given number of bytes is buffered.
+     *
+     * @throws EOFException if the trace ends before
+     */
+    private void require(final int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("The trace ended unexpectedly!");
+                }
+            }
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    private int getVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                require(1);
+            }
+            final byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in trace!");
+    }
+
+    private int getSigned() throws IOException {
+        final int value = getVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String getString() throws IOException {
+        final int length = getVarint();
+        if (length <= BUFFER_SIZE) {
+            require(length);
+            final var bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        final var large = ByteBuffer.allocate(length);
+        large.put(buffer);
+        while (large.hasRemaining()) {
+            if (channel.read(large) < 0) {
+                throw new EOFException("The trace ended unexpectedly!");
+            }
+        }
+        return new String(large.array(), StandardCharsets.UTF_8);
+    }
+
+    private Clearing clearing(final int id) throws IOException {
+        final var clearing = clearings.get(id);
+        if (clearing == null) {
+            throw new IOException(String.format("Unknown clearing %d in trace!", id));
+        }
+        return clearing;
+    }
+
+    private Trail trail(final int id) throws IOException {
+        final var trail = trails.get(id);
+        if (trail == null) {
+            throw new IOException(String.format("Unknown trail %d in trace!", id));
+        }
+        return trail;
+    }
+
+    private Ant ant(final int id) throws IOException {
+        final var ant = ants.get(id);
+        if (ant == null) {
+            throw new IOException(String.format("Unknown ant %d in trace!", id));
+        }
+        return ant;
+    }
+
+    private static <T> T get(final T[] values, final int ordinal) throws IOException {
+        if (ordinal >= values.length) {
+            throw new IOException(String.format("Unknown reason %d in trace!", ordinal));
+        }
+        return values[ordinal];
+    }
+
+    /**
+     * Replay the records into a recorder, from the start of the simulation up to its stop.
+     *
+     * @param recorder to call for each record
+     * @return number of replayed calls
+     * @throws IOException if the trace cannot be read or is malformed
+     */
+    public long replay(final Recorder recorder) throws IOException {
+        long calls = 0;
+        while (true) {
+            final int ordinal = getVarint();
+            final var event = Event.get(ordinal);
+            if (event == null) {
+                throw new IOException(String.format("Unknown record %d in trace!", ordinal));
+            }
+
+            switch (event) {
+                case START -> recorder.start();
+                case STOP -> {
+                    recorder.stop();
+                    return calls + 1;
+                }
+                case DEFINE_ANT -> {
+                    final int id = getVarint();
+                    final var antName = getString();
+                    final int impatience = getVarint();
+                    ants.put(id, new Ant(antName, impatience, getVarint()));
+                    continue;
+                }
+                case SPAWN -> recorder.spawn(ant(getVarint()));
+                case DESPAWN -> recorder.despawn(ant(getVarint()), get(DESPAWN_REASONS, getVarint()));
+                case ENTER_CLEARING -> recorder.enter(ant(getVarint()), clearing(getVarint()));
+                case LEAVE_CLEARING -> recorder.leave(ant(getVarint()), clearing(getVarint()));
+                case ENTER_TRAIL -> recorder.enter(ant(getVarint()), trail(getVarint()));
+                case LEAVE_TRAIL -> recorder.leave(ant(getVarint()), trail(getVarint()));
+                case SELECT -> {
+                    final var ant = ant(getVarint());
+                    final int selected = getVarint();
+                    final var trail = selected == 0 ? null : trail(selected - 1);
+                    final var reason = get(SELECTION_REASONS, getVarint());
+                    final int count = getVarint();
+                    List<Trail> candidates = null;
+                    if (count > 0) {
+                        candidates = new ArrayList<>(count - 1);
+                        for (int i = 1; i < count; i++) {
+                            final int candidate = getVarint();
+                            candidates.add(candidate == 0 ? null : trail(candidate - 1));
+                        }
+                    }
+                    recorder.select(ant, trail, candidates, reason);
+                }
+                case START_FOOD_SEARCH -> recorder.startFoodSearch(ant(getVarint()));
+                case START_EXPLORATION -> recorder.startExploration(ant(getVarint()));
+                case START_FOOD_RETURN -> recorder.startFoodReturn(ant(getVarint()));
+                case RETURNED_FOOD -> recorder.returnedFood(ant(getVarint()));
+                case PICKUP_FOOD -> recorder.pickupFood(ant(getVarint()), clearing(getVarint()));
+                case UPDATE_FOOD -> recorder.updateFood(ant(getVarint()), trail(getVarint()),
+                        Trail.pheromone(getSigned()));
+                case UPDATE_ANTHILL -> recorder.updateAnthill(ant(getVarint()), trail(getVarint()),
+                        Trail.pheromone(getSigned()));
+                case ATTRACT_ATTENTION -> recorder.attractAttention(ant(getVarint()));
+            }
+            calls++;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Print a trace like {@link com.pseuco.np21.shared.PrintRecorder} would have.
+     *
+     * @param args the trace file
+     * @throws IOException if the trace cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            System.out.println("Usage: <command> <trace file>");
+            System.exit(1);
+        }
+
+        final var start = System.nanoTime();
+        final long calls;
+        try (final var reader = open(Path.of(args[0]))) {
+            calls = reader.replay(new AsyncRecorder());
+        }
+        final var elapsed = System.nanoTime() - start;
+        System.err.printf("Replayed %d calls in %.1f ms (%.0f calls/s).%n", calls, elapsed / 1e6,
+                calls / (elapsed / 1e9));
+    }
+}
@@ -0,0 +1,366 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.Clearing;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.Trail;
+import com.pseuco.np21.shared.World;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Recorder writing a compact binary trace, which {@link TraceReader} replays into any other recorder.
+ * <p>
+ * A trace starts with a dictionary header describing every clearing and trail of the world by its dense index in the
+ * world, see {@link Factory}, followed by one record per call. A record is the ordinal of its {@link Event} and its
+ * arguments: entities as their indices, enums as their ordinals and pheromones as their value. Ants are created by the
+ * simulation, so each of them is defined by an {@link Event#DEFINE_ANT} record with its index in front of its first
+ * reference. Indices are unique within the world and small, unlike {@link com.pseuco.np21.shared.Entity#id()}, which
+ * counts across all worlds of the process. All integers are unsigned LEB128 varints, values that can be negative are
+ * zigzag encoded first. Most records thus take three to five bytes instead of about 150 characters of text.
+ * <p>
+ * Version 1 keyed entities on their ids, version 2 on their indices. {@link TraceReader} only reads the current
+ * version.
+ * <p>
+ * Calls are serialized by the monitor of the writer and buffered, the buffer is written whenever it is full and on
+ * {@link #stop()}.
+ */
+public final class TraceWriter implements Recorder {
+    /**
+     * First bytes of every trace, {@code "ANTT"}.
+     */
+    static final int MAGIC = 0x414e5454;
+    static final int VERSION = 2;
+
+    /**
+     * The records of a trace, the ordinals are part of the format and must not change.
+     */
+    enum Event {
+        START, STOP, SPAWN, DESPAWN, ENTER_CLEARING, LEAVE_CLEARING, ENTER_TRAIL, LEAVE_TRAIL, SELECT,
+        START_FOOD_SEARCH, START_EXPLORATION, START_FOOD_RETURN, RETURNED_FOOD, PICKUP_FOOD, UPDATE_FOOD,
+        UPDATE_ANTHILL, ATTRACT_ATTENTION, DEFINE_ANT;
+
+        private static final Event[] VALUES = values();
+
+        static Event get(final int ordinal) {
+            return ordinal < VALUES.length ? VALUES[ordinal] : null;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Largest encoding of an int.
+     */
+    private static final int MAX_VARINT = 5;
+
+    private final WritableByteChannel channel;
+    private final boolean owned;
+    private final World<com.pseuco.np21.Clearing, com.pseuco.np21.Trail> world;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final BitSet defined = new BitSet();
+
+    /**
+     * Constructs a writer for a file, which is created or truncated and closed on {@link #stop()}.
+     *
+     * @param file  to write the trace to
+     * @param world that is simulated, built by a {@link Factory}
+     * @throws IOException if the file cannot be opened
+     */
+    public TraceWriter(final Path file, final World<com.pseuco.np21.Clearing, com.pseuco.np21.Trail> world)
+            throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE), world, true);
+    }
+
+    /**
+     * Constructs a writer for a channel, which is not closed by the writer.
+     *
+     * @param channel to write the trace to
+     * @param world   that is simulated, built by a {@link Factory}
+     */
+    public TraceWriter(final WritableByteChannel channel,
+                       final World<com.pseuco.np21.Clearing, com.pseuco.np21.Trail> world) {
+        this(channel, world, false);
+    }
+
+    private TraceWriter(final WritableByteChannel channel,
+                        final World<com.pseuco.np21.Clearing, com.pseuco.np21.Trail> world, final boolean owned) {
+        this.channel = channel;
+        this.world = world;
+        this.owned = owned;
+    }
+
+    /**
+     * Make sure the buffer has room for the given number of bytes.
+     */
+    private void reserve(final int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the trace!", e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void putSigned(final int value) {
+        putVarint((value << 1) ^ (value >> 31));
+    }
+
+    private void putString(final String value) {
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        reserve(MAX_VARINT + bytes.length);
+        putVarint(bytes.length);
+        if (bytes.length <= buffer.remaining()) {
+            buffer.put(bytes);
+        } else {
+            flush();
+            try {
+                final var wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the trace!", e);
+            }
+        }
+    }
+
+    private static int index(final Clearing<?, ?> clearing) {
+        return checked(((com.pseuco.np21.Clearing) clearing).index(), clearing);
+    }
+
+    private static int index(final Trail<?, ?> trail) {
+        return checked(((com.pseuco.np21.Trail) trail).index(), trail);
+    }
+
+    private static int index(final Ant ant) {
+        return checked(((com.pseuco.np21.Ant) ant).index(), ant);
+    }
+
+    /**
+     * Make sure an entity has an index in its world.
+     *
+     * @throws IllegalArgumentException if the entity was not created by a {@link Factory} or is not part of its world
+     */
+    private static int checked(final int index, final Object entity) {
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format("%s has no index in the traced world!", entity));
+        }
+        return index;
+    }
+
+    private static int value(final Trail.Pheromone pheromone) {
+        if (pheromone.isInfinite()) {
+            return -1;
+        }
+        return pheromone.isAPheromone() ? pheromone.value() : -2;
+    }
+
+    /**
+     * Write the dictionary: the name of the world, its clearings and its trails.
+     */
+    private void header() {
+        reserve(3 * MAX_VARINT);
+        putVarint(MAGIC);
+        putVarint(VERSION);
+        putString(world.name());
+
+        final var clearings = world.clearings();
+        reserve(2 * MAX_VARINT);
+        putVarint(clearings.size());
+        putVarint(world.anthill().index());
+        for (final var clearing : clearings) {
+            reserve(MAX_VARINT);
+            putVarint(clearing.index());
+            putString(clearing.name());
+            reserve(2 * MAX_VARINT);
+            putVarint(clearing.initialFood());
+            putSigned(clearing.capacity().isInfinite() ? -1 : clearing.capacity().value());
+        }
+
+        // every trail is written once together with its reverse
+        final var written = new HashSet<com.pseuco.np21.Trail>();
+        final var pairs = clearings.stream()
+                .flatMap(clearing -> clearing.connectsTo().stream())
+                .filter(trail -> !written.contains(trail.reverse()) && written.add(trail))
+                .toList();
+        reserve(MAX_VARINT);
+        putVarint(pairs.size());
+        for (final var trail : pairs) {
+            reserve(4 * MAX_VARINT);
+            putVarint(trail.index());
+            putVarint(trail.reverse().index());
+            putVarint(trail.from().index());
+            putVarint(trail.to().index());
+        }
+    }
+
+    /**
+     * Start a record for an ant, defining the ant first if it was not referenced before.
+     */
+    private void event(final Event event, final Ant ant, final int arguments) {
+        final int index = index(ant);
+        if (!defined.get(index)) {
+            defined.set(index);
+            reserve(2 * MAX_VARINT);
+            putVarint(Event.DEFINE_ANT.ordinal());
+            putVarint(index);
+            putString(ant.name());
+            reserve(2 * MAX_VARINT);
+            putVarint(ant.impatience());
+            putVarint(ant.disguise());
+        }
+        reserve((2 + arguments) * MAX_VARINT);
+        putVarint(event.ordinal());
+        putVarint(index);
+    }
+
+    @Override
+    public synchronized void start() {
+        header();
+        reserve(MAX_VARINT);
+        putVarint(Event.START.ordinal());
+    }
+
+    @Override
+    public synchronized void stop() {
+        reserve(MAX_VARINT);
+        putVarint(Event.STOP.ordinal());
+        flush();
+        if (owned) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the trace!", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void spawn(final Ant ant) {
+        event(Event.SPAWN, ant, 0);
+    }
+
+    @Override
+    public synchronized void despawn(final Ant ant, final DespawnReason reason) {
+        event(Event.DESPAWN, ant, 1);
+        putVarint(reason.ordinal());
+    }
+
+    @Override
+    public synchronized void enter(final Ant ant, final Clearing<?, ?> clearing) {
+        event(Event.ENTER_CLEARING, ant, 1);
+        putVarint(index(clearing));
+    }
+
+    @Override
+    public synchronized void leave(final Ant ant, final Clearing<?, ?> clearing) {
+        event(Event.LEAVE_CLEARING, ant, 1);
+        putVarint(index(clearing));
+    }
+
+    @Override
+    public synchronized void enter(final Ant ant, final Trail<?, ?> trail) {
+        event(Event.ENTER_TRAIL, ant, 1);
+        putVarint(index(trail));
+    }
+
+    @Override
+    public synchronized void leave(final Ant ant, final Trail<?, ?> trail) {
+        event(Event.LEAVE_TRAIL, ant, 1);
+        putVarint(index(trail));
+    }
+
+    /**
+     * The selected trail and the candidates may be {@code null}, so they are written off by one.
+     */
+    @Override
+    public synchronized <T extends Trail<?, ?>> void select(final Ant ant, final T trail, final List<T> candidates,
+                                                            final SelectionReason reason) {
+        event(Event.SELECT, ant, 3);
+        putVarint(trail == null ? 0 : index(trail) + 1);
+        putVarint(reason.ordinal());
+        if (candidates == null) {
+            putVarint(0);
+            return;
+        }
+        putVarint(candidates.size() + 1);
+        for (final T candidate : candidates) {
+            reserve(MAX_VARINT);
+            putVarint(candidate == null ? 0 : index(candidate) + 1);
+        }
+    }
+
+    @Override
+    public synchronized void startFoodSearch(final Ant ant) {
+        event(Event.START_FOOD_SEARCH, ant, 0);
+    }
+
+    @Override
+    public synchronized void startExploration(final Ant ant) {
+        event(Event.START_EXPLORATION, ant, 0);
+    }
+
+    @Override
+    public synchronized void startFoodReturn(final Ant ant) {
+        event(Event.START_FOOD_RETURN, ant, 0);
+    }
+
+    @Override
+    public synchronized void returnedFood(final Ant ant) {
+        event(Event.RETURNED_FOOD, ant, 0);
+    }
+
+    @Override
+    public synchronized void pickupFood(final Ant ant, final Clearing<?, ?> clearing) {
+        event(Event.PICKUP_FOOD, ant, 1);
+        putVarint(index(clearing));
+    }
+
+    @Override
+    public synchronized void updateFood(final Ant ant, final Trail<?, ?> trail, final Trail.Pheromone value) {
+        event(Event.UPDATE_FOOD, ant, 2);
+        putVarint(index(trail));
+        putSigned(value(value));
+    }
+
+    @Override
+    public synchronized void updateAnthill(final Ant ant, final Trail<?, ?> trail, final Trail.Pheromone value) {
+        event(Event.UPDATE_ANTHILL, ant, 2);
+        putVarint(index(trail));
+        putSigned(value(value));
+    }
+
+    @Override
+    public synchronized void attractAttention(final Ant ant) {
+        event(Event.ATTRACT_ATTENTION, ant, 0);
+    }
+}
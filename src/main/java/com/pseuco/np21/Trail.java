@@ -1,24 +1,79 @@
 package com.pseuco.np21;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Representation of a trail.
  * <p>
  * Manages ant and pheromone levels on it.
  * <p>
+ * Pheromone levels are read with plain volatile loads and updated with compare-and-set loops, so no lock is involved.
+ * Levels below {@link #CACHED_LEVELS} are shared instances, created once per level on first use, so updating them
+ * does not allocate either.
+ * <p>
+ * The levels are kept as {@link Pheromone} references rather than packed into an {@code int}: the specification tests
+ * set {@code food} and {@code anthill} to pheromones by reflection, and every reader gets a {@link Pheromone} anyway.
+ * A packed level saves about 4 ns per explorer update but has to be turned back into a pheromone on every read.
+ * <p>
+ * Like clearings, a trail is logged with the {@link Colony} of its clearings on its first change in a run, see
+ * {@link Colony#reset()}.
+ * <p>
  * You may change the code however you see fit.
  */
 public class Trail extends com.pseuco.np21.shared.Trail<Clearing, Trail> {
-    private Pheromone anthill;
-    private Pheromone food;
+    /**
+     * Number of pheromone levels with a shared instance, i.e. trails farther away from food or the anthill allocate.
+     */
+    static final int CACHED_LEVELS = 1 << 20;
+
+    /**
+     * Shared instances of the levels seen so far, grown with the highest level, see {@link #pheromone(int)}.
+     */
+    private static volatile Pheromone[] levels = new Pheromone[4096];
+
+    private static final VarHandle ANTHILL, FOOD, TRAVERSE_LOCK, DIRTY;
+
+    static {
+        try {
+            final var lookup = MethodHandles.lookup();
+            ANTHILL = lookup.findVarHandle(Trail.class, "anthill", Pheromone.class);
+            FOOD = lookup.findVarHandle(Trail.class, "food", Pheromone.class);
+            TRAVERSE_LOCK = lookup.findVarHandle(Trail.class, "traverseLock", Lock.class);
+            DIRTY = lookup.findVarHandle(Trail.class, "dirty", boolean.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private volatile Pheromone anthill;
+    private volatile Pheromone food;
     private int ants;
-    public Lock traverse_Lock = new ReentrantLock();
 
-    public ReentrantReadWriteLock food_Pheromone_Lock = new ReentrantReadWriteLock();
-    public ReentrantReadWriteLock anthill_Pheromone_Lock = new ReentrantReadWriteLock();
+    /**
+     * Lock held while an ant on its own thread traverses this trail, see {@link #traverseLock()}.
+     */
+    private volatile Lock traverseLock;
+
+    /**
+     * Dense index of the trail in its world, see {@link #index()}.
+     */
+    private int index = -1;
+
+    /**
+     * List holding just this trail, see {@link #alone()}.
+     */
+    private List<Trail> alone;
+
+    /**
+     * Whether this trail changed since the last reset, only set through {@link #DIRTY}.
+     */
+    private boolean dirty;
 
     private Trail(final Trail reverse) {
         super(reverse);
@@ -42,18 +97,135 @@ public class Trail extends com.pseuco.np21.shared.Trail<Clearing, Trail> {
         this.ants = 0;
     }
 
+    /**
+     * Get the dense index of this trail in its world.
+     * <p>
+     * A trail created by a {@link Factory} has an even index and its reverse the next odd one, so the index of the
+     * reverse is {@code index() ^ 1}.
+     *
+     * @return index in {@code 0..m-1} or {@code -1} if this trail was not created by a {@link Factory}
+     */
+    int index() {
+        return index;
+    }
+
+    /**
+     * Get the lock held while an ant traverses this trail with {@link LockScheduler}.
+     * <p>
+     * Only the thread engine takes it and most trails of a large world are never traversed, so the lock is created on
+     * first use. Racing threads agree on one lock by compare-and-set.
+     *
+     * @return lock of this trail
+     */
+    Lock traverseLock() {
+        final var lock = traverseLock;
+        if (lock != null) {
+            return lock;
+        }
+        final var created = new ReentrantLock();
+        final var witness = (Lock) TRAVERSE_LOCK.compareAndExchange(this, (Lock) null, (Lock) created);
+        return witness == null ? created : witness;
+    }
+
+    /**
+     * Log this trail with the world of its clearings on the first change since the last reset.
+     */
+    private void touch() {
+        if (!dirty) {
+            final var colony = from.colony();
+            if (colony != null && DIRTY.compareAndSet(this, false, true)) {
+                colony.modified(this);
+            }
+        }
+    }
+
+    /**
+     * Forget all pheromones and ants, done by {@link Colony#reset()} while no simulation runs.
+     */
+    void reset() {
+        anthill = Pheromone.NOT_A_PHEROMONE;
+        food = Pheromone.NOT_A_PHEROMONE;
+        ants = 0;
+        DIRTY.setVolatile(this, false);
+    }
+
+    /**
+     * Get an immutable list holding just this trail.
+     * <p>
+     * The list is created on first use and shared afterwards, so recording a selection with this trail as the only
+     * candidate does not allocate. Racing threads may create two equal lists, which is harmless.
+     *
+     * @return list holding just this trail
+     */
+    List<Trail> alone() {
+        var list = alone;
+        if (list == null) {
+            list = Collections.singletonList(this);
+            alone = list;
+        }
+        return list;
+    }
+
+    /**
+     * Set the dense indices of this trail and its reverse, done by the {@link Factory} creating this trail.
+     *
+     * @param pair number of the trail and its reverse in {@code 0..m/2-1}
+     */
+    void index(final int pair) {
+        index = 2 * pair;
+        reverse.index = 2 * pair + 1;
+    }
+
+    /**
+     * Get the pheromone for a level without allocating for common levels.
+     * <p>
+     * Pheromones are immutable, so the shared instances can be published without synchronization.
+     *
+     * @param value of the pheromone, {@code -1} for MaP and {@code -2} for NaP
+     * @return pheromone equal to {@code Pheromone.get(value)}
+     * @throws IllegalArgumentException if {@code value} is smaller than {@code -2}
+     */
+    static Pheromone pheromone(final int value) {
+        if (value < 0 || value >= CACHED_LEVELS) {
+            return Pheromone.get(value);
+        }
+
+        var cache = levels;
+        if (value >= cache.length) {
+            cache = grow(value);
+        }
+        Pheromone p = cache[value];
+        if (p == null) {
+            p = Pheromone.get(value);
+            cache[value] = p;
+        }
+        return p;
+    }
+
+    /**
+     * Grow the shared levels to hold the given level.
+     * <p>
+     * Levels a racing thread puts into the old array are lost, which is harmless: they are created again on next use.
+     *
+     * @param value to hold
+     * @return shared levels holding the given level
+     */
+    private static synchronized Pheromone[] grow(final int value) {
+        var cache = levels;
+        if (value >= cache.length) {
+            cache = Arrays.copyOf(cache, Integer.highestOneBit(value) << 1);
+            levels = cache;
+        }
+        return cache;
+    }
+
     /**
      * Get the anthill pheromone level.
      *
      * @return anthill pheromone level
      */
     public Pheromone anthill() {
-        this.anthill_Pheromone_Lock.readLock().lock();
-        try {
-            return anthill;
-        } finally {
-            this.anthill_Pheromone_Lock.readLock().unlock();
-        }
+        return anthill;
     }
 
     /**
@@ -62,12 +234,15 @@ public class Trail extends com.pseuco.np21.shared.Trail<Clearing, Trail> {
      * @return food pheromone level
      */
     public Pheromone food() {
-        this.food_Pheromone_Lock.readLock().lock();
-        try {
-            return food;
-        } finally {
-            this.food_Pheromone_Lock.readLock().unlock();
-        }
+        return food;
+    }
+
+    /**
+     * Check whether an update keeps the current level: the current level is kept if it is lower than the new one,
+     * unless the new one is infinite or there is no current level.
+     */
+    private static boolean keeps(final Pheromone current, final Pheromone p) {
+        return !p.isInfinite() && current.isAPheromone() && PHEROMONE_COMPARATOR.compare(p, current) > 0;
     }
 
     /**
@@ -76,16 +251,23 @@ public class Trail extends com.pseuco.np21.shared.Trail<Clearing, Trail> {
      * @param p the new pheromone level
      */
     public void updateAnthill(final Pheromone p) {
-        this.anthill_Pheromone_Lock.writeLock().lock();
-        try {
-            if (!p.isInfinite() && anthill.isAPheromone() && PHEROMONE_COMPARATOR.compare(p, anthill) > 0) {
+        touch();
+        Pheromone current;
+        do {
+            current = anthill;
+            if (keeps(current, p)) {
                 return;
             }
-            anthill = p;
-        } finally {
-            this.anthill_Pheromone_Lock.writeLock().unlock();
-        }
+        } while (!ANTHILL.compareAndSet(this, current, p));
+    }
 
+    /**
+     * Update the anthill pheromone level.
+     *
+     * @param value of the new pheromone level, see {@link #pheromone(int)}
+     */
+    void updateAnthill(final int value) {
+        updateAnthill(pheromone(value));
     }
 
     /**
@@ -95,14 +277,29 @@ public class Trail extends com.pseuco.np21.shared.Trail<Clearing, Trail> {
      * @param explorer {@code true} iff the ant is in exploration mode
      */
     public void updateFood(final Pheromone p, final boolean explorer) {
-        this.food_Pheromone_Lock.writeLock().lock();
-        try {
-            if (explorer && !p.isInfinite() && food.isAPheromone() && PHEROMONE_COMPARATOR.compare(p, food) > 0)
-                return;
+        touch();
+        if (!explorer) {
             food = p;
-        } finally {
-            this.food_Pheromone_Lock.writeLock().unlock();
+            return;
         }
+
+        Pheromone current;
+        do {
+            current = food;
+            if (keeps(current, p)) {
+                return;
+            }
+        } while (!FOOD.compareAndSet(this, current, p));
+    }
+
+    /**
+     * Update the food pheromone level.
+     *
+     * @param value    of the new pheromone level, see {@link #pheromone(int)}
+     * @param explorer {@code true} iff the ant is in exploration mode
+     */
+    void updateFood(final int value, final boolean explorer) {
+        updateFood(pheromone(value), explorer);
     }
 
     /**
@@ -118,6 +315,7 @@ public class Trail extends com.pseuco.np21.shared.Trail<Clearing, Trail> {
      * Call this when an ant enters this trail.
      */
     public void enter() {
+        touch();
         ants++;
     }
 
@@ -0,0 +1,265 @@
+package com.pseuco.np21;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link Scheduler} stepping all ants of a simulation on a bounded pool of worker threads.
+ * <p>
+ * No ant owns a thread: a ready ant is a task in the queue of the pool, a waiting ant is just an entry in the waiter
+ * queue of a trail or clearing. Whoever gives back the trail or leaves the clearing hands it over and puts the waiting
+ * ant back into the queue. The disguise of a waiting ant expires on {@link TimerWheel#SHARED}. This keeps the number
+ * of threads independent of the number of ants.
+ */
+final class WorkerPoolScheduler implements Scheduler {
+    /**
+     * State of a single ant in the simulation.
+     */
+    private final class Process extends Clearing.Waiter {
+        private final Ant ant;
+        /**
+         * Clearing the ant waits for and the result of the wait once it is resumed.
+         */
+        private volatile Clearing waitingOn;
+        private Arrival arrival;
+
+        private Process(final Ant ant) {
+            this.ant = ant;
+        }
+
+        @Override
+        void admitted() {
+            arrival = Arrival.ENTERED;
+            submit(this);
+        }
+
+        @Override
+        void timedOut() {
+            arrival = Arrival.TIMED_OUT;
+            submit(this);
+        }
+    }
+
+    /**
+     * Owner and waiting ants of a trail, guarded by the monitor of the instance.
+     */
+    private static final class TrailState {
+        private Process owner;
+        private final ArrayDeque<Process> waiters = new ArrayDeque<>();
+    }
+
+    private final int workers;
+
+    private final Map<Ant, Process> byAnt = new IdentityHashMap<>();
+    /**
+     * Ants of the simulation, published after {@link #byAnt} is complete.
+     */
+    private volatile List<Ant> ants = List.of();
+    private final Map<Trail, TrailState> trails = new ConcurrentHashMap<>();
+
+    private ExecutorService pool;
+    private CountDownLatch remaining;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a new scheduler.
+     *
+     * @param workers number of threads stepping the ants
+     * @throws IllegalArgumentException if {@code workers} is not positive
+     */
+    WorkerPoolScheduler(final int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least one worker is required!");
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * Run the given ants until all of them terminated.
+     * <p>
+     * The ants must have been constructed with this scheduler and are queued in the given order.
+     *
+     * @param ants to run
+     * @param mode of the worker threads
+     */
+    void run(final List<Ant> ants, final ExecutionMode mode) {
+        for (final Ant ant : ants) {
+            byAnt.put(ant, new Process(ant));
+        }
+        remaining = new CountDownLatch(ants.size());
+        this.ants = ants;
+        if (cancelled) {
+            ants.forEach(Ant::cancel);
+        }
+
+        final var number = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(workers, task -> {
+            final var thread = mode.newThread(task);
+            thread.setName("ant-worker-" + number.incrementAndGet());
+            return thread;
+        });
+        try {
+            for (final Ant ant : ants) {
+                submit(byAnt.get(ant));
+            }
+            try {
+                remaining.await();
+            } catch (InterruptedException e) {
+                cancel();
+                awaitUninterruptibly();
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        final Throwable cause = failure.get();
+        if (cause != null) {
+            throw new IllegalStateException("An ant failed!", cause);
+        }
+    }
+
+    private void awaitUninterruptibly() {
+        while (true) {
+            try {
+                remaining.await();
+                return;
+            } catch (InterruptedException ignored) {
+                // keep waiting, the ants are cancelled already
+            }
+        }
+    }
+
+    /**
+     * Terminate all remaining ants.
+     * <p>
+     * All ants are cancelled, so they terminate with their next check of the termination criteria. Waiting ants do not
+     * wait for their disguise to expire but are resumed immediately.
+     */
+    void cancel() {
+        cancelled = true;
+        for (final Ant ant : ants) {
+            ant.cancel();
+
+            // ants that start waiting after this see the flag, see arrive
+            final var process = byAnt.get(ant);
+            final var clearing = process.waitingOn;
+            if (clearing != null && clearing.withdraw(process)) {
+                submit(process);
+            }
+        }
+    }
+
+    private void submit(final Process process) {
+        pool.execute(() -> step(process));
+    }
+
+    /**
+     * Let the ant do one step on the current worker.
+     * <p>
+     * An ant that can continue is queued again instead of stepped in a loop, so every ready ant gets its turn.
+     */
+    private void step(final Process process) {
+        final Ant.Step result;
+        try {
+            result = process.ant.step();
+        } catch (RuntimeException | Error e) {
+            // other ants may wait for this one forever, so give up on the whole simulation
+            failure.compareAndSet(null, e);
+            cancel();
+            while (remaining.getCount() > 0) {
+                remaining.countDown();
+            }
+            return;
+        }
+
+        switch (result) {
+            case CONTINUE -> submit(process);
+            case WAIT -> {
+                // resumed by release, left, cancel or the expiry of its disguise
+            }
+            case DONE -> remaining.countDown();
+        }
+    }
+
+    @Override
+    public boolean acquire(final Ant ant, final Trail trail) {
+        final var process = byAnt.get(ant);
+        final var state = trails.computeIfAbsent(trail, t -> new TrailState());
+        synchronized (state) {
+            if (state.owner == null) {
+                state.owner = process;
+                return true;
+            }
+
+            // the trail is handed over to us by release
+            state.waiters.add(process);
+            return false;
+        }
+    }
+
+    @Override
+    public void release(final Ant ant, final Trail trail) {
+        final var state = trails.get(trail);
+        final Process next;
+        synchronized (state) {
+            next = state.waiters.poll();
+            state.owner = next;
+        }
+        if (next != null) {
+            submit(next);
+        }
+    }
+
+    @Override
+    public void left(final Ant ant, final Clearing clearing) {
+        // hands the space to the next waiting ant, if any
+        clearing.leave();
+    }
+
+    /**
+     * Enter the destination if there is free space, otherwise park the ant in the queue of the destination.
+     * <p>
+     * Correctness:
+     * A parked ant is resumed exactly once: by {@link Clearing#leave()} handing it the space, by the expiry of its
+     * disguise or by {@link #cancel()}. The first two leave the result in {@link Process#arrival}.
+     */
+    @Override
+    public Arrival arrive(final Ant ant, final Clearing destination) throws InterruptedException {
+        final var process = byAnt.get(ant);
+        if (process.waitingOn != null) {
+            process.waitingOn = null;
+            final var arrival = process.arrival;
+            process.arrival = null;
+            if (arrival != null) {
+                return arrival;
+            }
+            // withdrawn by cancel
+            throw new InterruptedException();
+        }
+
+        if (cancelled) {
+            throw new InterruptedException();
+        }
+        process.waitingOn = destination;
+        if (destination.enterOrWait(process, ant.disguise())) {
+            process.waitingOn = null;
+            return Arrival.ENTERED;
+        }
+        if (cancelled && destination.withdraw(process)) {
+            process.waitingOn = null;
+            throw new InterruptedException();
+        }
+        return Arrival.WAITING;
+    }
+}
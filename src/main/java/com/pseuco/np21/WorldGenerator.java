@@ -0,0 +1,571 @@
+package com.pseuco.np21;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Generator of large worlds in the format of {@link com.pseuco.np21.shared.Parser}.
+ * <p>
+ * Start from {@link #of} and derive the settings you need with the {@code with} methods. The output is streamed: every
+ * clearing and trail is computed from its index and a few random numbers when it is written, so only the random
+ * geometric topology keeps any state, namely the clearings of two rows of the plane. Worlds with tens of millions of
+ * clearings are thus written without holding them in memory.
+ * <p>
+ * The clearings are named {@code C0}, {@code C1}, ... in the order they are written, {@code C0} is the anthill and
+ * always has infinite capacity and no food. The ants are named {@code A0}, {@code A1}, ... The same settings always
+ * generate the same files.
+ */
+public final class WorldGenerator {
+    private static final String USAGE = "Usage: <command> map=<map file> ants=<ants file> "
+            + "[topology=grid|geometric|scale-free|tree|ring] [clearings=<clearings>] [degree=<degree>] "
+            + "[capacity=<min>..<max>] [infinite=<share>] [food=<min>..<max>] [stocked=<share>] [population=<ants>] "
+            + "[impatience=<min>..<max>] [disguise=<min>..<max>] [seed=<seed>]";
+
+    /**
+     * Distance between neighboring clearings in the coordinates of the written map.
+     */
+    private static final int SCALE = 100;
+
+    /**
+     * The way the clearings are connected by trails.
+     */
+    public enum Topology {
+        /**
+         * Clearings in rows of the square root of their number, each connected to its right and lower neighbor.
+         */
+        GRID,
+        /**
+         * Clearings at random positions in a square, connected if they are close to each other. The distance is
+         * chosen such that a clearing has {@link WorldGenerator#withDegree degree} neighbors on average, but nothing
+         * ensures that all clearings can be reached from the anthill.
+         */
+        GEOMETRIC,
+        /**
+         * Every clearing connects to {@link WorldGenerator#withDegree degree} / 2 clearings written before,
+         * preferring those with many trails already like preferential attachment does, so a few hubs close to the
+         * anthill collect most trails.
+         */
+        SCALE_FREE,
+        /**
+         * A tree whose clearings attach to one of the {@link WorldGenerator#withDegree degree} clearings written
+         * before them, so small degrees give deep trees with dead ends all along their branches.
+         */
+        TREE,
+        /**
+         * Clearings on a circle, each connected to the {@link WorldGenerator#withDegree degree} / 2 clearings
+         * following it.
+         */
+        RING;
+
+        /**
+         * Get the topology for a command line value.
+         *
+         * @param value either {@code grid}, {@code geometric}, {@code scale-free}, {@code tree} or {@code ring}
+         * @return matching topology
+         * @throws IllegalArgumentException if there is no such topology
+         */
+        public static Topology parse(final String value) {
+            return switch (value) {
+                case "grid" -> GRID;
+                case "geometric" -> GEOMETRIC;
+                case "scale-free" -> SCALE_FREE;
+                case "tree" -> TREE;
+                case "ring" -> RING;
+                default -> throw new IllegalArgumentException(String.format(
+                        "Unknown topology \"%s\"! Expected \"grid\", \"geometric\", \"scale-free\", \"tree\" or "
+                                + "\"ring\".", value));
+            };
+        }
+    }
+
+    /**
+     * Values drawn uniformly from {@code min} to {@code max}, both inclusive.
+     *
+     * @param min smallest value
+     * @param max largest value
+     */
+    public record Range(int min, int max) {
+        /**
+         * Create a range.
+         *
+         * @throws IllegalArgumentException if {@code min} is larger than {@code max}
+         */
+        public Range {
+            if (min > max) {
+                throw new IllegalArgumentException(String.format("Empty range %d..%d!", min, max));
+            }
+        }
+
+        /**
+         * Get the range for a command line value.
+         *
+         * @param value either {@code <min>..<max>} or a single number
+         * @return matching range
+         * @throws IllegalArgumentException if the value is no range
+         */
+        public static Range parse(final String value) {
+            final var bounds = value.split("\\.\\.", 2);
+            try {
+                final int min = Integer.parseInt(bounds[0].strip());
+                return new Range(min, bounds.length == 1 ? min : Integer.parseInt(bounds[1].strip()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(String.format("Invalid range \"%s\"!", value), e);
+            }
+        }
+
+        private int draw(final SplittableRandom random) {
+            return min == max ? min : (int) random.nextLong(min, (long) max + 1);
+        }
+    }
+
+    private final Topology topology;
+    private final int clearings;
+    private final int degree;
+    private final Range capacity;
+    private final double infinite;
+    private final Range food;
+    private final double stocked;
+    private final int population;
+    private final Range impatience;
+    private final Range disguise;
+    private final long seed;
+
+    private WorldGenerator(final Topology topology, final int clearings, final int degree, final Range capacity,
+                           final double infinite, final Range food, final double stocked, final int population,
+                           final Range impatience, final Range disguise, final long seed) {
+        this.topology = topology;
+        this.clearings = clearings;
+        this.degree = degree;
+        this.capacity = capacity;
+        this.infinite = infinite;
+        this.food = food;
+        this.stocked = stocked;
+        this.population = population;
+        this.impatience = impatience;
+        this.disguise = disguise;
+        this.seed = seed;
+    }
+
+    /**
+     * Get a generator with default settings: a degree of 4, capacities from 1 to 4 with a tenth of the clearings
+     * infinite, food from 1 to 20 on a tenth of the clearings, and 100 ants with an impatience from 1 to 100 and a
+     * disguise from 50 to 2000.
+     *
+     * @param topology  of the world
+     * @param clearings number of clearings including the anthill
+     * @return the generator
+     * @throws IllegalArgumentException if there is no clearing
+     */
+    public static WorldGenerator of(final Topology topology, final int clearings) {
+        if (clearings < 1) {
+            throw new IllegalArgumentException("A world needs at least the anthill!");
+        }
+        return new WorldGenerator(topology, clearings, 4, new Range(1, 4), 0.1, new Range(1, 20), 0.1, 100,
+                new Range(1, 100), new Range(50, 2000), 0);
+    }
+
+    /**
+     * Derive a generator with another degree, see {@link Topology} for its meaning. A {@link Topology#GRID} ignores
+     * it.
+     *
+     * @param degree of the clearings
+     * @return generator with the given degree
+     * @throws IllegalArgumentException if {@code degree} is not positive
+     */
+    public WorldGenerator withDegree(final int degree) {
+        if (degree < 1) {
+            throw new IllegalArgumentException("The degree must be positive!");
+        }
+        return new WorldGenerator(topology, clearings, degree, capacity, infinite, food, stocked, population,
+                impatience, disguise, seed);
+    }
+
+    /**
+     * Derive a generator with other capacities.
+     *
+     * @param capacity of the clearings with finite capacity
+     * @param infinite share of the clearings with infinite capacity
+     * @return generator with the given capacities
+     * @throws IllegalArgumentException if {@code infinite} is no share or a capacity is not positive
+     */
+    public WorldGenerator withCapacity(final Range capacity, final double infinite) {
+        if (capacity.min() < 1) {
+            throw new IllegalArgumentException("Capacities must be positive!");
+        }
+        return new WorldGenerator(topology, clearings, degree, capacity, share(infinite), food, stocked, population,
+                impatience, disguise, seed);
+    }
+
+    /**
+     * Derive a generator with other food.
+     *
+     * @param food    on the clearings with food
+     * @param stocked share of the clearings with food
+     * @return generator with the given food
+     * @throws IllegalArgumentException if {@code stocked} is no share or the food is not positive
+     */
+    public WorldGenerator withFood(final Range food, final double stocked) {
+        if (food.min() < 1) {
+            throw new IllegalArgumentException("Food must be positive!");
+        }
+        return new WorldGenerator(topology, clearings, degree, capacity, infinite, food, share(stocked), population,
+                impatience, disguise, seed);
+    }
+
+    /**
+     * Derive a generator with other ants.
+     *
+     * @param population number of ants
+     * @param impatience of the ants
+     * @param disguise   of the ants
+     * @return generator with the given ants
+     * @throws IllegalArgumentException if there is no ant or impatience or disguise are negative
+     */
+    public WorldGenerator withAnts(final int population, final Range impatience, final Range disguise) {
+        if (population < 1) {
+            throw new IllegalArgumentException("A world needs at least one ant!");
+        }
+        if (impatience.min() < 0 || disguise.min() < 0) {
+            throw new IllegalArgumentException("Impatience and disguise must not be negative!");
+        }
+        return new WorldGenerator(topology, clearings, degree, capacity, infinite, food, stocked, population,
+                impatience, disguise, seed);
+    }
+
+    /**
+     * Derive a generator with another seed.
+     *
+     * @param seed all random choices are derived from
+     * @return generator with the given seed
+     */
+    public WorldGenerator withSeed(final long seed) {
+        return new WorldGenerator(topology, clearings, degree, capacity, infinite, food, stocked, population,
+                impatience, disguise, seed);
+    }
+
+    private static double share(final double share) {
+        if (!(share >= 0 && share <= 1)) {
+            throw new IllegalArgumentException(String.format("%s is no share between 0 and 1!", share));
+        }
+        return share;
+    }
+
+    /**
+     * Get an independent random stream for a purpose, e.g. the trails or a row of clearings.
+     */
+    private SplittableRandom random(final long purpose) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + purpose);
+    }
+
+    /**
+     * Write the map and the ants file.
+     *
+     * @param map  file to write the map to
+     * @param ants file to write the ants to
+     * @throws IOException if a file cannot be written
+     */
+    public void write(final Path map, final Path ants) throws IOException {
+        try (final var out = new BufferedWriter(Files.newBufferedWriter(map, StandardCharsets.UTF_8), 1 << 16)) {
+            writeMap(out);
+        }
+        try (final var out = new BufferedWriter(Files.newBufferedWriter(ants, StandardCharsets.UTF_8), 1 << 16)) {
+            writeAnts(out);
+        }
+    }
+
+    /**
+     * Write the ants file, one ant per line separated like {@link com.pseuco.np21.shared.Parser} expects.
+     *
+     * @param out to write to
+     * @throws IOException if writing fails
+     */
+    public void writeAnts(final Writer out) throws IOException {
+        final var random = random(-1);
+        final var line = new StringBuilder();
+        for (int i = 0; i < population; i++) {
+            line.setLength(0);
+            line.append('A').append(i).append(';').append(impatience.draw(random)).append(';')
+                    .append(disguise.draw(random));
+            if (i + 1 < population) {
+                line.append(System.lineSeparator());
+            }
+            out.append(line);
+        }
+    }
+
+    /**
+     * Write the map.
+     * <p>
+     * Runtime:
+     * Linear in the number of clearings and trails
+     *
+     * @param out to write to
+     * @throws IOException if writing fails
+     */
+    public void writeMap(final Writer out) throws IOException {
+        out.write(topology.name().toLowerCase(Locale.ROOT) + clearings + "\n");
+        final var lines = new Lines(out);
+        switch (topology) {
+            case GRID -> grid(lines);
+            case GEOMETRIC -> geometric(lines);
+            case SCALE_FREE -> scaleFree(lines);
+            case TREE -> tree(lines);
+            case RING -> ring(lines);
+        }
+    }
+
+    /**
+     * Writer of the lines of a map, drawing capacity and food of every clearing from one random stream.
+     */
+    private final class Lines {
+        private final Writer out;
+        private final SplittableRandom random = random(-2);
+        private final StringBuilder line = new StringBuilder(64);
+
+        private Lines(final Writer out) {
+            this.out = out;
+        }
+
+        void clearing(final int index, final long x, final long y) throws IOException {
+            line.setLength(0);
+            line.append('C').append(index).append(';');
+            if (index == 0) {
+                line.append("-1;0");
+            } else {
+                line.append(random.nextDouble() < infinite ? -1 : capacity.draw(random)).append(';')
+                        .append(random.nextDouble() < stocked ? food.draw(random) : 0);
+            }
+            line.append(";(").append(x).append(',').append(y).append(")\n");
+            out.append(line);
+        }
+
+        void trail(final int from, final int to) throws IOException {
+            line.setLength(0);
+            line.append('C').append(from).append("-C").append(to).append('\n');
+            out.append(line);
+        }
+    }
+
+    private void grid(final Lines lines) throws IOException {
+        final int width = (int) Math.ceil(Math.sqrt(clearings));
+        for (int i = 0; i < clearings; i++) {
+            lines.clearing(i, (long) (i % width) * SCALE, (long) (i / width) * SCALE);
+        }
+        for (int i = 0; i < clearings; i++) {
+            if ((i + 1) % width != 0 && i + 1 < clearings) {
+                lines.trail(i, i + 1);
+            }
+            if (i + width < clearings) {
+                lines.trail(i, i + width);
+            }
+        }
+    }
+
+    private void ring(final Lines lines) throws IOException {
+        final double radius = clearings * SCALE / (2 * Math.PI);
+        for (int i = 0; i < clearings; i++) {
+            final double angle = 2 * Math.PI * i / clearings;
+            lines.clearing(i, Math.round(radius * Math.cos(angle)), Math.round(radius * Math.sin(angle)));
+        }
+        for (int i = 0; i < clearings; i++) {
+            for (int distance = 1; distance <= Math.max(degree / 2, 1); distance++) {
+                // on small rings the clearing reached going forward may already connect going backward
+                if (2 * distance < clearings || 2 * distance == clearings && i < distance) {
+                    lines.trail(i, (i + distance) % clearings);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write random positions for clearings without geometry.
+     */
+    private void scattered(final Lines lines) throws IOException {
+        final var random = random(-3);
+        final long side = (long) Math.ceil(Math.sqrt(clearings)) * SCALE;
+        for (int i = 0; i < clearings; i++) {
+            lines.clearing(i, random.nextLong(side), random.nextLong(side));
+        }
+    }
+
+    private void scaleFree(final Lines lines) throws IOException {
+        scattered(lines);
+        final var random = random(-4);
+        final var targets = new int[Math.max(degree / 2, 1)];
+        for (int i = 1; i < clearings; i++) {
+            final int count = Math.min(targets.length, i);
+            for (int k = 0; k < count; k++) {
+                int target;
+                do {
+                    // a clearing j is chosen with a probability proportional to 1/sqrt(j), which is how the degree of
+                    // the clearings written before grows under preferential attachment
+                    final double u = random.nextDouble();
+                    target = count == i ? k : (int) (i * u * u);
+                } while (contains(targets, k, target));
+                targets[k] = target;
+                lines.trail(i, target);
+            }
+        }
+    }
+
+    private static boolean contains(final int[] values, final int length, final int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void tree(final Lines lines) throws IOException {
+        scattered(lines);
+        final var random = random(-5);
+        for (int i = 1; i < clearings; i++) {
+            lines.trail(i, i - 1 - random.nextInt(Math.min(i, degree)));
+        }
+    }
+
+    /**
+     * Write clearings at random positions in a square of side {@code sqrt(clearings)}, and trails between clearings
+     * closer than a radius giving {@link #degree} neighbors on average.
+     * <p>
+     * The square is cut into rows of the height of the radius, so trails only connect clearings of the same or
+     * adjacent rows. Every row has the same number of clearings and its own random stream, sorted by x they get
+     * consecutive indices. Both the clearings and the trails are written row by row, regenerating the rows for the
+     * trails, so only two rows are in memory at any time.
+     */
+    private void geometric(final Lines lines) throws IOException {
+        final double side = Math.sqrt(clearings);
+        final double radius = Math.sqrt(degree / Math.PI);
+        final int rows = (int) Math.max(1, Math.min(clearings, Math.floor(side / radius)));
+        final double height = side / rows;
+        final long reach = (long) Math.floor(radius * SCALE);
+
+        int first = 0;
+        for (int row = 0; row < rows; row++) {
+            final var xs = new long[rowSize(row, rows)];
+            final var ys = new long[xs.length];
+            row(row, side, height, xs, ys);
+            for (int i = 0; i < xs.length; i++) {
+                lines.clearing(first + i, xs[i], ys[i]);
+            }
+            first += xs.length;
+        }
+
+        long[] previousXs = new long[0], previousYs = new long[0];
+        int previousFirst = 0;
+        first = 0;
+        for (int row = 0; row < rows; row++) {
+            final var xs = new long[rowSize(row, rows)];
+            final var ys = new long[xs.length];
+            row(row, side, height, xs, ys);
+            int window = 0;
+            for (int i = 0; i < xs.length; i++) {
+                for (int j = i + 1; j < xs.length && xs[j] - xs[i] <= reach; j++) {
+                    if (close(xs[i], ys[i], xs[j], ys[j], reach)) {
+                        lines.trail(first + i, first + j);
+                    }
+                }
+                while (window < previousXs.length && previousXs[window] < xs[i] - reach) {
+                    window++;
+                }
+                for (int j = window; j < previousXs.length && previousXs[j] <= xs[i] + reach; j++) {
+                    if (close(xs[i], ys[i], previousXs[j], previousYs[j], reach)) {
+                        lines.trail(first + i, previousFirst + j);
+                    }
+                }
+            }
+            previousXs = xs;
+            previousYs = ys;
+            previousFirst = first;
+            first += xs.length;
+        }
+    }
+
+    private int rowSize(final int row, final int rows) {
+        return clearings / rows + (row < clearings % rows ? 1 : 0);
+    }
+
+    /**
+     * Generate the clearings of a row sorted by x.
+     */
+    private void row(final int row, final double side, final double height, final long[] xs, final long[] ys) {
+        final var random = random(row);
+        final var positions = new long[xs.length];
+        final long width = (long) Math.ceil(side * SCALE);
+        final long top = (long) Math.floor(row * height * SCALE);
+        final long bottom = Math.max(top + 1, (long) Math.floor((row + 1) * height * SCALE));
+        for (int i = 0; i < xs.length; i++) {
+            // pack both coordinates so sorting by x keeps them together, they fit well within 32 bits each
+            positions[i] = random.nextLong(width) << 32 | random.nextLong(top, bottom);
+        }
+        Arrays.sort(positions);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = positions[i] >>> 32;
+            ys[i] = positions[i] & 0xFFFFFFFFL;
+        }
+    }
+
+    private static boolean close(final long x1, final long y1, final long x2, final long y2, final long reach) {
+        final long dx = x1 - x2, dy = y1 - y2;
+        return dx * dx + dy * dy <= reach * reach;
+    }
+
+    /**
+     * Generate a world.
+     *
+     * @param args command line arguments
+     * @throws IOException if the files cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        final var arguments = parseArguments(args);
+        if (arguments == null || !arguments.containsKey("map") || !arguments.containsKey("ants")) {
+            System.out.println(USAGE);
+            System.exit(1);
+        }
+
+        final var generator = of(Topology.parse(arguments.getOrDefault("topology", "grid")),
+                Integer.parseInt(arguments.getOrDefault("clearings", "10000")))
+                .withDegree(Integer.parseInt(arguments.getOrDefault("degree", "4")))
+                .withCapacity(Range.parse(arguments.getOrDefault("capacity", "1..4")),
+                        Double.parseDouble(arguments.getOrDefault("infinite", "0.1")))
+                .withFood(Range.parse(arguments.getOrDefault("food", "1..20")),
+                        Double.parseDouble(arguments.getOrDefault("stocked", "0.1")))
+                .withAnts(Integer.parseInt(arguments.getOrDefault("population", "100")),
+                        Range.parse(arguments.getOrDefault("impatience", "1..100")),
+                        Range.parse(arguments.getOrDefault("disguise", "50..2000")))
+                .withSeed(Long.parseLong(arguments.getOrDefault("seed", "0")));
+
+        final var start = System.nanoTime();
+        final var map = Path.of(arguments.get("map"));
+        generator.write(map, Path.of(arguments.get("ants")));
+        System.err.printf("Generated %.1f MB of map in %.1f ms.%n", Files.size(map) / 1e6,
+                (System.nanoTime() - start) / 1e6);
+    }
+
+    private static Map<String, String> parseArguments(final String[] args) {
+        final var options = Set.of("map", "ants", "topology", "clearings", "degree", "capacity", "infinite", "food",
+                "stocked", "population", "impatience", "disguise", "seed");
+        final var result = new HashMap<String, String>();
+
+        for (final var arg : args) {
+            final var parts = arg.split("=", 2);
+            if (parts.length != 2 || !options.contains(parts[0])) {
+                return null;
+            }
+            result.put(parts[0], parts[1]);
+        }
+
+        return result;
+    }
+}
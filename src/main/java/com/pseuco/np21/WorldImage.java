@@ -0,0 +1,193 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.Position.Capacity;
+import com.pseuco.np21.shared.World;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Optional;
+
+/**
+ * Precompiled binary image of a parsed world.
+ * <p>
+ * An image holds everything the map and ants files describe: the clearings with their capacity, food and position,
+ * the trails in the order they were created, and the ants. Clearings are referenced by their index, so loading an
+ * image neither matches text nor looks up names, it reads the memory-mapped file front to back and hands the values
+ * to a {@link Factory}.
+ * <p>
+ * Each image remembers size and modification time of the files it was compiled from. If they changed, or the image
+ * was written by another version, {@link #load} returns nothing and the caller has to parse the text again.
+ */
+public final class WorldImage {
+    /**
+     * First bytes of every image, {@code "ANTW"}.
+     */
+    static final int MAGIC = 0x414e5457;
+    static final int VERSION = 1;
+
+    /**
+     * Default constructor is not needed and thus inaccessible.
+     */
+    private WorldImage() {
+    }
+
+    /**
+     * Write an image of a world, replacing the image atomically if it exists.
+     *
+     * @param image    file to write the image to
+     * @param world    parsed from the files by a {@link Factory}
+     * @param mapFile  the world was parsed from
+     * @param antsFile the world was parsed from
+     * @throws IOException if the image cannot be written
+     */
+    public static void write(final Path image, final World<Clearing, Trail> world, final Path mapFile,
+                             final Path antsFile) throws IOException {
+        final var clearings = world.clearings();
+
+        // the trails passed to the factory have even indices, their reverses the odd ones
+        final var trails = new ArrayList<Trail>();
+        for (final var clearing : clearings) {
+            for (final var trail : clearing.connectsTo()) {
+                if (trail.index() % 2 == 0) {
+                    trails.add(trail);
+                }
+            }
+        }
+        trails.sort(Comparator.comparingInt(Trail::index));
+
+        final var temporary = image.resolveSibling(image.getFileName() + ".tmp");
+        try {
+            try (final var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary),
+                    1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(Files.size(mapFile));
+                out.writeLong(Files.getLastModifiedTime(mapFile).toMillis());
+                out.writeLong(Files.size(antsFile));
+                out.writeLong(Files.getLastModifiedTime(antsFile).toMillis());
+                writeString(out, world.name());
+
+                final var ants = world.ants();
+                out.writeInt(clearings.size());
+                out.writeInt(trails.size());
+                out.writeInt(ants.size());
+                out.writeInt(world.anthill().index());
+                for (final var clearing : clearings) {
+                    writeString(out, clearing.name());
+                    out.writeInt(clearing.initialFood());
+                    out.writeInt(clearing.capacity().isInfinite() ? -1 : clearing.capacity().value());
+                    out.writeInt(clearing.x());
+                    out.writeInt(clearing.y());
+                }
+
+                for (final var trail : trails) {
+                    out.writeInt(trail.from().index());
+                    out.writeInt(trail.to().index());
+                }
+
+                for (final Ant ant : ants) {
+                    writeString(out, ant.name());
+                    out.writeInt(ant.impatience());
+                    out.writeInt(ant.disguise());
+                }
+            }
+            Files.move(temporary, image, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Load a world from an image if the image is up to date.
+     *
+     * @param image         file to read the image from
+     * @param mapFile       the image has to be compiled from
+     * @param antsFile      the image has to be compiled from
+     * @param foodThreshold the ants have to reach, {@code -1} for all food
+     * @return the world or nothing if there is no image, it is stale or of another version
+     * @throws IOException if the image cannot be read or is corrupt
+     */
+    public static Optional<World<Clearing, Trail>> load(final Path image, final Path mapFile, final Path antsFile,
+                                                        final int foodThreshold) throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(image);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+
+        final Factory factory;
+        final String name;
+        try (channel) {
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(String.format("\"%s\" is not a world image!", image));
+            }
+            if (buffer.getInt() != VERSION
+                    || buffer.getLong() != Files.size(mapFile)
+                    || buffer.getLong() != Files.getLastModifiedTime(mapFile).toMillis()
+                    || buffer.getLong() != Files.size(antsFile)
+                    || buffer.getLong() != Files.getLastModifiedTime(antsFile).toMillis()) {
+                return Optional.empty();
+            }
+            name = readString(buffer);
+
+            final var clearings = new Clearing[buffer.getInt()];
+            final int trails = buffer.getInt();
+            final int ants = buffer.getInt();
+            final int anthill = buffer.getInt();
+            factory = new Factory(clearings.length, ants);
+            final var capacities = new HashMap<Integer, Capacity>();
+            for (int i = 0; i < clearings.length; i++) {
+                final var clearingName = readString(buffer);
+                final int food = buffer.getInt();
+                // capacities are immutable, so clearings of equal capacity share one
+                final var capacity = capacities.computeIfAbsent(buffer.getInt(), Capacity::get);
+                final int x = buffer.getInt();
+                clearings[i] = factory.createClearing(clearingName, food, capacity, x, buffer.getInt());
+            }
+            factory.setAnthill(clearings[anthill]);
+
+            for (int i = 0; i < trails; i++) {
+                final var from = clearings[buffer.getInt()];
+                factory.createTrail(from, clearings[buffer.getInt()]);
+            }
+
+            for (int i = 0; i < ants; i++) {
+                final var antName = readString(buffer);
+                final int impatience = buffer.getInt();
+                factory.createAnt(antName, impatience, buffer.getInt());
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+                 | IllegalArgumentException e) {
+            throw new IOException(String.format("The world image \"%s\" is corrupt!", image), e);
+        }
+
+        return Optional.of(factory.finishWorld(name, foodThreshold));
+    }
+
+    private static String readString(final ByteBuffer buffer) {
+        final var bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdjacencyTest {
+    @Test
+    void trailsKeepTheOrderOfTheirClearing() {
+        final var world = Worlds.load("fork.map", "family.ants");
+        final var adjacency = Adjacency.of(world);
+
+        final var a = world.clearings().get(1);
+        final var names = new ArrayList<String>();
+        for (int slot = adjacency.offset(a.index()); slot < adjacency.offset(a.index() + 1); slot++) {
+            names.add(world.clearings().get(adjacency.target(slot)).name());
+            assertSame(a.trail(slot - adjacency.offset(a.index())), adjacency.trail(slot));
+        }
+        assertEquals(List.of("Hill", "B", "C"), names);
+        assertEquals(adjacency.connectsTo(a.index()), a.connectsTo());
+    }
+
+    @Test
+    void reverseTrailsArePaired() {
+        final var world = Worlds.load("fork.map", "family.ants");
+        final var adjacency = Adjacency.of(world);
+        assertEquals(10, adjacency.trails());
+
+        for (final var clearing : world.clearings()) {
+            for (int slot = adjacency.offset(clearing.index()); slot < adjacency.offset(clearing.index() + 1); slot++) {
+                final var trail = adjacency.trail(slot);
+                assertEquals(trail.index() ^ 1, trail.reverse().index());
+                assertSame(trail, trail.reverse().reverse());
+                assertEquals(trail.to().index(), adjacency.target(slot));
+                assertSame(clearing, trail.reverse().to());
+            }
+        }
+    }
+
+    @Test
+    void clearingsWithoutTrails() {
+        final var world = Worlds.load("fork.map", "family.ants");
+        final var adjacency = Adjacency.of(world);
+
+        final var island = world.clearings().get(5);
+        assertEquals("Island", island.name());
+        assertEquals(0, adjacency.degree(island.index()));
+        assertEquals(adjacency.offset(island.index()), adjacency.offset(island.index() + 1));
+        assertEquals(adjacency.trails(), adjacency.offset(island.index()));
+        assertTrue(island.connectsTo().isEmpty());
+        assertEquals(0, island.degree());
+    }
+
+    @Test
+    void viewsTakenBeforeFreezingStayIntact() {
+        final var factory = new Factory();
+        final var hill = factory.createClearing("Hill", 0, Capacity.INFINITE);
+        final var a = factory.createClearing("A", 1, Capacity.INFINITE);
+        factory.setAnthill(hill);
+        factory.createTrail(hill, a);
+        factory.createAnt("Homer", 10, 100);
+
+        final var before = hill.connectsTo();
+        factory.finishWorld("pair", -1);
+        assertEquals(1, before.size());
+        assertSame(hill.trail(0), before.get(0));
+        assertEquals(hill.connectsTo(), before);
+    }
+}
@@ -0,0 +1,89 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Parser;
+import com.pseuco.np21.shared.PrintRecorder;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.World;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncRecorderTest {
+    private World<Clearing, Trail> world() throws IOException, URISyntaxException {
+        final var classLoader = getClass().getClassLoader();
+        final var map = Files.readString(Path.of(classLoader.getResource("maps/star.map").toURI()));
+        final var ants = Files.readString(Path.of(classLoader.getResource("ants/simpsons.ants").toURI()));
+
+        final var factory = new Factory();
+        return factory.finishWorld(Parser.parse(map, ants, factory), -1);
+    }
+
+    private void run(final Recorder recorder) throws IOException, URISyntaxException {
+        final var options = Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withSeed(7);
+        new Simulator(world(), recorder, options).run();
+    }
+
+    private String printed() throws IOException, URISyntaxException {
+        final var out = System.out;
+        final var buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            run(new PrintRecorder());
+        } finally {
+            System.setOut(out);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private String recorded(final int capacity, final AsyncRecorder.Backpressure backpressure)
+            throws IOException, URISyntaxException {
+        final var buffer = new ByteArrayOutputStream();
+        run(new AsyncRecorder(Channels.newChannel(buffer), capacity, backpressure));
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void sameOutputAsPrintRecorder() throws IOException, URISyntaxException {
+        final var expected = printed();
+        assertTrue(expected.lines().count() > 10);
+        assertEquals(expected, recorded(AsyncRecorder.DEFAULT_CAPACITY, AsyncRecorder.Backpressure.BLOCK));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void smallRingKeepsOrder() throws IOException, URISyntaxException {
+        final var expected = printed();
+        assertEquals(expected, recorded(2, AsyncRecorder.Backpressure.BLOCK));
+        assertEquals(expected, recorded(2, AsyncRecorder.Backpressure.SPILL));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void droppingKeepsStartAndStop() throws IOException, URISyntaxException {
+        final var lines = recorded(1, AsyncRecorder.Backpressure.DROP).lines().toList();
+        assertEquals("Simulation started.", lines.get(0));
+        assertEquals("Simulation stopped.", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    void capacityMustBePowerOfTwo() {
+        final var channel = Channels.newChannel(new ByteArrayOutputStream());
+        assertThrows(IllegalArgumentException.class,
+                () -> new AsyncRecorder(channel, 3, AsyncRecorder.Backpressure.BLOCK));
+        assertThrows(IllegalArgumentException.class,
+                () -> new AsyncRecorder(channel, 0, AsyncRecorder.Backpressure.BLOCK));
+    }
+}
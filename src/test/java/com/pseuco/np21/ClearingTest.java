@@ -0,0 +1,191 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClearingTest {
+    @Test
+    void tryEnterRespectsCapacity() {
+        final var clearing = new Clearing("A", 0, Capacity.get(2));
+        assertTrue(clearing.tryEnter());
+        assertTrue(clearing.tryEnter());
+        assertFalse(clearing.tryEnter());
+        assertFalse(clearing.isSpaceLeft());
+
+        clearing.leave();
+        assertTrue(clearing.tryEnter());
+    }
+
+    @Test
+    void infiniteCapacityAlwaysAdmits() {
+        final var clearing = new Clearing("Hill", 0, Capacity.INFINITE);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(clearing.tryEnter());
+        }
+        assertTrue(clearing.isSpaceLeft());
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void concurrentAntsNeverExceedCapacity() throws InterruptedException {
+        final int capacity = 3;
+        final var clearing = new Clearing("Hub", 0, Capacity.get(capacity));
+        final var inside = new AtomicInteger();
+        final var maximum = new AtomicInteger();
+        // failed assertions on other threads go unnoticed, so they are counted and checked here
+        final var timedOut = new AtomicInteger();
+
+        final var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    try {
+                        if (!clearing.awaitSpace(10_000)) {
+                            timedOut.incrementAndGet();
+                            return;
+                        }
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    maximum.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                    inside.decrementAndGet();
+                    clearing.leave();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final var thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, timedOut.get());
+        assertTrue(maximum.get() <= capacity, () -> "maximum occupancy was " + maximum.get());
+        assertEquals(0, inside.get());
+        assertTrue(clearing.isSpaceLeft());
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void leavingHandsSpaceToWaitingAnt() throws InterruptedException {
+        final var clearing = new Clearing("A", 0, Capacity.get(1));
+        assertTrue(clearing.tryEnter());
+
+        final var entered = new AtomicInteger(-1);
+        final var waiter = new Thread(() -> {
+            try {
+                entered.set(clearing.awaitSpace(60_000) ? 1 : 0);
+            } catch (InterruptedException e) {
+                entered.set(2);
+            }
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+
+        clearing.leave();
+        waiter.join();
+
+        assertEquals(1, entered.get());
+        // the space went to the waiting ant directly
+        assertFalse(clearing.isSpaceLeft());
+        assertFalse(clearing.tryEnter());
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void waitingAntTimesOut() throws InterruptedException {
+        final var clearing = new Clearing("A", 0, Capacity.get(1));
+        assertTrue(clearing.tryEnter());
+
+        assertFalse(clearing.awaitSpace(50));
+
+        // the ant that timed out does not get the space later on
+        clearing.leave();
+        assertTrue(clearing.isSpaceLeft());
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void interruptedAntStopsWaiting() throws InterruptedException {
+        final var clearing = new Clearing("A", 0, Capacity.get(1));
+        assertTrue(clearing.tryEnter());
+
+        final var interrupted = new AtomicInteger();
+        final var waiter = new Thread(() -> {
+            try {
+                clearing.awaitSpace(60_000);
+            } catch (InterruptedException e) {
+                interrupted.set(1);
+            }
+        });
+        waiter.start();
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        waiter.interrupt();
+        waiter.join();
+
+        assertEquals(1, interrupted.get());
+        clearing.leave();
+        assertTrue(clearing.isSpaceLeft());
+    }
+
+    @Test
+    void foodIsCounted() {
+        final var clearing = new Clearing("C", 2, Capacity.get(1));
+        assertTrue(clearing.hasFood());
+        assertEquals(1, clearing.tryPickupFood());
+        assertEquals(0, clearing.tryPickupFood());
+        assertFalse(clearing.hasFood());
+        assertEquals(-1, clearing.tryPickupFood());
+        clearing.pickupFood();
+        assertFalse(clearing.hasFood());
+
+        clearing.placeFood();
+        assertTrue(clearing.hasFood());
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void concurrentAntsNeverTakeMoreFoodThanThereIs() throws InterruptedException, ReflectiveOperationException {
+        final int food = 10_000;
+        final var clearing = new Clearing("C", food, Capacity.INFINITE);
+        final var taken = new AtomicInteger();
+        final var lastTaken = new AtomicInteger();
+
+        final var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                // race past the check on the last food like the ants do
+                while (clearing.hasFood()) {
+                    final int left = clearing.tryPickupFood();
+                    if (left >= 0) {
+                        taken.incrementAndGet();
+                    }
+                    if (left == 0) {
+                        lastTaken.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final var thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(food, taken.get());
+        assertEquals(1, lastTaken.get());
+        final var field = Clearing.class.getDeclaredField("food");
+        field.setAccessible(true);
+        assertEquals(0, field.get(clearing));
+    }
+}
@@ -0,0 +1,159 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import com.pseuco.np21.shared.Recorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColonyTest {
+    /**
+     * Build a world with a single clearing of food next to the anthill.
+     */
+    private static Colony colony(final int food, final int threshold) {
+        final var factory = new Factory();
+        final var anthill = factory.createClearing("Hill", 0, Capacity.INFINITE);
+        factory.setAnthill(anthill);
+        factory.createTrail(anthill, factory.createClearing("Food", food, Capacity.INFINITE));
+        factory.createAnt("Homer", 10, 100);
+        return (Colony) factory.finishWorld("colony", threshold);
+    }
+
+    @Test
+    void stopsExactlyAtTheThreshold() {
+        final var colony = colony(100, 37);
+        for (int i = 0; i < 37; i++) {
+            assertTrue(colony.isFoodLeft());
+            assertEquals(i, colony.collected());
+            assertTrue(colony.collect(i * 7));
+        }
+        assertFalse(colony.isFoodLeft());
+        assertFalse(colony.collect(0));
+        assertEquals(37, colony.collected());
+    }
+
+    @Test
+    void nothingToCollect() {
+        final var colony = colony(5, 0);
+        assertFalse(colony.isFoodLeft());
+        assertFalse(colony.collect(3));
+        assertEquals(0, colony.collected());
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void concurrentAntsReturnExactlyTheThreshold() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            final var colony = colony(10_000, 5_000 + round);
+            final var returned = new AtomicInteger();
+            final var stale = new AtomicInteger();
+            final var start = new CountDownLatch(1);
+            final var threads = new ArrayList<Thread>();
+            for (int ant = 0; ant < 8; ant++) {
+                final int index = ant;
+                final var thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    while (colony.collect(index)) {
+                        returned.incrementAndGet();
+                    }
+                    // an ant turned away must not keep searching
+                    if (colony.isFoodLeft()) {
+                        stale.incrementAndGet();
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            for (final var thread : threads) {
+                thread.join();
+            }
+            assertEquals(5_000 + round, returned.get());
+            assertEquals(5_000 + round, colony.collected());
+            assertEquals(0, stale.get());
+            assertFalse(colony.isFoodLeft());
+        }
+    }
+
+    /**
+     * Simulate a world deterministically and list every call of the recorder.
+     */
+    private static List<String> simulate(final Colony colony) {
+        final var calls = Collections.synchronizedList(new ArrayList<String>());
+        final var recorder = (Recorder) Proxy.newProxyInstance(Recorder.class.getClassLoader(),
+                new Class<?>[]{Recorder.class}, (proxy, method, args) -> {
+                    calls.add(method.getName() + (args == null ? "" : Arrays.toString(args)));
+                    return null;
+                });
+        new Simulator(colony, recorder, Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withSeed(5)).run();
+        return calls;
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void resetWorldsRunAgain() {
+        final var colony = Worlds.load("fork.map", "family.ants");
+        final var first = simulate(colony);
+        assertEquals(5, colony.collected());
+        assertFalse(colony.isFoodLeft());
+
+        colony.reset();
+        assertTrue(colony.isFoodLeft());
+        assertEquals(0, colony.collected());
+        assertTrue(colony.clearings().get(2).hasFood());
+        assertTrue(colony.clearings().get(3).hasFood());
+        for (final var clearing : colony.clearings()) {
+            for (final var trail : clearing.connectsTo()) {
+                assertFalse(trail.food().isAPheromone());
+                assertFalse(trail.anthill().isAPheromone());
+            }
+        }
+        assertEquals(first, simulate(colony));
+    }
+
+    @Test
+    void resetOnlyRestoresWhatChanged() throws ReflectiveOperationException {
+        final var colony = Worlds.load("fork.map", "family.ants");
+        simulate(colony);
+
+        // bypass the logging like the specification tests do, on the island no run can reach
+        final var island = colony.clearings().get(5);
+        final var food = Clearing.class.getDeclaredField("food");
+        food.setAccessible(true);
+        food.set(island, 42);
+
+        colony.reset();
+        assertEquals(42, food.get(island));
+        assertEquals(3, food.get(colony.clearings().get(2)));
+
+        // changes through the clearing itself are logged
+        island.placeFood();
+        colony.reset();
+        assertEquals(0, food.get(island));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void resetWorldsTakeOtherAnts() {
+        final var colony = Worlds.load("fork.map", "family.ants");
+        simulate(colony);
+        colony.reset(List.of(new com.pseuco.np21.shared.Ant("Ned", 30, 500)));
+        assertEquals(1, colony.ants().size());
+        assertTrue(simulate(colony).stream().anyMatch(call -> call.startsWith("spawn") && call.contains("Ned")));
+    }
+}
@@ -0,0 +1,118 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.CatValidator;
+import com.pseuco.np21.shared.SpawnDespawnValidator;
+import com.pseuco.np21.shared.StartStopValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentionTest {
+    @Test
+    @Timeout(value = 10)
+    void waitsOfAllThreadsAreMerged() throws InterruptedException {
+        final var world = Worlds.load("line.map", "family.ants");
+        final var contention = new Contention(world);
+        world.profile(contention);
+        final var clearing = world.clearings().get(1);
+        final var trail = world.anthill().trail(0);
+
+        contention.lock(trail, trail.traverseLock());
+        final var locked = new CountDownLatch(1);
+        final var other = new Thread(() -> {
+            contention.lock(clearing, clearing.lock);
+            locked.countDown();
+            contention.lock(trail, trail.traverseLock());
+            trail.traverseLock().unlock();
+            clearing.lock.unlock();
+        });
+        other.start();
+        locked.await();
+        // the other thread blocks on the trail now
+        Thread.sleep(50);
+        trail.traverseLock().unlock();
+        other.join();
+
+        final var top = contention.top(10);
+        assertEquals(2, top.size());
+        final var first = top.get(0);
+        assertEquals("Hill->A", first.name());
+        assertTrue(first.trail());
+        assertEquals(2, first.acquisitions());
+        assertEquals(1, first.contended());
+        assertTrue(first.totalWait().toMillis() >= 40, first::toString);
+        assertEquals(first.totalWait(), first.maxWait());
+        assertEquals(new Contention.Bottleneck("A", false, 1, 0, Duration.ZERO, Duration.ZERO), top.get(1));
+        assertEquals(List.of(first), contention.top(1));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void queuedAntsAreContendedAcquisitions() throws InterruptedException {
+        final var world = Worlds.load("line.map", "family.ants");
+        final var contention = new Contention(world);
+        world.profile(contention);
+        final var clearing = world.clearings().get(1);
+
+        assertTrue(clearing.awaitSpace(0));
+        // a failed assertion on the waiting thread would go unnoticed, so it is checked here
+        final var entered = new AtomicBoolean();
+        final var waiting = new Thread(() -> {
+            try {
+                entered.set(clearing.awaitSpace(10_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiting.start();
+        Thread.sleep(50);
+        clearing.leave();
+        waiting.join();
+        assertTrue(entered.get());
+
+        final var bottleneck = contention.top(1).get(0);
+        assertEquals("A", bottleneck.name());
+        assertTrue(bottleneck.contended() >= 1, bottleneck::toString);
+        assertTrue(bottleneck.maxWait().toMillis() >= 40, bottleneck::toString);
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void onlyProfiledRunsHaveAProfile() throws InterruptedException {
+        for (final var options : List.of(Options.DEFAULT, Options.DEFAULT.withEngine(Engine.WORKER_POOL))) {
+            final var world = Worlds.load("line.map", "family.ants");
+            final var plain = new Simulator(world, new StartStopValidator(), options).start();
+            plain.await();
+            assertTrue(plain.contention().isEmpty());
+
+            world.reset();
+            final var validator = new CatValidator<>(List.of(new StartStopValidator(), new SpawnDespawnValidator()));
+            final var profiled = new Simulator(world, validator, options.withContention(true)).start();
+            profiled.await();
+            assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+            final var top = profiled.contention().orElseThrow().top(Integer.MAX_VALUE);
+            for (final var bottleneck : top) {
+                assertTrue(bottleneck.contended() <= bottleneck.acquisitions(), bottleneck::toString);
+                assertFalse(bottleneck.totalWait().isNegative(), bottleneck::toString);
+            }
+            for (int i = 1; i < top.size(); i++) {
+                assertTrue(top.get(i - 1).totalWait().compareTo(top.get(i).totalWait()) >= 0);
+            }
+
+            // the next run of the world does not record into the old profile
+            world.reset();
+            final var again = new Simulator(world, new StartStopValidator(), options).start();
+            again.await();
+            assertTrue(again.contention().isEmpty());
+            assertEquals(top, profiled.contention().orElseThrow().top(Integer.MAX_VALUE));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.CatValidator;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.SpawnDespawnValidator;
+import com.pseuco.np21.shared.StartStopValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiscreteEventTest {
+    /**
+     * Recorder writing every call into a list of strings.
+     */
+    private static Recorder tracing(final List<String> trace) {
+        return (Recorder) Proxy.newProxyInstance(Recorder.class.getClassLoader(), new Class<?>[]{Recorder.class},
+                (proxy, method, args) -> {
+                    trace.add(method.getName() + (args == null ? "" : Arrays.toString(args)));
+                    return null;
+                });
+    }
+
+    /**
+     * Run the line with ants of a disguise of roughly 15 minutes, way beyond the test timeout if waited in real time.
+     */
+    private static List<String> trace() {
+        final var trace = Collections.synchronizedList(new ArrayList<String>());
+        final var options = Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT);
+        new Simulator(Worlds.load("line.map", "patient.ants"), tracing(trace), options).run();
+        return trace;
+    }
+
+    private static List<String> seededTrace(final String map, final long seed) {
+        final var world = Worlds.load(map, "simpsons.ants");
+        final var trace = Collections.synchronizedList(new ArrayList<String>());
+        final var options = Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withSeed(seed);
+        new Simulator(world, tracing(trace), options).run();
+        return trace;
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void validRecording() {
+        final var validator = new CatValidator<>(List.of(
+                new StartStopValidator(),
+                new SpawnDespawnValidator()
+        ));
+        final var options = Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT);
+        new Simulator(Worlds.load("line.map", "patient.ants"), validator, options).run();
+
+        assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void identicalTraces() {
+        final var first = trace();
+        final var second = trace();
+
+        assertTrue(first.size() > 2);
+        assertEquals(first, second);
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void identicalTracesForSameSeed() {
+        final var first = seededTrace("star.map", 42);
+        final var second = seededTrace("star.map", 42);
+
+        assertTrue(first.stream().anyMatch(call -> call.startsWith("select")));
+        assertEquals(first, second);
+    }
+
+    @Test
+    void antsHaveStreamsOfTheirOwn() {
+        // the ants file may repeat a name, so the stream must not depend on it
+        final var streams = new HashSet<Long>();
+        for (int index = 0; index < 1000; index++) {
+            assertEquals(Simulator.randomFor(42, index).nextLong(), Simulator.randomFor(42, index).nextLong());
+            streams.add(Simulator.randomFor(42, index).nextLong());
+        }
+        assertEquals(1000, streams.size());
+        assertNotEquals(Simulator.randomFor(42, 0).nextLong(), Simulator.randomFor(43, 0).nextLong());
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void timeLimitEndsRunsWithoutWaiting() {
+        // unbounded clearings and endless food, the ants never wait and never run out of work
+        final var trace = Collections.synchronizedList(new ArrayList<String>());
+        final var options = Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withTimeLimit(100);
+        new Simulator(Worlds.load("plenty.map", "patient.ants"), tracing(trace), options).run();
+
+        assertEquals("stop", trace.get(trace.size() - 1));
+        assertEquals(4, trace.stream().filter(call -> call.startsWith("despawn") && call.endsWith("TERMINATED]"))
+                .count());
+        // every traversal took its time, so the ants got no further than the limit allows
+        final var traversals = trace.stream().filter(call -> call.startsWith("enter[") && call.contains("Trail{"))
+                .count();
+        assertTrue(traversals > 0 && traversals <= 4 * (100 / DiscreteEventScheduler.TRAVERSAL + 1),
+                () -> traversals + " traversals");
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void timeLimitTerminatesAnts() {
+        final var trace = Collections.synchronizedList(new ArrayList<String>());
+        final var options = Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withTimeLimit(0);
+        new Simulator(Worlds.load("line.map", "patient.ants"), tracing(trace), options).run();
+
+        assertEquals("stop", trace.get(trace.size() - 1));
+        final var spawns = trace.stream().filter(call -> call.startsWith("spawn")).count();
+        final var despawns = trace.stream().filter(call -> call.startsWith("despawn")).count();
+        assertEquals(spawns, despawns);
+    }
+}
@@ -0,0 +1,86 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Recorder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnsembleTest {
+    private static final Options OPTIONS = Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withSeed(100);
+
+    @Test
+    @Timeout(value = 30)
+    void everyRunSimulatesAFreshCopy() throws InterruptedException {
+        final var template = Worlds.load("fork.map", "family.ants");
+        final var summary = new Ensemble(template, -1, OPTIONS, 20, 4).run();
+
+        assertEquals(20, summary.samples().size());
+        for (int k = 0; k < 20; k++) {
+            final var sample = summary.samples().get(k);
+            assertEquals(100 + k, sample.seed());
+            assertEquals(Run.Outcome.COMPLETED, sample.outcome());
+            // every copy starts with all of the food, whatever the other runs collected
+            assertTrue(sample.collected() <= 5);
+            assertEquals(4, sample.despawns().values().stream().mapToInt(Integer::intValue).sum());
+            assertTrue(sample.moves() > 0);
+        }
+        assertEquals(summary.samples().stream().mapToInt(Ensemble.Sample::collected).average().orElseThrow(),
+                summary.collected().mean(), 1e-9);
+        assertTrue(summary.collected().low() <= summary.collected().mean());
+        assertEquals(20, summary.outcomes().get(Run.Outcome.COMPLETED));
+        assertEquals(4, summary.despawns().values().stream().mapToDouble(Ensemble.Statistic::mean).sum(), 1e-9);
+
+        // the template is never simulated
+        assertTrue(template.clearings().subList(2, 4).stream().allMatch(Clearing::hasFood));
+    }
+
+    @Test
+    @Timeout(value = 30)
+    void studiesCanBeRepeated() throws InterruptedException {
+        final var first = new Ensemble(Worlds.load("fork.map", "family.ants"), -1, OPTIONS, 8, 3).run();
+        final var second = new Ensemble(Worlds.load("fork.map", "family.ants"), -1, OPTIONS, 8, 2).run();
+        for (int k = 0; k < 8; k++) {
+            assertEquals(first.samples().get(k).moves(), second.samples().get(k).moves());
+            assertEquals(first.samples().get(k).despawns(), second.samples().get(k).despawns());
+        }
+        assertEquals(first.moves(), second.moves());
+    }
+
+    @Test
+    @Timeout(value = 30)
+    void thresholdsApplyToEveryRun() throws InterruptedException {
+        final var summary = new Ensemble(Worlds.load("fork.map", "family.ants"), 2, OPTIONS, 6, 2).run();
+        for (final var sample : summary.samples()) {
+            assertEquals(2, sample.collected());
+            assertEquals(4, sample.despawns().get(Recorder.DespawnReason.ENOUGH_FOOD_COLLECTED)
+                    + sample.despawns().get(Recorder.DespawnReason.DISCOVERED_AND_EATEN)
+                    + sample.despawns().get(Recorder.DespawnReason.TERMINATED));
+        }
+    }
+
+    @Test
+    void statisticsSummarizeTheValues() {
+        final var statistic = Ensemble.Statistic.of(new double[]{5, 1, 4, 2, 3});
+        assertEquals(3, statistic.mean());
+        assertEquals(Math.sqrt(2.5), statistic.deviation(), 1e-9);
+        assertEquals(1, statistic.p5());
+        assertEquals(3, statistic.p50());
+        assertEquals(5, statistic.p95());
+        assertEquals(3 - 2.776 * Math.sqrt(2.5) / Math.sqrt(5), statistic.low(), 1e-9);
+        assertEquals(3 + 2.776 * Math.sqrt(2.5) / Math.sqrt(5), statistic.high(), 1e-9);
+
+        final var single = Ensemble.Statistic.of(new double[]{7});
+        assertEquals(7, single.p50());
+        assertTrue(Double.isNaN(single.low()));
+    }
+
+    @Test
+    void ensemblesNeedRuns() {
+        final var world = Worlds.load("fork.map", "family.ants");
+        assertThrows(IllegalArgumentException.class, () -> new Ensemble(world, -1, OPTIONS, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new Ensemble(world, -1, OPTIONS, 1, 0));
+    }
+}
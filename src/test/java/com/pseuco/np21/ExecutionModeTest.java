@@ -0,0 +1,66 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.CatValidator;
+import com.pseuco.np21.shared.Parser;
+import com.pseuco.np21.shared.SpawnDespawnValidator;
+import com.pseuco.np21.shared.StartStopValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ExecutionModeTest {
+    private void simulate(final ExecutionMode mode) throws IOException, URISyntaxException {
+        final var factory = new Factory();
+
+        final var classLoader = getClass().getClassLoader();
+        final var map = Files.readString(Path.of(classLoader.getResource("maps/line.map").toURI()));
+        final var ants = Files.readString(Path.of(classLoader.getResource("ants/simpsons.ants").toURI()));
+        final var name = Parser.parse(map, ants, factory);
+
+        final var world = factory.finishWorld("ExecutionModeTest: " + name, -1);
+        final var validator = new CatValidator<>(List.of(
+                new StartStopValidator(),
+                new SpawnDespawnValidator()
+        ));
+
+        new Simulator(world, validator, mode).run();
+
+        assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void platformThreads() throws IOException, URISyntaxException {
+        simulate(ExecutionMode.PLATFORM);
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void virtualThreads() throws IOException, URISyntaxException {
+        assumeTrue(ExecutionMode.VIRTUAL.isSupported(), "JVM without virtual threads");
+        simulate(ExecutionMode.VIRTUAL);
+    }
+
+    @Test
+    void unsupportedModeIsRejected() {
+        assumeTrue(!ExecutionMode.VIRTUAL.isSupported(), "JVM with virtual threads");
+        assertThrows(UnsupportedOperationException.class, () -> ExecutionMode.VIRTUAL.newThread(() -> {
+        }));
+    }
+
+    @Test
+    void parse() {
+        assertTrue(ExecutionMode.parse("platform") == ExecutionMode.PLATFORM);
+        assertTrue(ExecutionMode.parse("virtual") == ExecutionMode.VIRTUAL);
+        assertThrows(IllegalArgumentException.class, () -> ExecutionMode.parse("green"));
+    }
+}
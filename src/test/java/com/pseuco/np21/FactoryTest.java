@@ -0,0 +1,103 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import com.pseuco.np21.shared.World;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FactoryTest {
+    /**
+     * Build a ring of clearings, every clearing connected to the next one.
+     */
+    private static World<Clearing, Trail> ring(final int size) {
+        final var factory = new Factory();
+        final var clearings = new ArrayList<Clearing>();
+        for (int i = 0; i < size; i++) {
+            clearings.add(factory.createClearing("C" + i, i % 3, Capacity.INFINITE));
+        }
+        factory.setAnthill(clearings.get(0));
+        for (int i = 0; i < size; i++) {
+            factory.createTrail(clearings.get(i), clearings.get((i + 1) % size));
+        }
+        factory.createAnt("Homer", 10, 100);
+        return factory.finishWorld("ring", -1);
+    }
+
+    /**
+     * List the indices of every clearing, the trails leaving it and the clearings they lead to.
+     */
+    private static List<String> indices(final World<Clearing, Trail> world) {
+        final var adjacency = Adjacency.of(world);
+        final var indices = new ArrayList<String>();
+        for (final var clearing : world.clearings()) {
+            final int offset = adjacency.offset(clearing.index());
+            for (int i = 0; i < clearing.degree(); i++) {
+                indices.add(clearing.index() + ":" + clearing.trail(i).index() + "->" + adjacency.target(offset + i));
+            }
+        }
+        return indices;
+    }
+
+    @Test
+    void indicesAreDensePerWorld() {
+        for (int round = 0; round < 2; round++) {
+            final var world = ring(4);
+            final var adjacency = Adjacency.of(world);
+            assertEquals(4, adjacency.clearings());
+            assertEquals(8, adjacency.trails());
+
+            for (int i = 0; i < world.clearings().size(); i++) {
+                assertEquals(i, world.clearings().get(i).index());
+            }
+            final var seen = new boolean[adjacency.trails()];
+            for (final var clearing : world.clearings()) {
+                for (int i = 0; i < clearing.degree(); i++) {
+                    final var trail = clearing.trail(i);
+                    assertSame(trail, clearing.connectsTo().get(i));
+                    assertEquals(trail.index() ^ 1, trail.reverse().index());
+                    seen[trail.index()] = true;
+                }
+            }
+            for (final boolean trail : seen) {
+                assertTrue(trail);
+            }
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void worldsBuiltConcurrentlyGetTheSameIndices() throws InterruptedException, ExecutionException {
+        final var expected = indices(ring(200));
+        final var executor = Executors.newFixedThreadPool(4);
+        try {
+            final var worlds = new ArrayList<Future<World<Clearing, Trail>>>();
+            for (int i = 0; i < 8; i++) {
+                worlds.add(executor.submit(() -> ring(200)));
+            }
+            for (final var world : worlds) {
+                assertEquals(expected, indices(world.get()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void finishedWorldsCannotGrow() {
+        final var world = ring(3);
+        final var clearings = world.clearings();
+        assertThrows(IllegalStateException.class,
+                () -> clearings.get(0).addTrail(new Trail(clearings.get(0), clearings.get(2))));
+    }
+}
@@ -0,0 +1,216 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.CatValidator;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.SpawnDespawnValidator;
+import com.pseuco.np21.shared.StartStopValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunTest {
+    /**
+     * There is far too much food to collect, so the ants run until they are terminated.
+     */
+    private static final String ENDLESS = "plenty.map";
+
+    private static final String LINE = "line.map";
+
+    private static final List<Options> ENGINES = List.of(
+            Options.DEFAULT,
+            Options.DEFAULT.withEngine(Engine.WORKER_POOL).withWorkers(2),
+            Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT));
+
+    /**
+     * Validator of the recording that also counts the ants despawned as terminated.
+     */
+    private static final class Recording {
+        private final CatValidator<?> validator = new CatValidator<>(List.of(
+                new StartStopValidator(),
+                new SpawnDespawnValidator()
+        ));
+        private final AtomicInteger terminated = new AtomicInteger();
+        private final AtomicInteger returned = new AtomicInteger();
+
+        Recorder recorder() {
+            return (Recorder) Proxy.newProxyInstance(Recorder.class.getClassLoader(), new Class<?>[]{Recorder.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("despawn") && args[1] == Recorder.DespawnReason.TERMINATED) {
+                            terminated.incrementAndGet();
+                        } else if (method.getName().equals("returnedFood")) {
+                            returned.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(validator, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        void assertValid() {
+            assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+        }
+    }
+
+    private static Simulator simulator(final String map, final Recorder recorder, final Options options) {
+        // on the endless map, the ants are never eaten before they are terminated
+        final var world = Worlds.load(map, map.equals(ENDLESS) ? "patient.ants" : "family.ants");
+        return new Simulator(world, recorder, options.withSeed(7));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void deadlineTerminatesEveryAnt() throws InterruptedException {
+        for (final var options : ENGINES) {
+            final var recording = new Recording();
+            final var run = simulator(ENDLESS, recording.recorder(), options.withDeadline(100)).start();
+
+            final var result = run.await();
+            assertEquals(Run.Outcome.DEADLINE_EXCEEDED, result.outcome(), options::toString);
+            assertEquals(4, result.ants());
+            assertEquals(recording.returned.get(), result.collected());
+            assertTrue(result.elapsed().toMillis() >= 100);
+            assertTrue(run.isDone());
+            assertEquals(4, recording.terminated.get(), options::toString);
+            recording.assertValid();
+        }
+    }
+
+    private static WeakReference<Run> finishedRun() throws InterruptedException {
+        final var run = simulator(LINE, new Recording().recorder(), Options.DEFAULT.withDeadline(3_600_000)).start();
+        assertEquals(Run.Outcome.COMPLETED, run.await().outcome());
+        return new WeakReference<>(run);
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void finishedRunsAreNotKeptByTheirDeadline() throws InterruptedException {
+        final var run = finishedRun();
+        for (int i = 0; i < 100 && run.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(run.get());
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void cancelTerminatesEveryAnt() throws InterruptedException {
+        for (final var options : ENGINES) {
+            final var recording = new Recording();
+            final var run = simulator(ENDLESS, recording.recorder(), options).start();
+
+            assertTrue(run.await(Duration.ofMillis(50)).isEmpty(), options::toString);
+            run.cancel();
+            run.cancel();
+            final var result = run.await();
+            assertEquals(Run.Outcome.CANCELLED, result.outcome(), options::toString);
+            assertTrue(result.shutdown().compareTo(result.elapsed()) < 0);
+            assertEquals(4, recording.terminated.get(), options::toString);
+            recording.assertValid();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void completedRunsReportTheirFood() throws InterruptedException {
+        for (final var options : ENGINES) {
+            final var recording = new Recording();
+            final var run = simulator(LINE, recording.recorder(), options.withDeadline(60_000)).start();
+
+            final var result = run.await();
+            assertEquals(Run.Outcome.COMPLETED, result.outcome(), options::toString);
+            assertEquals(recording.returned.get(), result.collected());
+            assertEquals(Duration.ZERO, result.shutdown());
+            recording.assertValid();
+
+            // cancelling a finished run changes nothing
+            run.cancel();
+            assertEquals(result, run.await());
+        }
+    }
+
+    @Test
+    @Timeout(value = 30)
+    void cancelRacingTheEndDecidesOnce() throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            final var recording = new Recording();
+            final var run = simulator(LINE, recording.recorder(), Options.DEFAULT).start();
+            Thread.sleep(i % 5);
+            run.cancel();
+
+            final var result = run.await();
+            assertFalse(result.shutdown().isNegative());
+            assertTrue(result.shutdown().compareTo(result.elapsed()) <= 0);
+            if (result.outcome() == Run.Outcome.COMPLETED) {
+                assertEquals(Duration.ZERO, result.shutdown());
+                assertEquals(0, recording.terminated.get());
+            } else {
+                assertEquals(Run.Outcome.CANCELLED, result.outcome());
+            }
+            recording.assertValid();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void otherThreadsAreNotInterrupted() throws InterruptedException {
+        final var bystanderStarted = new CountDownLatch(1);
+        final var bystanderInterrupted = new AtomicInteger();
+        final var bystander = new Thread(() -> {
+            bystanderStarted.countDown();
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                bystanderInterrupted.incrementAndGet();
+            }
+        });
+        bystander.start();
+        bystanderStarted.await();
+
+        final var recording = new Recording();
+        simulator(ENDLESS, recording.recorder(), Options.DEFAULT.withDeadline(50)).start().await();
+        assertFalse(Thread.currentThread().isInterrupted());
+        assertTrue(bystander.isAlive());
+        assertEquals(0, bystanderInterrupted.get());
+
+        bystander.interrupt();
+        bystander.join();
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void cancelBeforeTheStartTerminatesEveryAnt() throws InterruptedException {
+        for (final var options : ENGINES) {
+            final var recording = new Recording();
+            final var simulator = simulator(ENDLESS, recording.recorder(), options);
+            simulator.cancel();
+            simulator.start().await();
+            assertEquals(4, recording.terminated.get(), options::toString);
+            recording.assertValid();
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void simulatorsRunOnce() throws InterruptedException {
+        final var simulator = simulator(LINE, new Recording().recorder(), Options.DEFAULT);
+        final var run = simulator.start();
+        assertThrows(IllegalStateException.class, simulator::start);
+        assertEquals(Run.Outcome.COMPLETED, run.await().outcome());
+    }
+}
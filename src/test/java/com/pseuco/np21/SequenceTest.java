@@ -0,0 +1,132 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SequenceTest {
+    /**
+     * Straightforward brain to compare against: a list of clearings with one flag array each.
+     */
+    private record Entry(int id, boolean[] options) {
+    }
+
+    @Test
+    void behavesLikeAStackOfFlags() {
+        final var random = new SplittableRandom(3);
+        final var brain = new Sequence();
+        final var expected = new ArrayList<Entry>();
+
+        for (int step = 0; step < 20_000; step++) {
+            // pushing and popping about as often keeps the route well below the number of clearings
+            final int action = random.nextInt(10);
+            if (action < 3 || expected.isEmpty()) {
+                int id;
+                do {
+                    id = random.nextInt(500);
+                } while (brain.alreadySeen(id));
+                final int size = random.nextInt(1, 150);
+                brain.addClearing(id, size);
+                brain.addTrail(null);
+                expected.add(new Entry(id, new boolean[size]));
+            } else if (action < 5) {
+                final var top = expected.get(expected.size() - 1);
+                final int path = random.nextInt(top.options().length);
+                brain.addBlock(path);
+                top.options()[path] = true;
+            } else if (action < 6) {
+                final var entry = expected.get(random.nextInt(expected.size()));
+                final int path = random.nextInt(entry.options().length);
+                brain.addBlock(entry.id(), path);
+                entry.options()[path] = true;
+            } else if (action < 9) {
+                brain.removeLast();
+                expected.remove(expected.size() - 1);
+            } else if (random.nextInt(20) == 0) {
+                brain.clear();
+                expected.clear();
+            }
+
+            assertEquals(expected.size(), brain.length());
+            if (!expected.isEmpty()) {
+                final var top = expected.get(expected.size() - 1).options();
+                for (int path = 0; path < top.length; path++) {
+                    assertEquals(!top[path], brain.viable(path));
+                }
+            }
+            if (expected.size() > 1) {
+                assertEquals(expected.get(expected.size() - 2).id(), brain.lastId());
+            }
+            final int id = random.nextInt(500);
+            assertEquals(expected.stream().anyMatch(entry -> entry.id() == id), brain.alreadySeen(id));
+        }
+    }
+
+    @Test
+    void remembersTrails() {
+        final var a = new Clearing("A", 0, Capacity.INFINITE);
+        final var b = new Clearing("B", 0, Capacity.INFINITE);
+        final var trails = List.of(new Trail(a, b), new Trail(b, a));
+
+        final var brain = new Sequence();
+        brain.addClearing(0, 1);
+        brain.addClearing(1, 3, 0, 2);
+        brain.addTrail(trails.get(0));
+        brain.addClearing(2, 1);
+        brain.addTrail(trails.get(1));
+
+        assertEquals(trails.get(1), brain.lastTrail());
+        brain.removeLast();
+        assertEquals(trails.get(0), brain.lastTrail());
+        assertArrayEquals(new boolean[]{false, true, false}, brain.getOptions());
+        assertFalse(brain.alreadySeen(2));
+        assertTrue(brain.alreadySeen(1));
+
+        brain.clear();
+        assertEquals(0, brain.length());
+        assertFalse(brain.alreadySeen(0));
+        assertThrows(RuntimeException.class, brain::lastTrail);
+    }
+
+    @Test
+    void farClearingsAreRememberedByTheRouteOnly() {
+        // clearings at the end of a huge map, a lookup by clearing index would take gigabytes
+        final var random = new SplittableRandom(5);
+        final var brain = new Sequence();
+        final var route = new ArrayList<Integer>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                int id;
+                do {
+                    id = Integer.MAX_VALUE - random.nextInt(1 << 20);
+                } while (brain.alreadySeen(id));
+                brain.addClearing(id, 2);
+                brain.addTrail(null);
+                route.add(id);
+                if (random.nextInt(3) == 0) {
+                    brain.removeLast();
+                    assertFalse(brain.alreadySeen(route.remove(route.size() - 1)));
+                }
+            }
+            for (final int id : route) {
+                assertTrue(brain.alreadySeen(id));
+            }
+            assertEquals(route.get(route.size() - 2), brain.lastId());
+
+            brain.clear();
+            for (final int id : route) {
+                assertFalse(brain.alreadySeen(id));
+            }
+            route.clear();
+        }
+    }
+}
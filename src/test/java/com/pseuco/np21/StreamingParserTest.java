@@ -0,0 +1,144 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingParserTest {
+    private static final String N = System.lineSeparator();
+    private static final String ANTS = "Homer;1000;500" + N + "Marge;20;20" + N;
+
+    /**
+     * Factory writing every call into a list of strings before constructing the world.
+     */
+    @SuppressWarnings("unchecked")
+    private static com.pseuco.np21.shared.Factory<Clearing, Trail> tracing(final List<String> trace) {
+        final var factory = new Factory();
+        return (com.pseuco.np21.shared.Factory<Clearing, Trail>) Proxy.newProxyInstance(
+                Factory.class.getClassLoader(), new Class<?>[]{com.pseuco.np21.shared.Factory.class},
+                (proxy, method, args) -> {
+                    trace.add(method.getName() + Arrays.toString(args));
+                    try {
+                        return method.invoke(factory, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Parse with both parsers and compare the calls to the factory as well as the outcome.
+     */
+    private static List<String> compare(final String map, final String ants, final int bufferSize) {
+        final var expected = new ArrayList<String>();
+        try {
+            expected.add("name " + Parser.parse(map, ants, tracing(expected)));
+        } catch (RuntimeException e) {
+            expected.add(e.getClass().getName() + ": " + e.getMessage());
+        }
+
+        final var actual = new ArrayList<String>();
+        try {
+            final var name = new StreamingParser(bufferSize).parse(
+                    Channels.newChannel(new ByteArrayInputStream(map.getBytes(StandardCharsets.UTF_8))),
+                    Channels.newChannel(new ByteArrayInputStream(ants.getBytes(StandardCharsets.UTF_8))),
+                    tracing(actual));
+            actual.add("name " + name);
+        } catch (RuntimeException | IOException e) {
+            actual.add(e.getClass().getName() + ": " + e.getMessage());
+        }
+
+        assertEquals(expected, actual, () -> "map:\n" + map + "\nants:\n" + ants);
+        return actual;
+    }
+
+    private static List<String> compare(final String map, final String ants) {
+        compare(map, ants, 3);
+        return compare(map, ants, 1 << 16);
+    }
+
+    @Test
+    void sameWorldsForAllMaps() throws IOException, URISyntaxException {
+        final var classLoader = getClass().getClassLoader();
+        final var ants = Files.readString(Path.of(classLoader.getResource("ants/simpsons.ants").toURI()));
+        try (final var maps = Files.list(Path.of(classLoader.getResource("maps").toURI()))) {
+            for (final var map : maps.toList()) {
+                final var trace = compare(Files.readString(map), ants);
+                assertTrue(trace.get(trace.size() - 1).startsWith("name "), () -> map + ": " + trace);
+            }
+        }
+    }
+
+    @Test
+    void sameWorldsForOddLines() {
+        compare("w\r\nA;-1;0;(0,0)\r\nB;2;+3;(-1,1)\r\nA-B\r\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nB;1;0;(0,0)\nA-B\nnot a trail\nA-A\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nB;1;0;(0,0)\n\nA-B\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nB;1;0;(0,0)\nA-B", ANTS);
+        compare("w\nA;-1;0;(0,0)\n\n\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nA-A\r", ANTS);
+        compare("w\nA;-1;0;(0,0)\nB;1;0;(0,0)\nA-B\n", "a;1;2" + N + "b;1" + N + N + "c;-3;0004" + N + "d;1;2\r");
+        compare("w\nA;-1;0;(0,0)\n", "");
+    }
+
+    @Test
+    void sameErrors() {
+        compare("", ANTS);
+        compare("w", ANTS);
+        compare("w\n\n\n", ANTS);
+        compare("w\n\nA;-1;0;(0,0)\n", ANTS);
+        compare("not a name\nA;-1;0;(0,0)\n", ANTS);
+        compare("w\nA-B\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nA;1;0;(0,0)\nA-A\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nA;1;0;(0,0)\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nA;1;0;(0,0)\n\n\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nA;1;0;(0,0)\n\nB\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nB;1;0;(0,0)\nA-C\n", ANTS);
+        compare("w\nA;-2;0;(0,0)\n", ANTS);
+        compare("w\nA;-1;0;(0,2147483648)\nB;1;0;(0,0)\n", ANTS);
+        compare("w\nA;-1;0;(0,-2147483648)\nB;1;0;(0,0)\n", ANTS);
+        compare("w\nA;-1;0;(0,0)\nB;1;0;(0,0)\nA-B\n", "a;1;99999999999999999999" + N);
+        compare("w\nA;-1;0;(0,0)\nB;1;0;(0,0)\nA-B\n", N + N);
+    }
+
+    @Test
+    void invalidEncoding() {
+        final var map = new byte[]{'w', '\n', 'A', (byte) 0xff, '\n'};
+        assertThrows(CharacterCodingException.class, () -> new StreamingParser().parse(
+                Channels.newChannel(new ByteArrayInputStream(map)),
+                Channels.newChannel(new ByteArrayInputStream(new byte[0])),
+                new Factory()));
+    }
+
+    @Test
+    void throughputIsMeasured() throws IOException {
+        final var parser = new StreamingParser();
+        final var map = "w\nA;-1;0;(0,0)\n".getBytes(StandardCharsets.UTF_8);
+        final var ants = ANTS.getBytes(StandardCharsets.UTF_8);
+        final var name = parser.parse(
+                Channels.newChannel(new ByteArrayInputStream(map)),
+                Channels.newChannel(new ByteArrayInputStream(ants)),
+                new Factory());
+
+        assertEquals("w", name);
+        assertEquals(map.length + ants.length, parser.bytes());
+        assertTrue(parser.throughput() > 0);
+    }
+}
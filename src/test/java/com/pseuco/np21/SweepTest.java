@@ -0,0 +1,112 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.Sweep.Axis;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SweepTest {
+    private static final Options OPTIONS = Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withSeed(11);
+
+    private static Sweep sweep(final Options options, final Path cache) {
+        return new Sweep(Worlds.load("fork.map", "family.ants"), -1, options, Axis.parse("1,3"), Axis.parse("5..25:10"),
+                Axis.parse("40"), 2, 2, cache);
+    }
+
+    @Test
+    void axesAreParsed() {
+        assertEquals(List.of(7), Axis.parse("7").values());
+        assertEquals(List.of(5, 15, 25), Axis.parse("5..25:10").values());
+        assertEquals(List.of(1, 2, 3, 10, 20), Axis.parse("1..3,10,20").values());
+        assertThrows(IllegalArgumentException.class, () -> Axis.parse("5..1"));
+        assertThrows(IllegalArgumentException.class, () -> Axis.parse("1..5:0"));
+        assertThrows(IllegalArgumentException.class, () -> Axis.parse("many"));
+    }
+
+    @Test
+    @Timeout(value = 30)
+    void everyCellIsSimulated(@TempDir final Path directory) throws IOException, InterruptedException {
+        final var results = sweep(OPTIONS, directory.resolve("sweep.csv")).run();
+        assertEquals(6, results.size());
+        assertEquals(new Sweep.Cell(1, 5, 40), results.get(0).cell());
+        assertEquals(new Sweep.Cell(3, 25, 40), results.get(5).cell());
+        for (final var result : results) {
+            assertEquals(2, result.runs());
+            assertTrue(result.food() <= 2 * 5);
+            assertTrue(result.eatenRatio() >= 0 && result.eatenRatio() <= 1);
+            assertTrue(result.seconds() > 0);
+        }
+        assertEquals(7, Files.readAllLines(directory.resolve("sweep.csv")).size());
+    }
+
+    @Test
+    @Timeout(value = 30)
+    void interruptedSweepsResume(@TempDir final Path directory) throws IOException, InterruptedException {
+        final var cache = directory.resolve("sweep.csv");
+        final var results = sweep(OPTIONS, cache).run();
+
+        // keep two cells and cut the third one off, as if the sweep was killed while writing it
+        final var lines = Files.readAllLines(cache);
+        final var third = lines.get(3);
+        Files.writeString(cache, String.join("\n", lines.subList(0, 3)) + "\n" + third.substring(0, 10));
+
+        final var resumed = sweep(OPTIONS, cache).run();
+        assertEquals(results.stream().map(Sweep.Result::cell).toList(),
+                resumed.stream().map(Sweep.Result::cell).toList());
+        // the cached cells are taken as they are, including their timing
+        for (final var line : lines.subList(1, 3)) {
+            final var fields = line.split(",");
+            final var cell = new Sweep.Cell(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3]));
+            final int i = results.stream().map(Sweep.Result::cell).toList().indexOf(cell);
+            assertEquals(results.get(i), resumed.get(i));
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(results.get(i).food(), resumed.get(i).food());
+            assertEquals(results.get(i).eaten(), resumed.get(i).eaten());
+        }
+
+        // the cut off line stays, the four missing cells are appended after it
+        final var cached = Files.readAllLines(cache);
+        assertEquals(3 + 1 + 4, cached.size());
+        assertEquals(third.substring(0, 10), cached.get(3));
+
+        // nothing is left to simulate
+        assertEquals(resumed, sweep(OPTIONS, cache).run());
+        assertEquals(cached, Files.readAllLines(cache));
+    }
+
+    @Test
+    @Timeout(value = 30)
+    void otherSettingsAreNotTakenFromTheCache(@TempDir final Path directory) throws IOException, InterruptedException {
+        final var cache = directory.resolve("sweep.csv");
+        sweep(OPTIONS, cache).run();
+        sweep(OPTIONS.withSeed(12), cache).run();
+        assertEquals(1 + 6 + 6, Files.readAllLines(cache).size());
+    }
+
+    @Test
+    @Timeout(value = 30)
+    void workersOnlyMatterOnThePool(@TempDir final Path directory) throws IOException, InterruptedException {
+        final var cache = directory.resolve("sweep.csv");
+        // e.g. resumed on a machine with another number of processors
+        sweep(OPTIONS.withWorkers(3), cache).run();
+        sweep(OPTIONS.withWorkers(5), cache).run();
+        assertEquals(1 + 6, Files.readAllLines(cache).size());
+        assertTrue(Files.readAllLines(cache).get(1).contains(";engine=discrete_event;"));
+
+        final var pool = Options.DEFAULT.withEngine(Engine.WORKER_POOL).withSeed(11);
+        sweep(pool.withWorkers(1), cache).run();
+        sweep(pool.withWorkers(2), cache).run();
+        assertEquals(1 + 6 + 6 + 6, Files.readAllLines(cache).size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.pseuco.np21;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+    @Test
+    @Timeout(value = 5)
+    void firesInOrderOfDeadlines() throws InterruptedException {
+        final var wheel = new TimerWheel("test-wheel");
+        final var fired = Collections.synchronizedList(new ArrayList<Integer>());
+        final var done = new CountDownLatch(4);
+
+        // spans the first and the second wheel
+        for (final int delay : List.of(600, 10, 300, 0)) {
+            wheel.schedule(delay, () -> {
+                fired.add(delay);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(3, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 10, 300, 600), fired);
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void doesNotFireEarly() throws InterruptedException {
+        final var wheel = new TimerWheel("test-wheel");
+        final var done = new CountDownLatch(1);
+        final long start = System.nanoTime();
+        wheel.schedule(300, done::countDown);
+
+        assertTrue(done.await(3, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(299));
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void cancelledTimeoutsDoNotFire() throws InterruptedException {
+        final var wheel = new TimerWheel("test-wheel");
+        final var cancelled = new CountDownLatch(1);
+        final var done = new CountDownLatch(1);
+
+        final var timeout = wheel.schedule(20, cancelled::countDown);
+        wheel.schedule(100, done::countDown);
+        assertTrue(wheel.cancel(timeout));
+        assertFalse(wheel.cancel(timeout));
+
+        assertTrue(done.await(3, TimeUnit.SECONDS));
+        assertEquals(1, cancelled.getCount());
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void earlierTimeoutWakesTheWheel() throws InterruptedException {
+        final var wheel = new TimerWheel("test-wheel");
+        final var done = new CountDownLatch(1);
+        wheel.schedule(60_000, () -> {
+        });
+        // let the thread of the wheel fall asleep until the first timeout
+        Thread.sleep(50);
+
+        wheel.schedule(10, done::countDown);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void failingTasksGoToTheUncaughtExceptionHandler() throws InterruptedException {
+        final var wheel = new TimerWheel("test-wheel");
+        final var failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final var done = new CountDownLatch(1);
+        final var failure = new IllegalStateException("expected");
+
+        wheel.schedule(0, () -> Thread.currentThread().setUncaughtExceptionHandler((t, e) -> failures.add(e)));
+        wheel.schedule(10, () -> {
+            throw failure;
+        });
+        wheel.schedule(20, done::countDown);
+
+        assertTrue(done.await(3, TimeUnit.SECONDS));
+        assertEquals(List.of(failure), failures);
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void manyTimeouts() throws InterruptedException {
+        final var wheel = new TimerWheel("test-wheel");
+        final int count = 100_000;
+        final var done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(i % 1000, done::countDown);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+}
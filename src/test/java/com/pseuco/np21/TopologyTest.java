@@ -0,0 +1,119 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.CatValidator;
+import com.pseuco.np21.shared.SpawnDespawnValidator;
+import com.pseuco.np21.shared.StartStopValidator;
+import com.pseuco.np21.shared.World;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopologyTest {
+    /**
+     * List the name of every clearing, the index of every trail leaving it and the clearing it leads to.
+     */
+    private static List<String> trails(final World<Clearing, Trail> world) {
+        final var trails = new ArrayList<String>();
+        for (final var clearing : world.clearings()) {
+            for (int i = 0; i < clearing.degree(); i++) {
+                final var trail = clearing.trail(i);
+                assertSame(clearing, trail.from());
+                assertEquals(trail.index() ^ 1, trail.reverse().index());
+                trails.add(clearing.index() + clearing.name() + ":" + trail.index() + "->" + trail.to().name());
+            }
+        }
+        return trails;
+    }
+
+    @Test
+    void spawnedWorldsShareNoClearingsOrTrails() {
+        final var world = Worlds.load("fork.map", "family.ants");
+        final var spawned = Topology.of(world).spawn(4);
+        assertEquals(trails(world), trails(spawned));
+        assertEquals(world.name(), spawned.name());
+        assertEquals(world.anthill().index(), spawned.anthill().index());
+        assertEquals(world.totalFood(), spawned.totalFood());
+        assertEquals(world.ants(), spawned.ants());
+
+        final var clearings = new HashSet<Clearing>(world.clearings());
+        final var trails = new HashSet<Trail>();
+        world.clearings().forEach(clearing -> trails.addAll(clearing.connectsTo()));
+        for (final var clearing : spawned.clearings()) {
+            assertFalse(clearings.contains(clearing));
+            assertEquals(world.clearings().get(clearing.index()).initialFood(), clearing.initialFood());
+            assertEquals(world.clearings().get(clearing.index()).capacity(), clearing.capacity());
+            for (final var trail : clearing.connectsTo()) {
+                assertFalse(trails.contains(trail));
+            }
+        }
+    }
+
+    @Test
+    void runsDoNotChangeTheTopology() {
+        final var topology = Topology.of(Worlds.load("fork.map", "family.ants"));
+        final var first = topology.spawn(-1);
+        for (final var clearing : first.clearings()) {
+            while (clearing.hasFood()) {
+                clearing.pickupFood();
+            }
+        }
+        final var second = topology.spawn(-1);
+        assertEquals(5, second.totalFood());
+        assertTrue(second.clearings().get(2).hasFood());
+        assertTrue(second.clearings().get(3).hasFood());
+    }
+
+    @Test
+    void onlyBoundedClearingsHaveLocks() {
+        final var world = Topology.of(Worlds.load("fork.map", "family.ants")).spawn(-1);
+        assertNull(world.anthill().lock);
+        assertNull(world.clearings().get(4).lock);
+        assertNotNull(world.clearings().get(1).lock);
+
+        final var trail = world.anthill().trail(0);
+        assertSame(trail.traverseLock(), trail.traverseLock());
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void spawnedWorldsCanBeSimulated() {
+        final var topology = Topology.of(Worlds.load("fork.map", "family.ants"));
+        for (final var options : List.of(Options.DEFAULT, Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT))) {
+            final var validator = new CatValidator<>(List.of(new StartStopValidator(), new SpawnDespawnValidator()));
+            new Simulator(topology.spawn(-1), validator, options.withSeed(3)).run();
+            assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void worldsSpawnedConcurrentlyAreEqual() throws InterruptedException, ExecutionException {
+        final var topology = Topology.of(Worlds.load("fork.map", "family.ants"));
+        final var expected = trails(topology.spawn(-1));
+        final var executor = Executors.newFixedThreadPool(4);
+        try {
+            final var worlds = new ArrayList<Future<World<Clearing, Trail>>>();
+            for (int i = 0; i < 16; i++) {
+                worlds.add(executor.submit(() -> topology.spawn(-1)));
+            }
+            for (final var world : worlds) {
+                assertEquals(expected, trails(world.get()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.CatValidator;
+import com.pseuco.np21.shared.Parser;
+import com.pseuco.np21.shared.PrintRecorder;
+import com.pseuco.np21.shared.Recorder;
+import com.pseuco.np21.shared.SpawnDespawnValidator;
+import com.pseuco.np21.shared.StartStopValidator;
+import com.pseuco.np21.shared.World;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TraceTest {
+    private World<Clearing, Trail> world() throws IOException, URISyntaxException {
+        final var classLoader = getClass().getClassLoader();
+        final var map = Files.readString(Path.of(classLoader.getResource("maps/star.map").toURI()));
+        final var ants = Files.readString(Path.of(classLoader.getResource("ants/simpsons.ants").toURI()));
+
+        final var factory = new Factory();
+        return factory.finishWorld(Parser.parse(map, ants, factory), -1);
+    }
+
+    private static Options options() {
+        return Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withSeed(11);
+    }
+
+    private static String printed(final Runnable run) {
+        final var out = System.out;
+        final var buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            run.run();
+        } finally {
+            System.setOut(out);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    private byte[] trace() throws IOException, URISyntaxException {
+        final var world = world();
+        final var buffer = new ByteArrayOutputStream();
+        new Simulator(world, new TraceWriter(Channels.newChannel(buffer), world), options()).run();
+        return buffer.toByteArray();
+    }
+
+    private static long replay(final byte[] trace, final Recorder recorder) throws IOException {
+        try (final var reader = new TraceReader(Channels.newChannel(new ByteArrayInputStream(trace)))) {
+            return reader.replay(recorder);
+        }
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void replayPrintsLikeTheSimulation() throws IOException, URISyntaxException {
+        final var world = world();
+        final var expected = printed(() -> new Simulator(world, new PrintRecorder(), options()).run());
+
+        final var trace = trace();
+        final var replayed = printed(() -> {
+            try {
+                replay(trace, new PrintRecorder());
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+
+        assertEquals(expected, replayed);
+        assertTrue(trace.length * 5 < expected.length(),
+                () -> trace.length + " bytes of trace for " + expected.length() + " characters of text");
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void replayIsValid() throws IOException, URISyntaxException {
+        final var validator = new CatValidator<>(List.of(
+                new StartStopValidator(),
+                new SpawnDespawnValidator()
+        ));
+        final var calls = replay(trace(), validator);
+
+        assertTrue(calls > 2);
+        assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void tracesDoNotDependOnOtherWorlds() throws IOException, URISyntaxException {
+        final var first = trace();
+        // entities of other worlds take up ids in between
+        world();
+        assertArrayEquals(first, trace());
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void truncatedTraceFails() throws IOException, URISyntaxException {
+        final var trace = trace();
+        final var truncated = Arrays.copyOf(trace, trace.length - 1);
+        assertThrows(IOException.class, () -> replay(truncated, new PrintRecorder()));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void otherVersionsFail() throws IOException, URISyntaxException {
+        final var trace = trace();
+        // the magic takes five bytes, the version one
+        assertEquals(TraceWriter.VERSION, trace[5]);
+        trace[5] = TraceWriter.VERSION - 1;
+        final var e = assertThrows(IOException.class, () -> replay(trace, new PrintRecorder()));
+        assertEquals("Unsupported trace version 1!", e.getMessage());
+    }
+
+    @Test
+    void antsOutsideTheWorldFail() throws IOException, URISyntaxException {
+        final var world = world();
+        final var writer = new TraceWriter(Channels.newChannel(new ByteArrayOutputStream()), world);
+        writer.start();
+        final var stranger = new Ant(new Factory().createAnt("Stranger", 1, 1), world, writer);
+        assertEquals(-1, stranger.index());
+
+        final var e = assertThrows(IllegalArgumentException.class, () -> writer.spawn(stranger));
+        assertTrue(e.getMessage().contains("Stranger"));
+    }
+
+    @Test
+    void notATrace() {
+        final var text = "Simulation started.".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> replay(text, new PrintRecorder()));
+    }
+}
@@ -0,0 +1,76 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Position.Capacity;
+import com.pseuco.np21.shared.Trail.Pheromone;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TrailTest {
+    private static Trail trail() {
+        return new Trail(new Clearing("A", 0, Capacity.INFINITE), new Clearing("B", 0, Capacity.INFINITE));
+    }
+
+    @Test
+    void explorersKeepTheMinimum() {
+        final var trail = trail();
+        assertEquals(Pheromone.NOT_A_PHEROMONE, trail.food());
+
+        trail.updateFood(5, true);
+        trail.updateFood(7, true);
+        assertEquals(Pheromone.get(5), trail.food());
+
+        trail.updateFood(3, true);
+        assertEquals(Pheromone.get(3), trail.food());
+
+        // infinite overrides and is overridden by any level
+        trail.updateFood(Pheromone.INFINITE, true);
+        assertSame(Pheromone.INFINITE, trail.food());
+        trail.updateFood(9, true);
+        assertEquals(Pheromone.get(9), trail.food());
+    }
+
+    @Test
+    void nonExplorersOverwrite() {
+        final var trail = trail();
+        trail.updateFood(2, true);
+        trail.updateFood(8, false);
+        assertEquals(Pheromone.get(8), trail.food());
+    }
+
+    @Test
+    void sharedLevels() {
+        assertSame(Trail.pheromone(42), Trail.pheromone(42));
+        // far beyond the first levels, e.g. on the trails of a huge world
+        assertSame(Trail.pheromone(100_000), Trail.pheromone(100_000));
+        assertEquals(Pheromone.get(100_000), Trail.pheromone(100_000));
+        assertEquals(Pheromone.get(Trail.CACHED_LEVELS), Trail.pheromone(Trail.CACHED_LEVELS));
+        assertSame(Pheromone.INFINITE, Trail.pheromone(-1));
+        assertSame(Pheromone.NOT_A_PHEROMONE, Trail.pheromone(-2));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void concurrentUpdatesKeepTheMinimum() throws InterruptedException {
+        final var trail = trail();
+        final var threads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; t++) {
+            final int offset = t;
+            threads.add(new Thread(() -> {
+                for (int i = 10_000; i >= offset; i -= 8) {
+                    trail.updateAnthill(i);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (final var thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(Pheromone.get(0), trail.anthill());
+    }
+}
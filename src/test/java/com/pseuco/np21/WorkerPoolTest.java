@@ -0,0 +1,70 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.CatValidator;
+import com.pseuco.np21.shared.Parser;
+import com.pseuco.np21.shared.SpawnDespawnValidator;
+import com.pseuco.np21.shared.StartStopValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkerPoolTest {
+    private static CatValidator<?> validator() {
+        return new CatValidator<>(List.of(
+                new StartStopValidator(),
+                new SpawnDespawnValidator()
+        ));
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void validRecording() {
+        final var world = Worlds.load("line.map", "simpsons.ants");
+        final var validator = validator();
+        new Simulator(world, validator, Options.DEFAULT.withEngine(Engine.WORKER_POOL).withWorkers(2)).run();
+
+        assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void moreAntsThanWorkers() {
+        final var ants = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            ants.append("Ant").append(i).append(";").append(i % 7).append(";5\n");
+        }
+
+        final var factory = new Factory();
+        final var name = Parser.parse(Worlds.resource("maps/line.map"), ants.toString(), factory);
+        final var world = factory.finishWorld(name, -1);
+        final var validator = validator();
+        new Simulator(world, validator, Options.DEFAULT.withEngine(Engine.WORKER_POOL).withWorkers(1)).run();
+
+        assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+    }
+
+    @Test
+    @Timeout(value = 5)
+    void interruptCancelsWaitingAnts() throws InterruptedException {
+        final var world = Worlds.load("line.map", "patient.ants");
+        final var validator = validator();
+        final var simulator = new Simulator(world, validator, Options.DEFAULT.withEngine(Engine.WORKER_POOL));
+
+        final var runner = new Thread(simulator::run);
+        runner.start();
+        runner.join(200);
+        simulator.interrupt();
+        runner.join();
+
+        assertTrue(validator.isRecordingValid(), () -> String.join("\n", validator.errors()));
+    }
+
+    @Test
+    void workersMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> Options.DEFAULT.withWorkers(0));
+    }
+}
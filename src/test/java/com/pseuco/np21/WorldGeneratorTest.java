@@ -0,0 +1,163 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.WorldGenerator.Range;
+import com.pseuco.np21.WorldGenerator.Topology;
+import com.pseuco.np21.shared.Parser;
+import com.pseuco.np21.shared.World;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorldGeneratorTest {
+    private static String map(final WorldGenerator generator) {
+        final var out = new StringWriter();
+        try {
+            generator.writeMap(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private static String ants(final WorldGenerator generator) {
+        final var out = new StringWriter();
+        try {
+            generator.writeAnts(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Parse a generated world with the parser of the specification.
+     */
+    private static World<Clearing, Trail> parse(final WorldGenerator generator) {
+        final var factory = new Factory();
+        final var name = Parser.parse(map(generator), ants(generator), factory);
+        return factory.finishWorld(name, -1);
+    }
+
+    /**
+     * Count the clearings reachable from the anthill.
+     */
+    private static int reachable(final World<Clearing, Trail> world) {
+        final var seen = new HashSet<Clearing>();
+        final var queue = new ArrayDeque<Clearing>();
+        queue.add(world.anthill());
+        seen.add(world.anthill());
+        while (!queue.isEmpty()) {
+            for (final var trail : queue.poll().connectsTo()) {
+                if (seen.add(trail.to())) {
+                    queue.add(trail.to());
+                }
+            }
+        }
+        return seen.size();
+    }
+
+    @Test
+    void worldsAreValid() {
+        for (final var topology : Topology.values()) {
+            for (final int clearings : new int[]{1, 2, 3, 10, 1000}) {
+                final var generator = WorldGenerator.of(topology, clearings).withDegree(6).withSeed(clearings);
+                final var world = parse(generator);
+                assertEquals(clearings, world.clearings().size(), topology::toString);
+                assertEquals(100, world.ants().size());
+                assertTrue(map(generator).contains("\nC0;-1;0;("));
+                assertEquals(0, world.anthill().initialFood());
+
+                for (final var clearing : world.clearings()) {
+                    final var neighbors = new HashSet<Clearing>();
+                    for (final var trail : clearing.connectsTo()) {
+                        assertNotEquals(clearing, trail.to(), () -> topology + " has a loop at " + clearing);
+                        assertTrue(neighbors.add(trail.to()), () -> topology + " has parallel trails at " + clearing);
+                    }
+                }
+                if (topology != Topology.GEOMETRIC) {
+                    assertEquals(clearings, reachable(world), topology::toString);
+                }
+            }
+        }
+    }
+
+    @Test
+    void topologiesHaveTheirShape() {
+        final var grid = parse(WorldGenerator.of(Topology.GRID, 100));
+        assertEquals(2 * 2 * 10 * 9, grid.clearings().stream().mapToInt(Clearing::degree).sum());
+
+        final var ring = parse(WorldGenerator.of(Topology.RING, 100).withDegree(6));
+        assertTrue(ring.clearings().stream().allMatch(clearing -> clearing.degree() == 6));
+
+        final var tree = parse(WorldGenerator.of(Topology.TREE, 1000).withDegree(2));
+        assertEquals(2 * 999, tree.clearings().stream().mapToInt(Clearing::degree).sum());
+
+        final var hubs = parse(WorldGenerator.of(Topology.SCALE_FREE, 10_000).withDegree(4));
+        final int maximum = hubs.clearings().stream().mapToInt(Clearing::degree).max().orElseThrow();
+        assertTrue(maximum > 100, () -> "largest hub has only " + maximum + " trails");
+
+        final var plane = parse(WorldGenerator.of(Topology.GEOMETRIC, 10_000).withDegree(8));
+        final double average = plane.clearings().stream().mapToInt(Clearing::degree).average().orElseThrow();
+        assertTrue(average > 6 && average < 10, () -> "average degree is " + average);
+    }
+
+    @Test
+    void settingsAreRespected() {
+        final var generator = WorldGenerator.of(Topology.RING, 2000)
+                .withCapacity(new Range(2, 3), 0.5)
+                .withFood(new Range(7, 7), 0.25)
+                .withAnts(50, Range.parse("5..6"), Range.parse("9"));
+        final var world = parse(generator);
+
+        // capacity is the second field of the clearing lines after the anthill
+        final var capacities = map(generator).lines().skip(2).limit(1999)
+                .map(line -> line.split(";")[1])
+                .collect(Collectors.groupingBy(capacity -> capacity, Collectors.counting()));
+        assertEquals(Set.of("-1", "2", "3"), capacities.keySet());
+        assertTrue(capacities.get("-1") > 800 && capacities.get("-1") < 1200);
+        final long stocked = world.clearings().stream().filter(clearing -> clearing.initialFood() > 0).count();
+        assertTrue(stocked > 350 && stocked < 650);
+        assertEquals(7 * stocked, world.totalFood());
+
+        assertEquals(50, world.ants().size());
+        assertTrue(world.ants().stream().allMatch(ant -> ant.disguise() == 9
+                && ant.impatience() >= 5 && ant.impatience() <= 6));
+    }
+
+    @Test
+    void sameSettingsGenerateTheSameWorld() {
+        for (final var topology : Topology.values()) {
+            final var generator = WorldGenerator.of(topology, 500).withSeed(42);
+            assertEquals(map(generator), map(WorldGenerator.of(topology, 500).withSeed(42)));
+            assertEquals(ants(generator), ants(WorldGenerator.of(topology, 500).withSeed(42)));
+            if (topology != Topology.GRID && topology != Topology.RING) {
+                assertNotEquals(map(generator), map(generator.withSeed(43)));
+            }
+        }
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> WorldGenerator.of(Topology.GRID, 0));
+        assertThrows(IllegalArgumentException.class, () -> Topology.parse("torus"));
+        assertThrows(IllegalArgumentException.class, () -> Range.parse("5..1"));
+        assertThrows(IllegalArgumentException.class, () -> Range.parse("a..b"));
+        final var generator = WorldGenerator.of(Topology.GRID, 10);
+        assertThrows(IllegalArgumentException.class, () -> generator.withDegree(0));
+        assertThrows(IllegalArgumentException.class, () -> generator.withCapacity(new Range(0, 2), 0));
+        assertThrows(IllegalArgumentException.class, () -> generator.withFood(new Range(1, 2), 1.5));
+        assertFalse(map(generator).isEmpty());
+    }
+}
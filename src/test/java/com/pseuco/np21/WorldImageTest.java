@@ -0,0 +1,126 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Ant;
+import com.pseuco.np21.shared.PrintRecorder;
+import com.pseuco.np21.shared.World;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorldImageTest {
+    @TempDir
+    Path directory;
+
+    private Path copy(final String resource) throws IOException, URISyntaxException {
+        final var source = Path.of(getClass().getClassLoader().getResource(resource).toURI());
+        return Files.copy(source, directory.resolve(source.getFileName()), StandardCopyOption.COPY_ATTRIBUTES);
+    }
+
+    private static World<Clearing, Trail> parse(final Path map, final Path ants) throws IOException {
+        final var factory = new Factory();
+        return factory.finishWorld(new StreamingParser().parse(map, ants, factory), -1);
+    }
+
+    private static String describe(final Clearing clearing) {
+        return String.format("%s %d %s (%d,%d) %s", clearing.name(), clearing.initialFood(), clearing.capacity(),
+                clearing.x(), clearing.y(), clearing.connectsTo().stream()
+                        .map(trail -> trail.from().name() + "-" + trail.to().name())
+                        .collect(Collectors.toList()));
+    }
+
+    private static List<String> describe(final World<Clearing, Trail> world) {
+        final var description = world.clearings().stream()
+                .map(WorldImageTest::describe)
+                .collect(Collectors.toList());
+        description.add(0, world.name() + " " + world.anthill().name());
+        for (final Ant ant : world.ants()) {
+            description.add(ant.name() + " " + ant.impatience() + " " + ant.disguise());
+        }
+        return description;
+    }
+
+    private static String printed(final World<Clearing, Trail> world) {
+        final var out = System.out;
+        final var buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            new Simulator(world, new PrintRecorder(), Options.DEFAULT.withEngine(Engine.DISCRETE_EVENT).withSeed(5))
+                    .run();
+        } finally {
+            System.setOut(out);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @Timeout(value = 10)
+    void loadsTheCompiledWorld() throws IOException, URISyntaxException {
+        final var map = copy("maps/star.map");
+        final var ants = copy("ants/simpsons.ants");
+        final var image = directory.resolve("star.img");
+        WorldImage.write(image, parse(map, ants), map, ants);
+
+        final var loaded = WorldImage.load(image, map, ants, -1).orElseThrow();
+
+        assertEquals(describe(parse(map, ants)), describe(loaded));
+        assertEquals(printed(parse(map, ants)), printed(loaded));
+    }
+
+    @Test
+    void staleImageIsIgnored() throws IOException, URISyntaxException {
+        final var map = copy("maps/star.map");
+        final var ants = copy("ants/simpsons.ants");
+        final var image = directory.resolve("star.img");
+        WorldImage.write(image, parse(map, ants), map, ants);
+
+        Files.setLastModifiedTime(map, FileTime.fromMillis(Files.getLastModifiedTime(map).toMillis() + 1000));
+
+        assertTrue(WorldImage.load(image, map, ants, -1).isEmpty());
+    }
+
+    @Test
+    void missingImageIsIgnored() throws IOException, URISyntaxException {
+        final var map = copy("maps/star.map");
+        final var ants = copy("ants/simpsons.ants");
+
+        assertTrue(WorldImage.load(directory.resolve("missing.img"), map, ants, -1).isEmpty());
+    }
+
+    @Test
+    void notAnImage() throws IOException, URISyntaxException {
+        final var map = copy("maps/star.map");
+        final var ants = copy("ants/simpsons.ants");
+
+        assertThrows(IOException.class, () -> WorldImage.load(map, map, ants, -1));
+    }
+
+    @Test
+    void truncatedImageIsCorrupt() throws IOException, URISyntaxException {
+        final var map = copy("maps/star.map");
+        final var ants = copy("ants/simpsons.ants");
+        final var image = directory.resolve("star.img");
+        WorldImage.write(image, parse(map, ants), map, ants);
+
+        final var bytes = Files.readAllBytes(image);
+        Files.write(image, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertThrows(IOException.class, () -> WorldImage.load(image, map, ants, -1));
+    }
+}
@@ -0,0 +1,50 @@
+package com.pseuco.np21;
+
+import com.pseuco.np21.shared.Parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Worlds built from the maps and ants in the test resources, so the tests share their fixtures.
+ */
+final class Worlds {
+    private Worlds() {
+    }
+
+    /**
+     * Read a test resource.
+     *
+     * @param name of the resource, e.g. {@code maps/line.map}
+     * @return content of the resource
+     */
+    static String resource(final String name) {
+        final var url = Worlds.class.getClassLoader().getResource(name);
+        if (url == null) {
+            throw new IllegalArgumentException(String.format("Unknown test resource \"%s\"!", name));
+        }
+        try {
+            return Files.readString(Path.of(url.toURI()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Build a fresh world whose ants have to collect all food.
+     *
+     * @param map  file in {@code maps/}
+     * @param ants file in {@code ants/}
+     * @return the world
+     */
+    static Colony load(final String map, final String ants) {
+        final var factory = new Factory();
+        return (Colony) factory.finishWorld(
+                Parser.parse(resource("maps/" + map), resource("ants/" + ants), factory), -1);
+    }
+}